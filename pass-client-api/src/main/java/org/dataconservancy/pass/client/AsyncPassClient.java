@@ -0,0 +1,320 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+
+/**
+ * Non-blocking interactions with the PASS database.
+ * <p>
+ * Mirrors {@link PassClient}, but each operation returns immediately with a {@link CompletableFuture} that completes
+ * once the operation has finished, so that many requests can be in flight without holding a thread for each of them.
+ * See the corresponding {@link PassClient} method for the semantics of each operation.
+ * </p>
+ * <p>
+ * Invalid arguments are rejected immediately with an {@link IllegalArgumentException}. Any other failure completes
+ * the returned future exceptionally, with the exception the corresponding {@link PassClient} method would have
+ * thrown.
+ * </p>
+ * <p>
+ * Implementations may complete futures on the threads of their HTTP clients, of which there may be few, and may bound
+ * the number of requests in flight at once. Dependent stages added without an executor run on whichever thread
+ * completes the future, so they should not block; stages that block, for example by waiting on another request,
+ * should be added with one of the {@code *Async} methods of {@link CompletableFuture} and an executor of their own,
+ * or chained with {@link CompletableFuture#thenCompose(java.util.function.Function) thenCompose} instead.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public interface AsyncPassClient {
+
+    /**
+     * @param modelObj The entity to be created
+     * @return future URI of new record
+     * @see PassClient#createResource(PassEntity)
+     */
+    public CompletableFuture<URI> createResource(PassEntity modelObj);
+
+    /**
+     * @param modelObj   the object to be created.
+     * @param modelClass The class of PASS entity.
+     * @param <T>        PASS entity type
+     * @return future updated version of the resource
+     * @see PassClient#createAndReadResource(PassEntity, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<T> createAndReadResource(T modelObj, Class<T> modelClass);
+
+    /**
+     * @param modelObj The object to be updated
+     * @return future that completes when the update has been made
+     * @see PassClient#updateResource(PassEntity)
+     */
+    public CompletableFuture<Void> updateResource(PassEntity modelObj);
+
+    /**
+     * @param modelObj   The entity to be updated
+     * @param modelClass The class of the PASS entity.
+     * @param <T>        PASS entity type
+     * @return future updated version of the resource
+     * @see PassClient#updateAndReadResource(PassEntity, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<T> updateAndReadResource(T modelObj, Class<T> modelClass);
+
+    /**
+     * @param uri the URI of the resource to be deleted.
+     * @return future that completes when the resource has been deleted
+     * @see PassClient#deleteResource(URI)
+     */
+    public CompletableFuture<Void> deleteResource(URI uri);
+
+    /**
+     * @param uri        The URI of the resource to be read.
+     * @param modelClass The class of PASS entity.
+     * @param <T>        PASS entity type
+     * @return future pass entity.
+     * @see PassClient#readResource(URI, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<T> readResource(URI uri, Class<T> modelClass);
+
+    /**
+     * The returned future completes once every resource has been read or has failed; it does not complete
+     * exceptionally because of a failure to read an individual resource.
+     *
+     * @param uris       The URIs of the resources to be read.
+     * @param modelClass The class of PASS entity.
+     * @param <T>        PASS entity type
+     * @return future list of one result per URI, in the order given.
+     * @see PassClient#readResources(Collection, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<List<ReadResult<T>>> readResources(Collection<URI> uris,
+                                                                                       Class<T> modelClass);
+
+    /**
+     * @param modelClass The PASS entity class.
+     * @param attribute  JSON attribute name.
+     * @param value      value of the attribute.
+     * @param <T>        PASS entity type
+     * @return future matching PASS entity URI, completing with {@code null} if there is no match
+     * @see PassClient#findByAttribute(Class, String, Object)
+     */
+    public <T extends PassEntity> CompletableFuture<URI> findByAttribute(Class<T> modelClass, String attribute,
+                                                                         Object value);
+
+    /**
+     * @param modelClass The PASS entity class.
+     * @param attribute  JSON attribute name.
+     * @param values     values of the attribute.
+     * @param <T>        PASS entity type
+     * @param <V>        value type
+     * @return future Map of each value to its matching PASS entity URI, or {@code null}
+     * @see PassClient#findByAttributeBatch(Class, String, Collection)
+     */
+    public <T extends PassEntity, V> CompletableFuture<Map<V, URI>> findByAttributeBatch(Class<T> modelClass,
+                                                                                         String attribute,
+                                                                                         Collection<V> values);
+
+    /**
+     * @param modelClass The class of PASS entity.
+     * @param attribute  JSON attribute name.
+     * @param value      The value of the PASS attribute.
+     * @param <T>        PASS entity type
+     * @return future Set of all matching PASS entity URIs.
+     * @see PassClient#findAllByAttribute(Class, String, Object)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttribute(Class<T> modelClass,
+                                                                                 String attribute, Object value);
+
+    /**
+     * @param modelClass The class of PASS entity.
+     * @param attribute  JSON attribute name.
+     * @param value      The value of the PASS attribute.
+     * @param limit      Maximum number of results.
+     * @param offset     Result offset.
+     * @param <T>        PASS entity type
+     * @return future Set of all matching PASS entity URIs.
+     * @see PassClient#findAllByAttribute(Class, String, Object, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttribute(Class<T> modelClass,
+                                                                                 String attribute, Object value,
+                                                                                 int limit, int offset);
+
+    /**
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attributes to values.
+     * @param <T>                PASS entity type
+     * @return future Set of all matching PASS entity URIs.
+     * @see PassClient#findAllByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributes(Class<T> modelClass,
+                                                                                  Map<String, Object>
+                                                                                      attributeValuesMap);
+
+    /**
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attribute name to values.
+     * @param limit              Maximum number of results.
+     * @param offset             Result offset.
+     * @param <T>                PASS entity type
+     * @return future Set of all matching PASS entity URIs.
+     * @see PassClient#findAllByAttributes(Class, Map, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributes(Class<T> modelClass,
+                                                                                  Map<String, Object>
+                                                                                      attributeValuesMap,
+                                                                                  int limit, int offset);
+
+    /**
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attributes to values.
+     * @param <T>                PASS entity type
+     * @return future List of all matching PASS entities.
+     * @see PassClient#findAllEntitiesByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap);
+
+    /**
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attribute name to values.
+     * @param limit              Maximum number of results.
+     * @param offset             Result offset.
+     * @param <T>                PASS entity type
+     * @return future List of all matching PASS entities.
+     * @see PassClient#findAllEntitiesByAttributes(Class, Map, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap,
+                                                                                         int limit, int offset);
+
+    /**
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attribute name to values.
+     * @param fields             JSON names of the fields to populate.
+     * @param limit              Maximum number of results.
+     * @param offset             Result offset.
+     * @param <T>                PASS entity type
+     * @return future List of all matching PASS entities.
+     * @see PassClient#findAllEntitiesByAttributes(Class, Map, Collection, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap,
+                                                                                         Collection<String> fields,
+                                                                                         int limit, int offset);
+
+    /**
+     * @param passEntity the URI of a repository resource
+     * @return future {@code Map} keyed by predicate, may be empty but never {@code null}
+     * @see PassClient#getIncoming(URI)
+     */
+    public CompletableFuture<Map<String, Collection<URI>>> getIncoming(URI passEntity);
+
+    /**
+     * The default implementation retrieves all the inbound links with {@link #getIncoming(URI)}, and recognizes the
+     * type of an entity by its container in the path of its URI, as {@link PassEntityType#isTypeOf(URI)} does.
+     *
+     * @param passEntity the URI of a repository resource
+     * @param predicates predicates of the links returned, or {@code null} for all
+     * @param types      types of the entities whose links are returned, or {@code null} for all
+     * @return future {@code Map} keyed by predicate, may be empty but never {@code null}
+     * @see PassClient#getIncoming(URI, Collection, Collection)
+     */
+    public default CompletableFuture<Map<String, Collection<URI>>> getIncoming(URI passEntity,
+                                                                              Collection<String> predicates,
+                                                                              Collection<PassEntityType> types) {
+        return getIncoming(passEntity).thenApply(links -> {
+            Map<String, Collection<URI>> incoming = new HashMap<>();
+            links.forEach((predicate, uris) -> {
+                if (predicates != null && !predicates.contains(predicate)) {
+                    return;
+                }
+                for (URI link : uris) {
+                    if (types == null || types.stream().anyMatch(type -> type.isTypeOf(link))) {
+                        incoming.computeIfAbsent(predicate, p -> new HashSet<>()).add(link);
+                    }
+                }
+            });
+            return incoming;
+        });
+    }
+
+    /**
+     * The reads and incoming reference lookups of each level of the graph are made concurrently, and the next level
+     * is requested once they have all completed.
+     *
+     * @param uri        URI of the entity
+     * @param modelClass class of the entity
+     * @param include    related entities to load
+     * @param <T>        PASS entity type
+     * @return future graph
+     * @see PassClient#loadGraph(URI, Class, IncludeSpec)
+     */
+    public default <T extends PassEntity> CompletableFuture<EntityGraph<T>> loadGraph(URI uri, Class<T> modelClass,
+                                                                                      IncludeSpec include) {
+        return new GraphLoader(new GraphLoader.Source() {
+            @Override
+            public <E extends PassEntity> CompletableFuture<E> read(URI entity, Class<E> entityClass) {
+                return readResource(entity, entityClass);
+            }
+
+            @Override
+            public CompletableFuture<Collection<URI>> incoming(URI entity, PassEntityType type, String field) {
+                return getIncoming(entity, Collections.singleton(field), Collections.singleton(type))
+                    .thenApply(links -> links.get(field));
+            }
+        }).load(uri, modelClass, include);
+    }
+
+    /**
+     * The {@code content} is read while the request is in flight, so it must not be closed before the returned
+     * future completes.
+     *
+     * @param entityUri a URI identifying an existing resource in the repository
+     * @param content   the content to {@code POST} to the resource
+     * @return future {@code URI} used to retrieve the uploaded content
+     * @see PassClient#upload(URI, InputStream)
+     */
+    public default CompletableFuture<URI> upload(URI entityUri, InputStream content) {
+        return upload(entityUri, content, Collections.emptyMap());
+    }
+
+    /**
+     * The {@code content} is read while the request is in flight, so it must not be closed before the returned
+     * future completes.
+     *
+     * @param entityUri an existing entity in the repository
+     * @param content   the content to {@code POST} to the entity
+     * @param params    optional parameters to the {@code POST}, <em>i.e.</em> HTTP header values
+     * @return future {@code URI} used to retrieve the uploaded content
+     * @see PassClient#upload(URI, InputStream, Map)
+     */
+    public CompletableFuture<URI> upload(URI entityUri, InputStream content, Map<String, ?> params);
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+
+/**
+ * An entity and the related entities loaded along with it by
+ * {@link PassClient#loadGraph(URI, Class, IncludeSpec)}, each loaded once however many times it is referenced.
+ * <p>
+ * The references held by the entities are resolved to the loaded entities with {@link #get(URI, Class)} and
+ * {@link #get(Collection, Class)}, and the entities found by incoming references with
+ * {@link #getIncoming(URI, Class, String)}:
+ * </p>
+ *
+ * <pre>
+ * Submission submission = graph.getRoot();
+ * List&lt;Grant&gt; grants = graph.get(submission.getGrants(), Grant.class);
+ * List&lt;Deposit&gt; deposits = graph.getIncoming(submission.getId(), Deposit.class, "submission");
+ * </pre>
+ *
+ * @param <T> type of the root entity
+ * @author Johns Hopkins University
+ */
+public final class EntityGraph<T extends PassEntity> {
+
+    private final T root;
+
+    private final Map<URI, PassEntity> entities;
+
+    private final Map<URI, Map<String, Set<URI>>> incoming;
+
+    private final int waves;
+
+    EntityGraph(T root, Map<URI, PassEntity> entities, Map<URI, Map<String, Set<URI>>> incoming, int waves) {
+        this.root = root;
+        this.entities = Collections.unmodifiableMap(entities);
+        this.incoming = incoming;
+        this.waves = waves;
+    }
+
+    /**
+     * @return the entity the graph was loaded from
+     */
+    public T getRoot() {
+        return root;
+    }
+
+    /**
+     * @return every entity loaded, including the root, by URI
+     */
+    public Map<URI, PassEntity> getEntities() {
+        return entities;
+    }
+
+    /**
+     * Resolve a reference to a loaded entity
+     *
+     * @param uri        URI of the entity, may be {@code null}
+     * @param modelClass class of the entity
+     * @param <R>        PASS entity type
+     * @return the entity, or {@code null} if it was not loaded
+     * @throws IllegalArgumentException if the entity loaded is not of the given class
+     */
+    public <R extends PassEntity> R get(URI uri, Class<R> modelClass) {
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+        PassEntity entity = uri == null ? null : entities.get(uri);
+        if (entity == null) {
+            return null;
+        }
+        if (!modelClass.isInstance(entity)) {
+            throw new IllegalArgumentException(String.format("Entity %s is a %s, not a %s", uri,
+                                                             entity.getClass().getSimpleName(),
+                                                             modelClass.getSimpleName()));
+        }
+        return modelClass.cast(entity);
+    }
+
+    /**
+     * Resolve references to loaded entities
+     *
+     * @param uris       URIs of the entities, may be {@code null}
+     * @param modelClass class of the entities
+     * @param <R>        PASS entity type
+     * @return the entities that were loaded, in the order of their URIs
+     * @throws IllegalArgumentException if an entity loaded is not of the given class
+     */
+    public <R extends PassEntity> List<R> get(Collection<URI> uris, Class<R> modelClass) {
+        List<R> resolved = new ArrayList<>();
+        if (uris != null) {
+            for (URI uri : uris) {
+                R entity = get(uri, modelClass);
+                if (entity != null) {
+                    resolved.add(entity);
+                }
+            }
+        }
+        return resolved;
+    }
+
+    /**
+     * Get the loaded entities of a class that reference an entity in a field, as included by
+     * {@link IncludeSpec#incoming(PassEntityType, String)}
+     *
+     * @param uri        URI of the referenced entity
+     * @param modelClass class of the referencing entities
+     * @param field      JSON name of their field referencing the entity
+     * @param <R>        PASS entity type
+     * @return the referencing entities, in no particular order; empty if none were loaded
+     */
+    public <R extends PassEntity> List<R> getIncoming(URI uri, Class<R> modelClass, String field) {
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+        Map<String, Set<URI>> links = uri == null ? null : incoming.get(uri);
+        if (links == null) {
+            return new ArrayList<>();
+        }
+        return get(links.get(key(PassEntityType.getTypeByClass(modelClass), field)), modelClass);
+    }
+
+    /**
+     * @return the number of waves of concurrent requests made to load the graph, one for each level of references
+     * beneath the root, and one for the root itself
+     */
+    public int getWaves() {
+        return waves;
+    }
+
+    /**
+     * @param type  type of the referencing entities
+     * @param field their field referencing an entity
+     * @return key of the incoming references of the type in the field
+     */
+    static String key(PassEntityType type, String field) {
+        return type.getName() + "." + field;
+    }
+}
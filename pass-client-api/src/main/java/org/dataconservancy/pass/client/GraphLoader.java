@@ -0,0 +1,309 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityReference;
+import org.dataconservancy.pass.model.PassEntityType;
+
+/**
+ * Loads an entity and the related entities named by an {@link IncludeSpec}, breadth-first.
+ * <p>
+ * The graph is loaded in waves, one for each level of references beneath the entity. All the reads and incoming
+ * reference lookups of a wave are requested at once, and the next wave is requested once they have all completed.
+ * Each entity is read once, however many times it is referenced; an entity reached again by a different path is
+ * not read again, but the references included by that path are followed from it. The fields that may be followed
+ * are those listed by {@link PassEntityReference}.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+final class GraphLoader {
+
+    /**
+     * Reads entities and looks up incoming references, for the loader
+     */
+    interface Source {
+
+        /**
+         * @param uri        URI of the entity
+         * @param modelClass class of the entity
+         * @param <T>        PASS entity type
+         * @return future entity
+         */
+        <T extends PassEntity> CompletableFuture<T> read(URI uri, Class<T> modelClass);
+
+        /**
+         * @param uri   URI of the referenced entity
+         * @param type  type of the referencing entities
+         * @param field JSON name of their field referencing the entity
+         * @return future URIs of the referencing entities
+         */
+        CompletableFuture<Collection<URI>> incoming(URI uri, PassEntityType type, String field);
+    }
+
+    private final Source source;
+
+    /**
+     * Read of each entity, by URI
+     */
+    private final Map<URI, CompletableFuture<? extends PassEntity>> reads = new ConcurrentHashMap<>();
+
+    /**
+     * Specs each entity has been loaded with, so that the references they include are followed only once
+     */
+    private final Map<URI, Set<IncludeSpec>> loaded = new ConcurrentHashMap<>();
+
+    /**
+     * URIs of the entities referencing each entity, by the type and field referencing it
+     */
+    private final Map<URI, Map<String, Set<URI>>> incoming = new ConcurrentHashMap<>();
+
+    GraphLoader(Source source) {
+        this.source = source;
+    }
+
+    /**
+     * Load an entity, and the related entities named by the spec
+     *
+     * @param uri        URI of the entity
+     * @param modelClass class of the entity
+     * @param include    related entities to load
+     * @param <T>        PASS entity type
+     * @return future graph
+     * @throws IllegalArgumentException if the spec names a field that is not a reference field of its type
+     */
+    <T extends PassEntity> CompletableFuture<EntityGraph<T>> load(URI uri, Class<T> modelClass, IncludeSpec include) {
+        if (uri == null) {
+            throw new IllegalArgumentException("uri cannot be null");
+        }
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+        if (include == null) {
+            throw new IllegalArgumentException("include cannot be null");
+        }
+        validate(PassEntityType.getTypeByClass(modelClass), include, new IdentityHashMap<>());
+
+        PassEntityType type = PassEntityType.getTypeByClass(modelClass);
+        return wave(Collections.singletonList(Step.read(uri, type, include)), 0).thenApply(waves -> {
+            Map<URI, PassEntity> entities = new LinkedHashMap<>();
+            reads.forEach((id, read) -> entities.put(id, read.join()));
+            return new EntityGraph<>(modelClass.cast(entities.get(uri)), entities, incoming, waves);
+        });
+    }
+
+    /**
+     * Wait for a graph to load
+     *
+     * @param graph future graph
+     * @param <T>   PASS entity type
+     * @return the graph
+     * @throws RuntimeException the exception the graph failed to load with
+     */
+    static <T extends PassEntity> EntityGraph<T> join(CompletableFuture<EntityGraph<T>> graph) {
+        try {
+            return graph.join();
+        } catch (CompletionException e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Make the reads and lookups of a wave at once, then the next wave, until no references remain to be followed
+     *
+     * @param steps reads and lookups of the wave
+     * @param waves number of waves made so far
+     * @return future number of waves made
+     */
+    private CompletableFuture<Integer> wave(List<Step> steps, int waves) {
+        if (steps.isEmpty()) {
+            return CompletableFuture.completedFuture(waves);
+        }
+        List<CompletableFuture<List<Step>>> next = new ArrayList<>(steps.size());
+        for (Step step : steps) {
+            next.add(step.lookup == null ? follow(step) : lookup(step));
+        }
+        return CompletableFuture.allOf(next.toArray(new CompletableFuture<?>[0])).thenCompose(done -> {
+            List<Step> nextSteps = new ArrayList<>();
+            for (CompletableFuture<List<Step>> followed : next) {
+                nextSteps.addAll(followed.join());
+            }
+            return wave(nextSteps, waves + 1);
+        });
+    }
+
+    /**
+     * Look up the entities referencing an entity, and follow the references from each
+     */
+    private CompletableFuture<List<Step>> lookup(Step step) {
+        IncludeSpec.Incoming lookup = step.lookup;
+        return source.incoming(step.uri, lookup.type, lookup.field).thenCompose(uris -> {
+            if (uris == null || uris.isEmpty()) {
+                return CompletableFuture.completedFuture(Collections.<Step>emptyList());
+            }
+            Set<URI> links = incoming.computeIfAbsent(step.uri, u -> new ConcurrentHashMap<>())
+                                     .computeIfAbsent(EntityGraph.key(lookup.type, lookup.field),
+                                         k -> ConcurrentHashMap.newKeySet());
+            List<CompletableFuture<List<Step>>> followed = new ArrayList<>(uris.size());
+            for (URI uri : uris) {
+                links.add(uri);
+                followed.add(follow(Step.read(uri, lookup.type, lookup.include)));
+            }
+            return CompletableFuture.allOf(followed.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                List<Step> nextSteps = new ArrayList<>();
+                for (CompletableFuture<List<Step>> f : followed) {
+                    nextSteps.addAll(f.join());
+                }
+                return nextSteps;
+            });
+        });
+    }
+
+    /**
+     * Read an entity, unless it has been read already, and find the steps of the next wave that the spec it is read
+     * with includes
+     */
+    private CompletableFuture<List<Step>> follow(Step step) {
+        return read(step.uri, step.type.getModelClass()).thenApply(entity -> {
+            if (step.include.isEmpty() || !loaded.computeIfAbsent(step.uri, u -> ConcurrentHashMap.newKeySet())
+                                                 .add(step.include)) {
+                return Collections.<Step>emptyList();
+            }
+            List<Step> nextSteps = new ArrayList<>();
+            step.include.getFields().forEach((field, include) -> {
+                PassEntityReference reference = PassEntityReference.getReference(step.type, field);
+                for (URI uri : reference.getValues(entity)) {
+                    if (uri != null) {
+                        nextSteps.add(Step.read(uri, reference.getType(), include));
+                    }
+                }
+            });
+            for (IncludeSpec.Incoming lookup : step.include.getIncoming()) {
+                nextSteps.add(Step.lookup(step.uri, lookup));
+            }
+            return nextSteps;
+        });
+    }
+
+    /**
+     * Read an entity once, however many times it is asked for
+     */
+    @SuppressWarnings("unchecked")
+    private <T extends PassEntity> CompletableFuture<T> read(URI uri, Class<T> modelClass) {
+        CompletableFuture<T> read = new CompletableFuture<>();
+        CompletableFuture<? extends PassEntity> previous = reads.putIfAbsent(uri, read);
+        if (previous != null) {
+            return previous.thenApply(entity -> {
+                if (!modelClass.isInstance(entity)) {
+                    throw new IllegalArgumentException(String.format(
+                        "Entity %s is referenced as a %s, but is a %s", uri, modelClass.getSimpleName(),
+                        entity.getClass().getSimpleName()));
+                }
+                return (T) entity;
+            });
+        }
+        source.read(uri, modelClass).whenComplete((entity, e) -> {
+            if (e != null) {
+                read.completeExceptionally(e);
+            } else {
+                read.complete(entity);
+            }
+        });
+        return read;
+    }
+
+    /**
+     * Check that each field the spec names is a reference field of the type it is applied to, and that each
+     * incoming reference is made by a field of its type referencing the type
+     */
+    private static void validate(PassEntityType type, IncludeSpec include,
+                                 Map<IncludeSpec, Set<PassEntityType>> validated) {
+        if (!validated.computeIfAbsent(include, i -> EnumSet.noneOf(PassEntityType.class)).add(type)) {
+            return;
+        }
+        include.getFields().forEach((field, child) -> {
+            PassEntityReference reference = PassEntityReference.getReference(type, field);
+            if (reference == null) {
+                throw new IllegalArgumentException(String.format("\"%s\" is not a reference field of %s", field,
+                                                                 type.getName()));
+            }
+            validate(reference.getType(), child, validated);
+        });
+        for (IncludeSpec.Incoming lookup : include.getIncoming()) {
+            PassEntityReference reference = PassEntityReference.getReference(lookup.type, lookup.field);
+            if (reference == null || reference.getType() != type) {
+                throw new IllegalArgumentException(String.format("\"%s\" is not a field of %s referencing %s",
+                                                                 lookup.field, lookup.type.getName(),
+                                                                 type.getName()));
+            }
+            validate(lookup.type, lookup.include, validated);
+        }
+    }
+
+    /**
+     * A read of an entity of a type, to be loaded with a spec; or a lookup of the entities referencing it
+     */
+    private static final class Step {
+
+        final URI uri;
+
+        final PassEntityType type;
+
+        final IncludeSpec include;
+
+        final IncludeSpec.Incoming lookup;
+
+        private Step(URI uri, PassEntityType type, IncludeSpec include, IncludeSpec.Incoming lookup) {
+            this.uri = uri;
+            this.type = type;
+            this.include = include;
+            this.lookup = lookup;
+        }
+
+        static Step read(URI uri, PassEntityType type, IncludeSpec include) {
+            return new Step(uri, type, include, null);
+        }
+
+        static Step lookup(URI uri, IncludeSpec.Incoming lookup) {
+            return new Step(uri, null, null, lookup);
+        }
+    }
+}
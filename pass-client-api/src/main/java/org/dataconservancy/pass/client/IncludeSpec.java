@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.dataconservancy.pass.model.PassEntityType;
+
+/**
+ * Names the entities related to an entity that {@link PassClient#loadGraph(java.net.URI, Class, IncludeSpec)} loads
+ * along with it.
+ * <p>
+ * A spec is a tree. Each of its reference fields, such as {@code grants} of a {@code Submission}, includes the
+ * entities the field references, and each of those is loaded with the spec beneath the field. Incoming references
+ * include the entities of a type that reference the entity in a field, such as the {@code Deposit}s whose
+ * {@code submission} is the entity, which the entity itself does not reference. Paths of fields separated by dots are
+ * a shorthand for nested specs:
+ * </p>
+ *
+ * <pre>
+ * IncludeSpec include = IncludeSpec.paths("publication.journal", "grants.primaryFunder.policy", "repositories")
+ *     .incoming(PassEntityType.DEPOSIT, "submission", IncludeSpec.paths("repositoryCopy"))
+ *     .incoming(PassEntityType.SUBMISSION_EVENT, "submission");
+ * </pre>
+ * <p>
+ * Field names are checked against the types of the entities when a graph is loaded. A spec should not be changed
+ * while a graph is being loaded with it.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public class IncludeSpec {
+
+    private final Map<String, IncludeSpec> fields = new LinkedHashMap<>();
+
+    private final List<Incoming> incoming = new ArrayList<>();
+
+    /**
+     * Create a spec that includes nothing, to which fields and incoming references may be added
+     */
+    public IncludeSpec() {
+    }
+
+    /**
+     * Create a spec that includes the given paths of reference fields
+     *
+     * @param paths field names separated by dots, e.g. {@code grants.primaryFunder.policy}
+     * @return new spec
+     */
+    public static IncludeSpec paths(String... paths) {
+        if (paths == null) {
+            throw new IllegalArgumentException("paths cannot be null");
+        }
+        IncludeSpec include = new IncludeSpec();
+        for (String path : paths) {
+            include.path(path);
+        }
+        return include;
+    }
+
+    /**
+     * Include a path of reference fields, merging it with the fields already included
+     *
+     * @param path field names separated by dots, e.g. {@code grants.primaryFunder.policy}
+     * @return this spec
+     */
+    public IncludeSpec path(String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("path cannot be null or empty");
+        }
+        IncludeSpec include = this;
+        for (String field : path.split("\\.", -1)) {
+            if (field.isEmpty()) {
+                throw new IllegalArgumentException("path \"" + path + "\" has an empty field name");
+            }
+            include = include.fields.computeIfAbsent(field, f -> new IncludeSpec());
+        }
+        return this;
+    }
+
+    /**
+     * Include the entities referenced by a field, loading each with the given spec. Replaces any spec already given
+     * for the field.
+     *
+     * @param field   JSON name of the reference field
+     * @param include spec for the entities the field references
+     * @return this spec
+     */
+    public IncludeSpec field(String field, IncludeSpec include) {
+        if (field == null || field.isEmpty()) {
+            throw new IllegalArgumentException("field cannot be null or empty");
+        }
+        if (include == null) {
+            throw new IllegalArgumentException("include cannot be null");
+        }
+        fields.put(field, include);
+        return this;
+    }
+
+    /**
+     * Include the entities of a type that reference the entity in a field
+     *
+     * @param type  type of the referencing entities
+     * @param field JSON name of their field referencing the entity
+     * @return this spec
+     */
+    public IncludeSpec incoming(PassEntityType type, String field) {
+        return incoming(type, field, new IncludeSpec());
+    }
+
+    /**
+     * Include the entities of a type that reference the entity in a field, loading each with the given spec
+     *
+     * @param type    type of the referencing entities
+     * @param field   JSON name of their field referencing the entity
+     * @param include spec for the referencing entities
+     * @return this spec
+     */
+    public IncludeSpec incoming(PassEntityType type, String field, IncludeSpec include) {
+        if (type == null) {
+            throw new IllegalArgumentException("type cannot be null");
+        }
+        if (field == null || field.isEmpty()) {
+            throw new IllegalArgumentException("field cannot be null or empty");
+        }
+        if (include == null) {
+            throw new IllegalArgumentException("include cannot be null");
+        }
+        incoming.add(new Incoming(type, field, include));
+        return this;
+    }
+
+    /**
+     * @return spec beneath each included reference field, by field name
+     */
+    Map<String, IncludeSpec> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * @return included incoming references
+     */
+    List<Incoming> getIncoming() {
+        return Collections.unmodifiableList(incoming);
+    }
+
+    /**
+     * @return whether nothing is included
+     */
+    boolean isEmpty() {
+        return fields.isEmpty() && incoming.isEmpty();
+    }
+
+    /**
+     * Entities of a type referencing an entity in a field, and the spec they are loaded with
+     */
+    static final class Incoming {
+
+        final PassEntityType type;
+
+        final String field;
+
+        final IncludeSpec include;
+
+        private Incoming(PassEntityType type, String field, IncludeSpec include) {
+            this.type = type;
+            this.field = field;
+            this.include = include;
+        }
+    }
+}
@@ -15,16 +15,28 @@
  */
 package org.dataconservancy.pass.client;
 
+import static java.util.stream.Collectors.toList;
+
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.Grant;
 import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
 
 /**
  * Interface for interactions with PASS database
@@ -98,6 +110,37 @@ public interface PassClient {
      */
     public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass);
 
+    /**
+     * Retrieves the entities matching the URIs provided, populating the appropriate Java class with their values.
+     * <p>
+     * Implementations may read the resources concurrently. The results are in the same order as the URIs. A resource
+     * that cannot be read does not prevent the others from being read; its result holds the reason instead.
+     * </p>
+     * <p>
+     * The default implementation reads the resources one at a time.
+     * </p>
+     *
+     * @param uris       The URIs of the resources to be read.
+     * @param modelClass The class of PASS entity.
+     * @param <T>        PASS entity type
+     * @return One result per URI, in the order given.
+     */
+    public default <T extends PassEntity> List<ReadResult<T>> readResources(Collection<URI> uris,
+                                                                            Class<T> modelClass) {
+        if (uris == null) {
+            throw new IllegalArgumentException("uris cannot be null");
+        }
+        List<ReadResult<T>> results = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            try {
+                results.add(ReadResult.success(uri, readResource(uri, modelClass)));
+            } catch (RuntimeException e) {
+                results.add(ReadResult.failure(uri, e));
+            }
+        }
+        return results;
+    }
+
     /**
      * Retrieves URI for a SINGLE RECORD by matching the entity type and filtering by the field
      * specified using the value provided. For example, to find the {@link Grant} using the {@code awardNumber}:
@@ -128,6 +171,47 @@ public interface PassClient {
      */
     public <T extends PassEntity> URI findByAttribute(Class<T> modelClass, String attribute, Object value);
 
+    /**
+     * Retrieves the URI of a SINGLE RECORD for each of a number of values of the same attribute, as
+     * {@link #findByAttribute(Class, String, Object)} would for each value in turn. For example, to find the Grants
+     * for a list of award numbers:
+     * <pre>{@code
+     *    Map<String, URI> grantIds = findByAttributeBatch(Grant.class, "awardNumber", awardNums);
+     * }</pre>
+     * <p>
+     * The map has one entry per distinct value, in the order given, mapping each value to the URI of its matching
+     * record, or to {@code null} if no records are found. If &gt;1 records are found for any value, a RuntimeException
+     * will be thrown. Values cannot be {@code null}, nor Collections.
+     * </p>
+     * <p>
+     * Implementations may look up many values in one request to the index; by default the values are looked up one at
+     * a time.
+     * </p>
+     *
+     * @param modelClass The PASS entity class.
+     * @param attribute  JSON attribute name.
+     * @param values     values of the attribute.
+     * @param <T>        PASS entity type
+     * @param <V>        value type
+     * @return Map of each value to its matching PASS entity URI, or {@code null}.
+     */
+    public default <T extends PassEntity, V> Map<V, URI> findByAttributeBatch(Class<T> modelClass, String attribute,
+                                                                              Collection<V> values) {
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
+        }
+        Map<V, URI> uris = new LinkedHashMap<>();
+        for (V value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("values cannot contain null");
+            }
+            if (!uris.containsKey(value)) {
+                uris.put(value, findByAttribute(modelClass, attribute, value));
+            }
+        }
+        return uris;
+    }
+
     /**
      * Retrieves URIs for MULTIPLE MATCHING RECORDS by matching the entity type and filtering by the field
      * specified using the value provided.
@@ -265,6 +349,128 @@ public interface PassClient {
                                                                Map<String, Object> attributeValuesMap, int limit,
                                                                int offset);
 
+    /**
+     * Streams the URIs of ALL MATCHING RECORDS by matching the entity type and filtering by the field specified using
+     * the value provided, however many there are.
+     *
+     * @param modelClass The class of PASS entity.
+     * @param attribute  The JSON attribute name.
+     * @param value      The value to match.
+     * @param <T>        PASS entity type
+     * @return Stream of all matching PASS entity URIs.
+     * @see #streamAllByAttributes(Class, Map)
+     */
+    public default <T extends PassEntity> Stream<URI> streamAllByAttribute(Class<T> modelClass, String attribute,
+                                                                           Object value) {
+        return streamAllByAttributes(modelClass, Collections.singletonMap(attribute, value));
+    }
+
+    /**
+     * Streams the URIs of ALL MATCHING RECORDS by matching the entity type and filtering by the attributes and
+     * values specified, however many there are. Unlike {@link #findAllByAttributes(Class, Map)}, results are not
+     * limited to the pass.elasticsearch.limit.
+     * <p>
+     * Matches are fetched a page at a time as the stream is consumed, so memory use does not grow with the number of
+     * matches, and no further pages are fetched once the consumer stops, e.g. after {@code limit()} or
+     * {@code findFirst()}.
+     * </p>
+     * <p>
+     * The default implementation fetches pages of 200 with {@link #findAllByAttributes(Class, Map, int, int)}, so
+     * it is subject to the maximum offset the index supports, and to records being added or removed while the
+     * stream is consumed.
+     * </p>
+     *
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attributes to values.
+     * @param <T>                PASS entity type
+     * @return Stream of all matching PASS entity URIs.
+     */
+    public default <T extends PassEntity> Stream<URI> streamAllByAttributes(Class<T> modelClass,
+                                                                            Map<String, Object> attributeValuesMap) {
+        return Stream.iterate(0, offset -> offset + 200)
+                     .map(offset -> findAllByAttributes(modelClass, attributeValuesMap, 200, offset))
+                     .takeWhile(page -> !page.isEmpty())
+                     .flatMap(Set::stream);
+    }
+
+    /**
+     * Retrieves MULTIPLE MATCHING RECORDS, as {@link #findAllByAttributes(Class, Map)} does, returning the entities
+     * themselves rather than their URIs.
+     * <p>
+     * By default this will return a maximum of 200 matching records, unless the pass.elasticsearch.limit
+     * environment variable is set. If there are no matches, it will return an empty list.
+     * </p>
+     *
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attributes to values.
+     * @param <T>                PASS entity type
+     * @return List of all matching PASS entities.
+     * @see #findAllEntitiesByAttributes(Class, Map, int, int)
+     */
+    public default <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                              Map<String, Object>
+                                                                                  attributeValuesMap) {
+        return readResources(findAllByAttributes(modelClass, attributeValuesMap), modelClass)
+            .stream()
+            .map(ReadResult::getOrThrow)
+            .collect(toList());
+    }
+
+    /**
+     * Retrieves MULTIPLE MATCHING RECORDS, as {@link #findAllByAttributes(Class, Map, int, int)} does, returning the
+     * entities themselves rather than their URIs.
+     * <p>
+     * Implementations backed by a search index may populate the entities directly from the documents in the index,
+     * avoiding a read of each resource from the repository. Such entities reflect the resources as they were when
+     * last indexed. The index does not record which version of a resource it holds, so they have no
+     * {@link PassEntity#getVersionTag() version tag}; to update one without overwriting changes made since it was
+     * indexed, read it from the repository with {@link #readResource(URI, Class)} first. The default implementation
+     * reads each matching resource from the repository.
+     * </p>
+     *
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attribute name to values.
+     * @param limit              Maximum number of results.
+     * @param offset             Result offset.
+     * @param <T>                PASS entity type
+     * @return List of all matching PASS entities.
+     */
+    public default <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                              Map<String, Object>
+                                                                                  attributeValuesMap,
+                                                                              int limit, int offset) {
+        return readResources(findAllByAttributes(modelClass, attributeValuesMap, limit, offset), modelClass)
+            .stream()
+            .map(ReadResult::getOrThrow)
+            .collect(toList());
+    }
+
+    /**
+     * Retrieves MULTIPLE MATCHING RECORDS, as {@link #findAllByAttributes(Class, Map, int, int)} does, returning the
+     * entities themselves with only the given fields populated, for callers that need only a few attributes of each
+     * entity.
+     * <p>
+     * Implementations backed by a search index may fetch only the given fields, along with {@code @id} and
+     * {@code @type}, leaving the other fields of the entities unset. The default implementation reads each matching
+     * resource from the repository, so all fields are populated.
+     * </p>
+     *
+     * @param modelClass         The class of PASS entity.
+     * @param attributeValuesMap Map of JSON attribute name to values.
+     * @param fields             JSON names of the fields to populate.
+     * @param limit              Maximum number of results.
+     * @param offset             Result offset.
+     * @param <T>                PASS entity type
+     * @return List of all matching PASS entities.
+     */
+    public default <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                              Map<String, Object>
+                                                                                  attributeValuesMap,
+                                                                              Collection<String> fields,
+                                                                              int limit, int offset) {
+        return findAllEntitiesByAttributes(modelClass, attributeValuesMap, limit, offset);
+    }
+
     /**
      * Retrieve inbound links to the repository resource identified by {@link PassEntity}.
      * <p>
@@ -277,6 +483,105 @@ public interface PassClient {
      */
     public Map<String, Collection<URI>> getIncoming(URI passEntity);
 
+    /**
+     * Retrieve inbound links to the repository resource identified by {@link PassEntity}, with the given predicates,
+     * from entities of the given types.
+     * <p>
+     * Keys in the returned map will be the predicate, and values will be the incoming URIs that reference the
+     * {@link PassEntity}.
+     * </p>
+     *
+     * @param passEntity the URI of a repository resource
+     * @param predicates predicates of the links returned, or {@code null} for all
+     * @param types      types of the entities whose links are returned, or {@code null} for all
+     * @return a {@code Map} keyed by predicate, may be empty but never {@code null}
+     */
+    public default Map<String, Collection<URI>> getIncoming(URI passEntity, Collection<String> predicates,
+                                                            Collection<PassEntityType> types) {
+        Map<String, Collection<URI>> incoming = new HashMap<>();
+        forEachIncoming(passEntity, predicates, types,
+            (predicate, link) -> incoming.computeIfAbsent(predicate, p -> new HashSet<>()).add(link));
+        return incoming;
+    }
+
+    /**
+     * Hand each inbound link to the repository resource identified by {@link PassEntity}, with the given predicates,
+     * from entities of the given types, to a consumer, as the predicate and the incoming URI.
+     * <p>
+     * Implementations may hand the links to the consumer as they are read, without holding them all in memory. The
+     * consumer is invoked on the calling thread, so it may use this client, for example to read each linking entity;
+     * an exception it throws stops the iteration and is thrown to the caller. The default implementation retrieves
+     * the links with {@link #getIncoming(URI)}, and recognizes the type of an entity by its container in the path of
+     * its URI, as {@link PassEntityType#isTypeOf(URI)} does.
+     * </p>
+     *
+     * @param passEntity the URI of a repository resource
+     * @param predicates predicates of the links handed to the consumer, or {@code null} for all
+     * @param types      types of the entities whose links are handed to the consumer, or {@code null} for all
+     * @param consumer   accepts the predicate and incoming URI of each link
+     * @return the number of links handed to the consumer
+     */
+    public default int forEachIncoming(URI passEntity, Collection<String> predicates,
+                                       Collection<PassEntityType> types, BiConsumer<String, URI> consumer) {
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer cannot be null");
+        }
+        int count = 0;
+        for (Map.Entry<String, Collection<URI>> entry : getIncoming(passEntity).entrySet()) {
+            if (predicates != null && !predicates.contains(entry.getKey())) {
+                continue;
+            }
+            for (URI link : entry.getValue()) {
+                if (types == null || types.stream().anyMatch(type -> type.isTypeOf(link))) {
+                    consumer.accept(entry.getKey(), link);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Load an entity, and the related entities named by an {@link IncludeSpec}, into an {@link EntityGraph} in which
+     * the references between them can be resolved.
+     * <p>
+     * The references are followed breadth-first, a level at a time, and each entity is read once however many
+     * times it is referenced. Implementations may make the reads and incoming reference lookups of each level
+     * concurrently, so that a graph takes one wave of requests per level rather than one request per entity. The
+     * default implementation makes them one at a time.
+     * </p>
+     *
+     * @param uri        URI of the entity
+     * @param modelClass class of the entity
+     * @param include    related entities to load
+     * @param <T>        PASS entity type
+     * @return the graph
+     * @throws IllegalArgumentException if the spec names a field that is not a reference field of its type
+     */
+    public default <T extends PassEntity> EntityGraph<T> loadGraph(URI uri, Class<T> modelClass,
+                                                                   IncludeSpec include) {
+        return GraphLoader.join(new GraphLoader(new GraphLoader.Source() {
+            @Override
+            public <E extends PassEntity> CompletableFuture<E> read(URI entity, Class<E> entityClass) {
+                try {
+                    return CompletableFuture.completedFuture(readResource(entity, entityClass));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+
+            @Override
+            public CompletableFuture<Collection<URI>> incoming(URI entity, PassEntityType type, String field) {
+                try {
+                    return CompletableFuture.completedFuture(
+                        getIncoming(entity, Collections.singleton(field), Collections.singleton(type)).get(field));
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        }).load(uri, modelClass, include));
+    }
+
     /**
      * {@code POST}s the {@code content} to {@code entityUri}.
      * <p>
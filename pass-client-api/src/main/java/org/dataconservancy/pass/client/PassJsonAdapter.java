@@ -15,7 +15,9 @@
  */
 package org.dataconservancy.pass.client;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.dataconservancy.pass.model.PassEntity;
 
@@ -35,6 +37,22 @@ public interface PassJsonAdapter {
      */
     public byte[] toJson(PassEntity modelObject, boolean includeContext);
 
+    /**
+     * Write the JSON of a PASS model object to a stream, as {@link #toJson(PassEntity, boolean)} would return it. The
+     * stream is not closed.
+     *
+     * @param modelObject    The PASS entity.
+     * @param includeContext true if the JSON-LD context should be included in the JSON
+     * @param out            stream to which the JSON is written
+     */
+    public default void toJson(PassEntity modelObject, boolean includeContext, OutputStream out) {
+        try {
+            out.write(toJson(modelObject, includeContext));
+        } catch (IOException e) {
+            throw new RuntimeException("Could not write JSON", e);
+        }
+    }
+
     /**
      * Pass in the JSON data as a byte array and the model class to match it to e.g. Deposit.class, returns populated
      * model
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.model.PassEntity;
+
+/**
+ * Outcome of reading one resource as part of a batch: either the resource, or the exception that prevented it from
+ * being read.
+ *
+ * @param <T> PASS entity type
+ * @author Johns Hopkins University
+ * @see PassClient#readResources(java.util.Collection, Class)
+ */
+public final class ReadResult<T extends PassEntity> {
+
+    private final URI uri;
+
+    private final T resource;
+
+    private final RuntimeException failure;
+
+    private ReadResult(URI uri, T resource, RuntimeException failure) {
+        this.uri = uri;
+        this.resource = resource;
+        this.failure = failure;
+    }
+
+    /**
+     * @param uri      URI that was read
+     * @param resource the resource read
+     * @param <T>      PASS entity type
+     * @return a successful result
+     */
+    public static <T extends PassEntity> ReadResult<T> success(URI uri, T resource) {
+        return new ReadResult<>(uri, resource, null);
+    }
+
+    /**
+     * @param uri     URI that could not be read
+     * @param failure the reason it could not be read
+     * @param <T>     PASS entity type
+     * @return a failed result
+     */
+    public static <T extends PassEntity> ReadResult<T> failure(URI uri, RuntimeException failure) {
+        if (failure == null) {
+            throw new IllegalArgumentException("failure cannot be null");
+        }
+        return new ReadResult<>(uri, null, failure);
+    }
+
+    /**
+     * @return URI that was read
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * @return true if the resource was read
+     */
+    public boolean isSuccess() {
+        return failure == null;
+    }
+
+    /**
+     * @return the resource, or {@code null} if it could not be read
+     */
+    public T getResource() {
+        return resource;
+    }
+
+    /**
+     * @return the reason the resource could not be read, or {@code null} if it was read
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the resource
+     * @throws RuntimeException the reason the resource could not be read, if it was not
+     */
+    public T getOrThrow() {
+        if (failure != null) {
+            throw failure;
+        }
+        return resource;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadResult{uri=" + uri + (failure == null ? "" : ", failure=" + failure) + "}";
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchConfig;
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
+import org.dataconservancy.pass.model.Grant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall-clock time to look up a batch of Grants by award number against a local stub index that adds a fixed latency
+ * to every response. {@code findOneAtATime} calls
+ * {@link ElasticsearchPassClient#findByAttribute(Class, String, Object)} for each value in turn, as callers did
+ * before batch lookups; {@code findByAttributeBatch} uses
+ * {@link ElasticsearchPassClient#findByAttributeBatch(Class, String, java.util.Collection)}, which sends the lookups
+ * in multi-search requests of {@code pass.elasticsearch.batch.size} lookups each.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchLookupBenchmark {
+
+    static final String SEARCH_RESPONSE = "{\"took\":1,\"timed_out\":false," +
+            "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+            "\"hits\":{\"total\":1,\"max_score\":1.0,\"hits\":[{\"_index\":\"pass\",\"_type\":\"_doc\"," +
+            "\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"@id\":\"http://localhost:8080/fcrepo/rest/grants/1\"}}]}";
+
+    /**
+     * Number of values looked up per operation
+     */
+    @Param({"1", "10", "100", "500"})
+    public int values;
+
+    /**
+     * Number of lookups per multi-search request
+     */
+    @Param({"100"})
+    public int batchSize;
+
+    /**
+     * Latency, in milliseconds, the stub adds to each response
+     */
+    @Param({"5"})
+    public int latency;
+
+    private StubServer index;
+
+    private ElasticsearchPassClient client;
+
+    private List<String> awardNumbers;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final byte[] search = (SEARCH_RESPONSE + "}").getBytes(StandardCharsets.UTF_8);
+        index = new StubServer(exchange -> {
+            byte[] body = search;
+            if (exchange.getRequestURI().getPath().endsWith("/_msearch")) {
+                String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                // Every other line of a multi-search request is a search body
+                int searches = request.split("\n").length / 2;
+                String item = SEARCH_RESPONSE + ",\"status\":200}";
+                body = ("{\"took\":1,\"responses\":[" + String.join(",", Collections.nCopies(searches, item)) +
+                        "]}").getBytes(StandardCharsets.UTF_8);
+            }
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StubServer.respond(exchange, 200, "application/json", body);
+        });
+        System.setProperty("pass.elasticsearch.url", index.getBaseUrl() + "pass/");
+        System.setProperty("pass.elasticsearch.batch.size", Integer.toString(batchSize));
+        client = new ElasticsearchPassClient(ElasticsearchConfig.refresh());
+
+        awardNumbers = new ArrayList<>();
+        for (int i = 0; i < values; i++) {
+            awardNumbers.add("award-" + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        index.close();
+        System.clearProperty("pass.elasticsearch.url");
+        System.clearProperty("pass.elasticsearch.batch.size");
+        ElasticsearchConfig.refresh();
+    }
+
+    @Benchmark
+    public Map<String, URI> findOneAtATime() {
+        Map<String, URI> uris = new LinkedHashMap<>();
+        for (String awardNumber : awardNumbers) {
+            uris.put(awardNumber, client.findByAttribute(Grant.class, "awardNumber", awardNumber));
+        }
+        return uris;
+    }
+
+    @Benchmark
+    public Map<String, URI> findByAttributeBatch() {
+        return client.findByAttributeBatch(Grant.class, "awardNumber", awardNumbers);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.client.ReadResult;
+import org.dataconservancy.pass.client.fedora.FedoraPassCrudClient;
+import org.dataconservancy.pass.model.Grant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall-clock time to read a batch of resources from a local stub Fedora that adds a fixed latency to every
+ * response. {@code readOneAtATime} reads each URI in turn, as callers did before batch reads;
+ * {@code readResources} reads them with {@link FedoraPassCrudClient#readResources(java.util.Collection, Class)}.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchReadBenchmark {
+
+    static final String GRANT = "{\"@id\":\"%s\",\"@type\":\"Grant\",\"awardNumber\":\"abc123\"," +
+            "\"@context\":\"https://oa-pass.github.io/pass-data-model/src/main/resources/context-3.5.jsonld\"}";
+
+    /**
+     * Number of resources read per operation
+     */
+    @Param({"1", "10", "40", "100"})
+    public int batchSize;
+
+    /**
+     * Latency, in milliseconds, the stub adds to each response
+     */
+    @Param({"5"})
+    public int latency;
+
+    private StubServer fedora;
+
+    private FedoraPassCrudClient client;
+
+    private List<URI> uris;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fedora = new StubServer(exchange -> {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String id = "http://localhost" + exchange.getRequestURI().getPath();
+            StubServer.respond(exchange, 200, "application/ld+json",
+                               String.format(GRANT, id).getBytes(StandardCharsets.UTF_8));
+        });
+
+        client = new FedoraPassCrudClient();
+        uris = new ArrayList<>();
+        for (int i = 0; i < batchSize; i++) {
+            uris.add(URI.create(fedora.getBaseUrl() + "grants/" + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fedora.close();
+    }
+
+    @Benchmark
+    public List<Grant> readOneAtATime() {
+        List<Grant> grants = new ArrayList<>(uris.size());
+        for (URI uri : uris) {
+            grants.add(client.readResource(uri, Grant.class));
+        }
+        return grants;
+    }
+
+    @Benchmark
+    public List<ReadResult<Grant>> readResources() {
+        return client.readResources(uris, Grant.class);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.dataconservancy.pass.client.fedora.ContainmentScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to extract the children of a container from an in-memory N-Triples containment listing, of the form Fedora
+ * returns for a large container such as {@code /submissions}. {@code regex} decodes each line and matches it against
+ * the pattern {@code FcrepoLister} used before it was replaced; {@code scanner} uses {@link ContainmentScanner}. Both
+ * hand each child URI to a {@link Blackhole}, rather than collecting them. Run with {@code -prof gc} to compare the
+ * allocation per listing.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+@State(Scope.Benchmark)
+public class ContainmentListingBenchmark {
+
+    static final Pattern CHILD_PATTERN = Pattern.compile(
+        ".+?\\s+<http://www.w3.org/ns/ldp#contains>\\s+<(.+?)>.+?");
+
+    static final String CONTAINER = "http://localhost:8080/fcrepo/rest/submissions";
+
+    /**
+     * Number of children, each of which is one triple in the listing
+     */
+    @Param({"500000"})
+    public int triples;
+
+    private byte[] listing;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] prefix = ("<" + CONTAINER + "> <http://www.w3.org/ns/ldp#contains> <" + CONTAINER + "/")
+            .getBytes(UTF_8);
+        UUID seed = new UUID(0x0123456789abcdefL, 0xfedcba9876543210L);
+        for (int i = 0; i < triples; i++) {
+            // Fedora mints pair-tree paths from UUIDs, e.g. /submissions/01/23/45/67/0123...
+            String id = new UUID(seed.getMostSignificantBits() + i, seed.getLeastSignificantBits() * i).toString();
+            String path = id.substring(0, 2) + "/" + id.substring(2, 4) + "/" + id.substring(4, 6) + "/" +
+                          id.substring(6, 8) + "/" + id;
+            out.writeBytes(prefix);
+            out.writeBytes((path + "> .\n").getBytes(UTF_8));
+        }
+        listing = out.toByteArray();
+        System.out.printf("%n%d triples, %d bytes%n", triples, listing.length);
+    }
+
+    @Benchmark
+    public int regex(Blackhole blackhole) throws Exception {
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(listing), UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                Matcher matcher = CHILD_PATTERN.matcher(line);
+                if (matcher.matches()) {
+                    blackhole.consume(URI.create(matcher.group(1)));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int scanner(Blackhole blackhole) throws Exception {
+        return ContainmentScanner.scan(new ByteArrayInputStream(listing), blackhole::consume);
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.dataconservancy.pass.client.fedora.FedoraConfig;
+import org.dataconservancy.pass.client.fedora.RepositoryCrawler;
+import org.dataconservancy.pass.client.fedora.RepositoryCrawler.State;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time for the ignore and skip predicates of a {@code processAllEntities} crawl to classify a synthetic corpus of the
+ * URIs such a crawl visits: the base URL, the containers of each type of entity, their entities, and ACLs of both.
+ * {@code regex} uses the predicates {@link RepositoryCrawler} used before they were replaced, which match regular
+ * expressions, compiling one per URI for the containers; {@code scan} uses
+ * {@link RepositoryCrawler.Ignore#containers(String)} and {@link RepositoryCrawler.Skip#SKIP_ACLS}. Run with
+ * {@code -prof gc} to compare the allocation per URI.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class CrawlPredicateBenchmark {
+
+    static final Pattern ACL_PATTERN = Pattern.compile(".+/\\.*acls*(?=/|$).*");
+
+    /**
+     * Number of URIs classified per invocation
+     */
+    @Param({"10000"})
+    public int uris;
+
+    /**
+     * Predicates used, {@code regex} or {@code scan}
+     */
+    @Param({"regex", "scan"})
+    public String predicates;
+
+    private State[] states;
+
+    private Predicate<State> ignore;
+
+    private Predicate<State> skip;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String base = FedoraConfig.snapshot().getBaseUrl();
+        PassEntityType[] types = PassEntityType.values();
+        Random random = new Random(0);
+        states = new State[uris];
+        URI root = URI.create(base);
+        for (int i = 0; i < uris; i++) {
+            URI container = URI.create(base + types[random.nextInt(types.length)].getPlural());
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            String entity = container + "/" + id.toString().substring(0, 2) + "/" + id.toString().substring(2, 4) +
+                            "/" + id;
+            switch (i % 16) {
+                case 0:
+                    states[i] = new State(0, null, root);
+                    break;
+                case 1:
+                    states[i] = new State(1, root, container);
+                    break;
+                case 2:
+                    states[i] = new State(1, root, URI.create(base + "acls"));
+                    break;
+                case 3:
+                    states[i] = new State(2, container, URI.create(entity + "/.acl"));
+                    break;
+                default:
+                    states[i] = new State(2, container, URI.create(entity));
+            }
+        }
+
+        if ("regex".equals(predicates)) {
+            ignore = s -> s.id.toString().matches(endWithSlash(FedoraConfig.snapshot().getBaseUrl()) +
+                                                   "\\.{0,1}[a-zA-Z]+/*$") ||
+                          endWithSlash(s.id.toString()).equals(endWithSlash(FedoraConfig.snapshot().getBaseUrl()));
+            skip = s -> ACL_PATTERN.matcher(s.id.toString()).matches();
+        } else {
+            ignore = RepositoryCrawler.Ignore.containers(base);
+            skip = RepositoryCrawler.Skip.SKIP_ACLS;
+        }
+    }
+
+    @Benchmark
+    public int classify() {
+        int visited = 0;
+        for (State state : states) {
+            if (!ignore.test(state) && !skip.test(state)) {
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    private static String endWithSlash(String uri) {
+        return uri.endsWith("/") ? uri : uri + "/";
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.Ignore.IGNORE_ROOT;
+import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.Skip.depth;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.dataconservancy.pass.client.fedora.RepositoryCrawler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Wall-clock time to crawl a two-level tree from a local stub Fedora that adds a fixed latency to every containment
+ * listing, and a visitor that spends a fixed time on each resource, as one that read it would. The root holds
+ * {@code containers} containers of {@code children} resources each. {@code parallelism=1} is the serial, depth-first
+ * crawl; greater values crawl in parallel, {@code ordered} or not.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrawlerBenchmark {
+
+    static final String CONTAINS = "<%s> <http://www.w3.org/ns/ldp#contains> <%s> .\n";
+
+    /**
+     * Number of threads crawling
+     */
+    @Param({"1", "8"})
+    public int parallelism;
+
+    /**
+     * Whether a parallel crawl visits resources in serial order
+     */
+    @Param({"false", "true"})
+    public boolean ordered;
+
+    /**
+     * Number of containers under the root
+     */
+    @Param({"20"})
+    public int containers;
+
+    /**
+     * Number of resources in each container
+     */
+    @Param({"50"})
+    public int children;
+
+    /**
+     * Latency, in milliseconds, the stub adds to each listing
+     */
+    @Param({"5"})
+    public int latency;
+
+    /**
+     * Microseconds the visitor spends on each resource
+     */
+    @Param({"200"})
+    public int work;
+
+    private StubServer fedora;
+
+    private RepositoryCrawler crawler;
+
+    private URI root;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fedora = new StubServer(exchange -> {
+            try {
+                Thread.sleep(latency);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            String resource = fedora.getBaseUrl() + exchange.getRequestURI().getPath().substring(1);
+            StringBuilder listing = new StringBuilder();
+            if (resource.endsWith("/root")) {
+                for (int i = 0; i < containers; i++) {
+                    listing.append(String.format(CONTAINS, resource, resource + "/c" + i));
+                }
+            } else if (resource.matches(".*/c\\d+")) {
+                for (int i = 0; i < children; i++) {
+                    listing.append(String.format(CONTAINS, resource, resource + "/r" + i));
+                }
+            }
+            StubServer.respond(exchange, 200, "application/n-triples",
+                               listing.toString().getBytes(StandardCharsets.UTF_8));
+        });
+        root = URI.create(fedora.getBaseUrl() + "root");
+        crawler = new RepositoryCrawler().parallelism(parallelism).ordered(ordered);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        fedora.close();
+    }
+
+    @Benchmark
+    public int crawl() {
+        LongAdder spent = new LongAdder();
+        return crawler.visit(root, uri -> {
+            long until = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(work);
+            while (System.nanoTime() < until) {
+                spent.increment();
+            }
+        }, IGNORE_ROOT, depth(2));
+    }
+}
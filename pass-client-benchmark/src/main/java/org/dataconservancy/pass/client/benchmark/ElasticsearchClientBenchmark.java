@@ -0,0 +1,91 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchConfig;
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
+import org.dataconservancy.pass.model.Grant;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-query latency of {@link ElasticsearchPassClient#findByAttribute(Class, String, Object)} against a
+ * local stub index. {@code pooledClient} reuses one client and its connection pool for every query;
+ * {@code clientPerQuery} builds and closes a client around each query, which is what every search did
+ * before the client was pooled.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ElasticsearchClientBenchmark {
+
+    static final String SEARCH_RESPONSE = "{\"took\":1,\"timed_out\":false," +
+            "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+            "\"hits\":{\"total\":1,\"max_score\":1.0,\"hits\":[{\"_index\":\"pass\",\"_type\":\"_doc\"," +
+            "\"_id\":\"1\",\"_score\":1.0,\"_source\":{\"@id\":\"http://localhost:8080/fcrepo/rest/grants/1\"," +
+            "\"@type\":\"Grant\",\"awardNumber\":\"abc123\"}}]}}";
+
+    private StubServer index;
+
+    private ElasticsearchPassClient pooled;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        final byte[] body = SEARCH_RESPONSE.getBytes(StandardCharsets.UTF_8);
+        index = new StubServer(exchange -> StubServer.respond(exchange, 200, "application/json", body));
+        System.setProperty("pass.elasticsearch.url", index.getBaseUrl() + "pass/");
+        pooled = new ElasticsearchPassClient(ElasticsearchConfig.refresh());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pooled.close();
+        index.close();
+        System.clearProperty("pass.elasticsearch.url");
+        ElasticsearchConfig.refresh();
+    }
+
+    @Benchmark
+    public URI pooledClient() {
+        return pooled.findByAttribute(Grant.class, "awardNumber", "abc123");
+    }
+
+    @Benchmark
+    public URI clientPerQuery() {
+        try (ElasticsearchPassClient client = new ElasticsearchPassClient()) {
+            return client.findByAttribute(Grant.class, "awardNumber", "abc123");
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.client.fedora.EntityCache;
+import org.dataconservancy.pass.client.fedora.FedoraPassCrudClient;
+import org.dataconservancy.pass.model.Submission;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@link FedoraPassCrudClient#readResource(URI, Class)} of an unchanged Submission from a local stub
+ * Fedora, which answers {@code If-None-Match} requests for the current ETag with {@code 304 Not Modified}. With
+ * {@code cache=none}, every read downloads and deserializes the Submission; with {@code cache=revalidate}, every read
+ * is revalidated, and answered from the {@link EntityCache}; with {@code cache=ttl}, reads are answered from the cache
+ * without a request.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityCacheBenchmark {
+
+    static final String ETAG = "W/\"5c3e1a2b\"";
+
+    /**
+     * Whether and how reads are cached
+     */
+    @Param({"none", "revalidate", "ttl"})
+    public String cache;
+
+    private StubServer fedora;
+
+    private FedoraPassCrudClient client;
+
+    private URI uri;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fedora = new StubServer(exchange -> {
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                StubServer.respond(exchange, 304, null, new byte[0]);
+                return;
+            }
+            String id = "http://localhost" + exchange.getRequestURI().getPath();
+            byte[] body = String.format(SearchProjectionBenchmark.FULL_SOURCE, id, "A study of things")
+                                .getBytes(StandardCharsets.UTF_8);
+            StubServer.respond(exchange, 200, "application/ld+json", body);
+        });
+        uri = URI.create(fedora.getBaseUrl() + "submissions/1");
+
+        client = new FedoraPassCrudClient();
+        if ("revalidate".equals(cache)) {
+            client.cache(new EntityCache(100, 0));
+        } else if ("ttl".equals(cache)) {
+            client.cache(new EntityCache(100, 60000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (client.getCache() != null) {
+            System.out.printf("%n%s%n", client.getCache());
+        }
+        fedora.close();
+    }
+
+    @Benchmark
+    public Submission readResource() {
+        return client.readResource(uri, Submission.class);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to resolve the {@link PassEntityType} of each class of PASS entity, as every search and create does.
+ * {@code scan} compares the simple name of the class with each type in turn, as {@code getTypeByName} did before it
+ * used a map; {@code byName} looks up the simple name with {@link PassEntityType#getTypeByName(String)}; and
+ * {@code byClass} looks up the class itself with {@link PassEntityType#getTypeByClass(Class)}.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EntityTypeLookupBenchmark {
+
+    private Class<? extends PassEntity>[] classes;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        PassEntityType[] types = PassEntityType.values();
+        classes = new Class[types.length];
+        for (int i = 0; i < types.length; i++) {
+            classes[i] = (Class<? extends PassEntity>) Class.forName("org.dataconservancy.pass.model." +
+                                                                     types[i].getName());
+        }
+    }
+
+    @Benchmark
+    public void scan(Blackhole blackhole) {
+        for (Class<? extends PassEntity> modelClass : classes) {
+            String name = modelClass.getSimpleName();
+            for (PassEntityType type : PassEntityType.values()) {
+                if (name.equals(type.getName())) {
+                    blackhole.consume(type);
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public void byName(Blackhole blackhole) {
+        for (Class<? extends PassEntity> modelClass : classes) {
+            blackhole.consume(PassEntityType.getTypeByName(modelClass.getSimpleName()));
+        }
+    }
+
+    @Benchmark
+    public void byClass(Blackhole blackhole) {
+        for (Class<? extends PassEntity> modelClass : classes) {
+            blackhole.consume(PassEntityType.getTypeByClass(modelClass));
+        }
+    }
+}
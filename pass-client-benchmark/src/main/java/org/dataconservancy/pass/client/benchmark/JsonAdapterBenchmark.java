@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of converting each type of PASS entity to JSON and back, using the sample entities of
+ * {@code pass-test-data}. With {@code mapper=perCall}, each conversion builds a new {@link ObjectMapper}, as
+ * {@link PassJsonAdapterBasic} did before it shared one, and writes indented JSON through a tree; with
+ * {@code mapper=shared}, conversions use {@link PassJsonAdapterBasic}, which writes compact JSON directly. Run with
+ * {@code -prof gc} to compare the allocation per conversion.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonAdapterBenchmark {
+
+    /**
+     * Name of the {@link PassEntityType} converted
+     */
+    @Param({"Contributor", "Deposit", "File", "Funder", "Grant", "Journal", "Policy", "Publication", "Publisher",
+            "Repository", "RepositoryCopy", "Submission", "SubmissionEvent", "User"})
+    public String type;
+
+    /**
+     * Whether conversions build an ObjectMapper each, or share one
+     */
+    @Param({"perCall", "shared"})
+    public String mapper;
+
+    private final PassJsonAdapterBasic adapter = new PassJsonAdapterBasic();
+
+    private Class<? extends PassEntity> modelClass;
+
+    private PassEntity entity;
+
+    private byte[] json;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        PassEntityType entityType = PassEntityType.getTypeByName(type);
+        modelClass = (Class<? extends PassEntity>) Class.forName("org.dataconservancy.pass.model." +
+                                                                 entityType.getName());
+        try (InputStream in = JsonAdapterBenchmark.class.getResourceAsStream(
+            "/" + entityType.getName().toLowerCase() + ".json")) {
+            json = in.readAllBytes();
+        }
+        entity = adapter.toModel(json, modelClass);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        if ("perCall".equals(mapper)) {
+            entity.setContext(null);
+            ObjectMapper objectMapper = new ObjectMapper();
+            ObjectNode jsonObj = (ObjectNode) objectMapper.valueToTree(entity);
+            if (jsonObj.get("@id") == null) {
+                jsonObj.set("@id", new TextNode(""));
+            }
+            return objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(jsonObj);
+        }
+        return adapter.toJson(entity, false);
+    }
+
+    @Benchmark
+    public PassEntity deserialize() throws IOException {
+        if ("perCall".equals(mapper)) {
+            ObjectMapper objectMapper = new ObjectMapper();
+            ObjectNode parsed = (ObjectNode) objectMapper.readTree(json);
+            parsed.remove("@context");
+            return objectMapper.treeToValue(parsed, modelClass);
+        }
+        return adapter.toModel(json, modelClass);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.benchmark;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchConfig;
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
+import org.dataconservancy.pass.model.Submission;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.LoggingDeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.search.SearchHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of fetching only {@code @id} rather than the whole {@code _source} of each hit when searching for URIs.
+ * With {@code source=full}, the stub index returns whole Submission documents, each carrying a metadata blob, as it
+ * did before searches asked for {@code @id} only; with {@code source=id} it returns only {@code @id}, as it does now.
+ * {@code search} times {@link ElasticsearchPassClient#findAllByAttributes(Class, java.util.Map, int, int)} against
+ * the stub; {@code parse} times parsing the same response and extracting the URIs, without the HTTP round trip. The
+ * size of the response per hit is printed at the start of each trial.
+ *
+ * @author Johns Hopkins University
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchProjectionBenchmark {
+
+    static final String SEARCH_RESPONSE = "{\"took\":1,\"timed_out\":false," +
+            "\"_shards\":{\"total\":1,\"successful\":1,\"skipped\":0,\"failed\":0}," +
+            "\"hits\":{\"total\":%d,\"max_score\":1.0,\"hits\":[%s]}}";
+
+    static final String HIT = "{\"_index\":\"pass\",\"_type\":\"_doc\",\"_id\":\"%1$s\",\"_score\":1.0," +
+            "\"_source\":%2$s}";
+
+    static final String ID_SOURCE = "{\"@id\":\"%s\"}";
+
+    static final String FULL_SOURCE = "{\"@id\":\"%s\",\"@type\":\"Submission\",\"aggregatedDepositStatus\":" +
+            "\"not-started\",\"source\":\"pass\",\"submitted\":false,\"submissionStatus\":\"draft\"," +
+            "\"publication\":\"http://localhost:8080/fcrepo/rest/publications/1\"," +
+            "\"submitter\":\"http://localhost:8080/fcrepo/rest/users/1\"," +
+            "\"repositories\":[\"http://localhost:8080/fcrepo/rest/repositories/1\"]," +
+            "\"grants\":[\"http://localhost:8080/fcrepo/rest/grants/1\"," +
+            "\"http://localhost:8080/fcrepo/rest/grants/2\"],\"metadata\":\"%s\"}";
+
+    /**
+     * Number of hits per search
+     */
+    @Param({"20", "200"})
+    public int hits;
+
+    /**
+     * Whether the index returns the whole source of each hit, or only its {@code @id}
+     */
+    @Param({"full", "id"})
+    public String source;
+
+    private StubServer index;
+
+    private ElasticsearchPassClient client;
+
+    private byte[] response;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        String metadata = metadataBlob();
+        List<String> hitList = new ArrayList<>();
+        for (int i = 0; i < hits; i++) {
+            String id = "http://localhost:8080/fcrepo/rest/submissions/" + i;
+            String hitSource = "full".equals(source) ? String.format(FULL_SOURCE, id, metadata)
+                    : String.format(ID_SOURCE, id);
+            hitList.add(String.format(HIT, id, hitSource));
+        }
+        response = String.format(SEARCH_RESPONSE, hits, String.join(",", hitList))
+                .getBytes(StandardCharsets.UTF_8);
+        System.out.printf("%n%d response bytes per hit (%s source)%n", response.length / hits, source);
+
+        index = new StubServer(exchange -> StubServer.respond(exchange, 200, "application/json", response));
+        System.setProperty("pass.elasticsearch.url", index.getBaseUrl() + "pass/");
+        client = new ElasticsearchPassClient(ElasticsearchConfig.refresh());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        index.close();
+        System.clearProperty("pass.elasticsearch.url");
+        ElasticsearchConfig.refresh();
+    }
+
+    @Benchmark
+    public Set<URI> search() {
+        return client.findAllByAttributes(Submission.class, Collections.singletonMap("source", "pass"), hits, 0);
+    }
+
+    @Benchmark
+    public List<URI> parse() throws Exception {
+        try (XContentParser parser = XContentType.JSON.xContent().createParser(NamedXContentRegistry.EMPTY,
+                LoggingDeprecationHandler.INSTANCE, response)) {
+            List<URI> uris = new ArrayList<>(hits);
+            for (SearchHit hit : SearchResponse.fromXContent(parser).getHits()) {
+                uris.add(new URI(hit.getSourceAsMap().get("@id").toString()));
+            }
+            return uris;
+        }
+    }
+
+    /**
+     * A metadata blob of the size carried by a typical Submission, as escaped JSON
+     */
+    private static String metadataBlob() {
+        StringBuilder metadata = new StringBuilder("{\\\"title\\\":\\\"A study of things\\\",\\\"authors\\\":[");
+        for (int i = 0; i < 40; i++) {
+            if (i > 0) {
+                metadata.append(',');
+            }
+            metadata.append("{\\\"author\\\":\\\"Author Number ").append(i)
+                    .append("\\\",\\\"orcid\\\":\\\"https://orcid.org/0000-0000-0000-").append(1000 + i)
+                    .append("\\\"}");
+        }
+        metadata.append("],\\\"abstract\\\":\\\"");
+        for (int i = 0; i < 20; i++) {
+            metadata.append("Lorem ipsum dolor sit amet, consectetur adipiscing elit. ");
+        }
+        return metadata.append("\\\"}").toString();
+    }
+}
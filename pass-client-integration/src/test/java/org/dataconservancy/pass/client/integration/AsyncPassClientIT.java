@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.integration;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.unitils.reflectionassert.ReflectionAssert.assertReflectionEquals;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.dataconservancy.pass.client.AsyncPassClient;
+import org.dataconservancy.pass.client.PassClientFactory;
+import org.dataconservancy.pass.client.fedora.UpdateConflictException;
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.PassEntity;
+import org.junit.Test;
+import org.unitils.reflectionassert.ReflectionComparatorMode;
+
+/**
+ * Exercises the {@link AsyncPassClient} with many requests in flight at once.
+ *
+ * @author Johns Hopkins University
+ */
+public class AsyncPassClientIT extends ClientITBase {
+
+    private final AsyncPassClient asyncClient = PassClientFactory.getAsyncPassClient();
+
+    /* Create and read back one of each PASS type, all concurrently */
+    @Test
+    public void concurrentRoundTripTest() {
+        List<PassEntity> asDeposited = PASS_TYPES.stream().map(cls -> random(cls, 2)).collect(toList());
+
+        List<CompletableFuture<? extends PassEntity>> retrieved = asDeposited.stream()
+            .map(entity -> asyncClient.createResource(entity)
+                .thenCompose(uri -> asyncClient.readResource(uri, entity.getClass())))
+            .collect(toList());
+
+        for (int i = 0; i < asDeposited.size(); i++) {
+            PassEntity entity = retrieved.get(i).join();
+            createdUris.put(entity.getId(), entity.getClass());
+            assertReflectionEquals(normalized(asDeposited.get(i)), normalized(entity),
+                                   ReflectionComparatorMode.LENIENT_ORDER);
+        }
+    }
+
+    /* A created resource can be found through the index */
+    @Test
+    public void createAndFindTest() {
+        Grant grant = random(Grant.class, 1);
+        URI uri = asyncClient.createResource(grant).join();
+        createdUris.put(uri, Grant.class);
+
+        attempt(RETRIES, () -> {
+            assertEquals(uri, asyncClient.findByAttribute(Grant.class, "awardNumber", grant.getAwardNumber())
+                                         .join());
+            return null;
+        });
+    }
+
+    /* Conflicting updates fail the future with an UpdateConflictException */
+    @Test
+    public void updateConflictTest() {
+        Grant grant = asyncClient.createAndReadResource(random(Grant.class, 1), Grant.class).join();
+        createdUris.put(grant.getId(), Grant.class);
+
+        grant.setAwardNumber("changed");
+        asyncClient.updateResource(grant).join();
+
+        grant.setAwardNumber("changed again");
+        try {
+            asyncClient.updateResource(grant).join();
+            fail("Expected an UpdateConflictException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof UpdateConflictException);
+        }
+    }
+}
@@ -48,6 +48,7 @@ import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.dataconservancy.pass.client.PassClient;
 import org.dataconservancy.pass.client.PassClientFactory;
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchConfig;
 import org.dataconservancy.pass.client.fedora.FedoraConfig;
 import org.dataconservancy.pass.model.Contributor;
 import org.dataconservancy.pass.model.PassEntity;
@@ -80,6 +81,8 @@ public abstract class ClientITBase {
         if (System.getProperty("pass.elasticsearch.url") == null) {
             System.setProperty("pass.elasticsearch.url", "http://localhost:9200/pass/");
         }
+        FedoraConfig.refresh();
+        ElasticsearchConfig.refresh();
     }
 
     /**
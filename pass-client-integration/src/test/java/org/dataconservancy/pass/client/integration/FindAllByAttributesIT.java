@@ -17,17 +17,24 @@ package org.dataconservancy.pass.client.integration;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchConfig;
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
+import org.dataconservancy.pass.client.elasticsearch.SearchQuery;
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.Deposit.DepositStatus;
 import org.dataconservancy.pass.model.Grant;
@@ -191,6 +198,114 @@ public class FindAllByAttributesIT extends ClientITBase {
 
     }
 
+    /**
+     * Ensures a structured query matches values from a list, excludes values, and handles values with characters
+     * reserved by the query string syntax
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFindAllByQuery() throws Exception {
+        URI repoUri = new URI("fake:repo:query");
+        List<URI> created = new ArrayList<URI>();
+        DepositStatus[] statuses = {DepositStatus.ACCEPTED, DepositStatus.REJECTED, DepositStatus.SUBMITTED};
+        for (DepositStatus status : statuses) {
+            Deposit deposit = random(Deposit.class, 2);
+            deposit.setDepositStatus(status);
+            deposit.setRepository(repoUri);
+            deposit.setDepositStatusRef("status \"ref\" (" + status + ") + OR: *");
+            URI uri = client.createResource(deposit);
+            createdUris.put(uri, Deposit.class);
+            created.add(uri);
+        }
+
+        attempt(RETRIES, () -> { //make sure all are in the index
+            assertEquals(3, client.findAllByAttribute(Deposit.class, "repository", repoUri).size());
+        });
+
+        try (ElasticsearchPassClient indexClient = new ElasticsearchPassClient()) {
+            Set<URI> matches = indexClient.findAllByQuery(
+                new SearchQuery<>(Deposit.class)
+                    .equal("repository", repoUri)
+                    .in("depositStatus", Arrays.asList(DepositStatus.ACCEPTED, DepositStatus.SUBMITTED)), 10, 0);
+            assertEquals(new HashSet<URI>(Arrays.asList(created.get(0), created.get(2))), matches);
+
+            matches = indexClient.findAllByQuery(
+                new SearchQuery<>(Deposit.class)
+                    .equal("repository", repoUri)
+                    .notEqual("depositStatus", DepositStatus.ACCEPTED)
+                    .equal("depositStatusRef", "status \"ref\" (" + DepositStatus.REJECTED + ") + OR: *"), 10, 0);
+            assertEquals(Collections.singleton(created.get(1)), matches);
+        }
+    }
+
+    /**
+     * Ensures streaming returns every match, across several pages, in order of @id
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStreamAll() throws Exception {
+        URI repoUri = new URI("fake:repo:stream");
+
+        Map<String, Object> attribs = new HashMap<String, Object>();
+        attribs.put("repository", repoUri);
+
+        List<URI> created = new ArrayList<URI>();
+        for (int i = 0; i < 7; i++) {
+            Deposit deposit = random(Deposit.class, 2);
+            deposit.setRepository(repoUri);
+            URI uri = client.createResource(deposit);
+            createdUris.put(uri, Deposit.class);
+            created.add(uri);
+        }
+
+        attempt(RETRIES, () -> { //make sure all are in the index
+            assertEquals(7, client.findAllByAttributes(Deposit.class, attribs).size());
+        });
+
+        System.setProperty("pass.elasticsearch.page.size", "3");
+        try (ElasticsearchPassClient indexClient = new ElasticsearchPassClient(ElasticsearchConfig.refresh())) {
+            List<URI> streamed = indexClient.streamAllByAttributes(Deposit.class, attribs)
+                                            .collect(Collectors.toList());
+            Collections.sort(created);
+            assertEquals(created, streamed);
+        } finally {
+            System.clearProperty("pass.elasticsearch.page.size");
+            ElasticsearchConfig.refresh();
+        }
+    }
+
+    /**
+     * Ensures entities found in the index match those read from the repository, and that verifying them sets the
+     * current version tag
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFindAllEntities() throws Exception {
+        Grant grant = random(Grant.class, 1);
+        URI grantId = client.createResource(grant);
+        createdUris.put(grantId, Grant.class);
+
+        attempt(RETRIES, () -> {
+            final URI matchedUri = client.findByAttribute(Grant.class, "@id", grantId);
+            assertEquals(grantId, matchedUri);
+        });
+
+        Map<String, Object> attribs = new HashMap<String, Object>();
+        attribs.put("@id", grantId);
+
+        Grant fromRepo = client.readResource(grantId, Grant.class);
+
+        List<Grant> matches = client.findAllEntitiesByAttributes(Grant.class, attribs);
+        assertEquals(1, matches.size());
+        assertEquals(fromRepo.getAwardNumber(), matches.get(0).getAwardNumber());
+        assertEquals(fromRepo.getLocalKey(), matches.get(0).getLocalKey());
+
+        assertNull(matches.get(0).getVersionTag());
+    }
+
     /**
      * Ensures no match found returns empty Set instead of exception
      */
@@ -21,8 +21,10 @@ import static org.junit.Assert.fail;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import org.dataconservancy.pass.model.Grant;
 import org.dataconservancy.pass.model.PassEntity;
@@ -123,6 +125,33 @@ public class FindByAttributeIT extends ClientITBase {
 
     }
 
+    /**
+     * Ensures a batch lookup matches each value as findByAttribute does, mapping unmatched values to null
+     */
+    @Test
+    public void testFindByAttributeBatch() {
+        Grant grant1 = random(Grant.class, 1);
+        Grant grant2 = random(Grant.class, 1);
+        final URI grantId1 = client.createResource(grant1);
+        createdUris.put(grantId1, Grant.class);
+        final URI grantId2 = client.createResource(grant2);
+        createdUris.put(grantId2, Grant.class);
+
+        attempt(RETRIES, () -> {
+            final URI uri = client.findByAttribute(Grant.class, "@id", grantId2);
+            assertEquals(grantId2, uri);
+        });
+
+        Map<String, URI> matchedIds = client.findByAttributeBatch(Grant.class, "awardNumber",
+                                                                  Arrays.asList(grant2.getAwardNumber(), "no match",
+                                                                                grant1.getAwardNumber()));
+        assertEquals(Arrays.asList(grant2.getAwardNumber(), "no match", grant1.getAwardNumber()),
+                     new ArrayList<>(matchedIds.keySet()));
+        assertEquals(grantId2, matchedIds.get(grant2.getAwardNumber()));
+        assertEquals(null, matchedIds.get("no match"));
+        assertEquals(grantId1, matchedIds.get(grant1.getAwardNumber()));
+    }
+
     /**
      * Confirm that a search on Submission.submitter that has a `mailto:` instead of a `User.id` still matches
      * when used in a findByAttribute
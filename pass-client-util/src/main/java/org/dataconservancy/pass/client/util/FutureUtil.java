@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for blocking on the results of asynchronous client operations.
+ *
+ * @author Johns Hopkins University
+ */
+public class FutureUtil {
+
+    private FutureUtil() {
+    }
+
+    /**
+     * Wait for a future to complete and return its result.
+     * <p>
+     * Unlike {@link CompletableFuture#join()}, a failure is thrown as the blocking equivalent of the operation would
+     * have thrown it: an unchecked exception is rethrown as is, rather than wrapped in a {@link CompletionException},
+     * and a checked exception is wrapped in a {@link RuntimeException}.
+     * </p>
+     *
+     * @param future the future to wait for
+     * @param <T>    result type
+     * @return the result of the future
+     */
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Find the exception that caused a {@link CompletableFuture} to fail, stripping any {@link CompletionException}
+     * wrappers added by dependent stages.
+     *
+     * @param failure the exception a future completed with
+     * @return the underlying unchecked exception, or a {@link RuntimeException} wrapping a checked one
+     * @throws Error if the underlying cause is an {@link Error}
+     */
+    public static RuntimeException unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new RuntimeException(cause.getMessage(), cause);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class FutureUtilTest {
+
+    @Test
+    public void joinReturnsResultTest() {
+        assertEquals("result", FutureUtil.join(CompletableFuture.completedFuture("result")));
+    }
+
+    @Test
+    public void joinRethrowsUncheckedCauseTest() {
+        final IllegalStateException expected = new IllegalStateException("failed");
+        final CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(expected);
+
+        try {
+            FutureUtil.join(failed.thenApply(String::trim).thenApply(String::toUpperCase));
+            fail("Expected an exception");
+        } catch (IllegalStateException e) {
+            assertSame(expected, e);
+        }
+    }
+
+    @Test
+    public void joinWrapsCheckedCauseTest() {
+        final IOException expected = new IOException("failed");
+        final CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(expected);
+
+        try {
+            FutureUtil.join(failed);
+            fail("Expected an exception");
+        } catch (RuntimeException e) {
+            assertSame(expected, e.getCause());
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.io.Closeable;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
+import org.dataconservancy.pass.client.fedora.FedoraPassCrudClient;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+
+/**
+ * Default {@link AsyncPassClient}, which redirects to the appropriate service (Index client or CRUD client).
+ * <p>
+ * The number of requests in flight at once is bounded: requests to Fedora by {@code pass.fedora.requests.max}, and
+ * searches by the size of the Elasticsearch connection pool. Requests beyond the limit are queued until one
+ * completes.
+ * </p>
+ * <p>
+ * By default, futures are completed on the HTTP clients' I/O threads, so dependent stages should not block. Set a
+ * {@link #callbackExecutor(Executor) callback executor} to complete futures elsewhere.
+ * </p>
+ * <p>
+ * The client holds pooled connections that are reused across requests, so a single instance should be shared, and
+ * {@link #close() closed} when it is no longer needed.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public class AsyncPassClientDefault implements AsyncPassClient, Closeable {
+
+    /**
+     * Client that interacts with Fedora repo to carry out CRUD operations
+     */
+    private final FedoraPassCrudClient crudClient;
+
+    /**
+     * Client that interacts with Index repo to do lookups and searches
+     */
+    private final ElasticsearchPassClient indexClient;
+
+    /**
+     * Executor that futures are completed on, or {@code null} to complete them on the I/O thread
+     */
+    private Executor callbackExecutor;
+
+    /**
+     * Whether incoming links are found by searching the index, rather than asking Fedora
+     */
+    private boolean incomingFromIndex;
+
+    /**
+     * Create a default async pass client, with default configuration.
+     */
+    public AsyncPassClientDefault() {
+        this(new FedoraPassCrudClient(), new ElasticsearchPassClient());
+    }
+
+    /**
+     * Support passing in of the CRUD and index clients.
+     *
+     * @param crudClient  Fedora CRUD client
+     * @param indexClient Elasticsearch client
+     */
+    public AsyncPassClientDefault(FedoraPassCrudClient crudClient, ElasticsearchPassClient indexClient) {
+        if (crudClient == null) {
+            throw new IllegalArgumentException("crudClient parameter cannot be null");
+        }
+        if (indexClient == null) {
+            throw new IllegalArgumentException("indexClient parameter cannot be null");
+        }
+        this.crudClient = crudClient;
+        this.indexClient = indexClient;
+    }
+
+    /**
+     * Sets option to overwrite (PUT) when updating instead of the default PATCH.
+     *
+     * @param overwriteOnUpdate - set to true to use PUT as update type
+     * @return this client
+     */
+    public AsyncPassClientDefault overWriteOnUpdate(boolean overwriteOnUpdate) {
+        this.crudClient.overwriteOnUpdate(overwriteOnUpdate);
+        return this;
+    }
+
+    /**
+     * Sets option to find the incoming links to an entity by searching the reference fields of entities in the index,
+     * instead of the default of asking Fedora for its inbound references. The index is updated after Fedora, so
+     * references made or removed very recently may not be reflected.
+     *
+     * @param incomingFromIndex - set to true to search the index for incoming links
+     * @return this client
+     * @see ElasticsearchPassClient#getIncomingAsync(URI, Collection, Collection)
+     */
+    public AsyncPassClientDefault incomingFromIndex(boolean incomingFromIndex) {
+        this.incomingFromIndex = incomingFromIndex;
+        return this;
+    }
+
+    /**
+     * Sets the executor that returned futures are completed on, and so that dependent stages added without an
+     * explicit executor run on. If {@code null} (the default), futures are completed on the I/O thread that received
+     * the response.
+     *
+     * @param callbackExecutor executor for completing futures, may be {@code null}
+     * @return this client
+     */
+    public AsyncPassClientDefault callbackExecutor(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+        return this;
+    }
+
+    @Override
+    public CompletableFuture<URI> createResource(PassEntity modelObj) {
+        return complete(crudClient.createResourceAsync(modelObj));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<T> createAndReadResource(T modelObj, Class<T> modelClass) {
+        return complete(crudClient.createAndReadResourceAsync(modelObj, modelClass));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateResource(PassEntity modelObj) {
+        return complete(crudClient.updateResourceAsync(modelObj));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<T> updateAndReadResource(T modelObj, Class<T> modelClass) {
+        return complete(crudClient.updateAndReadResourceAsync(modelObj, modelClass));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteResource(URI uri) {
+        return complete(crudClient.deleteResourceAsync(uri));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<T> readResource(URI uri, Class<T> modelClass) {
+        return complete(crudClient.readResourceAsync(uri, modelClass));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<List<ReadResult<T>>> readResources(Collection<URI> uris,
+                                                                                       Class<T> modelClass) {
+        return complete(crudClient.readResourcesAsync(uris, modelClass));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<URI> findByAttribute(Class<T> modelClass, String attribute,
+                                                                         Object value) {
+        return complete(indexClient.findByAttributeAsync(modelClass, attribute, value));
+    }
+
+    @Override
+    public <T extends PassEntity, V> CompletableFuture<Map<V, URI>> findByAttributeBatch(Class<T> modelClass,
+                                                                                         String attribute,
+                                                                                         Collection<V> values) {
+        return complete(indexClient.findByAttributeBatchAsync(modelClass, attribute, values));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttribute(Class<T> modelClass,
+                                                                                 String attribute, Object value) {
+        return complete(indexClient.findAllByAttributeAsync(modelClass, attribute, value));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttribute(Class<T> modelClass,
+                                                                                 String attribute, Object value,
+                                                                                 int limit, int offset) {
+        return complete(indexClient.findAllByAttributeAsync(modelClass, attribute, value, limit, offset));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributes(Class<T> modelClass,
+                                                                                  Map<String, Object>
+                                                                                      attributeValuesMap) {
+        return complete(indexClient.findAllByAttributesAsync(modelClass, attributeValuesMap));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributes(Class<T> modelClass,
+                                                                                  Map<String, Object>
+                                                                                      attributeValuesMap,
+                                                                                  int limit, int offset) {
+        return complete(indexClient.findAllByAttributesAsync(modelClass, attributeValuesMap, limit, offset));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap) {
+        return complete(indexClient.findAllEntitiesByAttributesAsync(modelClass, attributeValuesMap));
+    }
+
+    @Override
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap,
+                                                                                         int limit, int offset) {
+        return complete(indexClient.findAllEntitiesByAttributesAsync(modelClass, attributeValuesMap, limit,
+                                                                     offset));
+    }
+
+    /**
+     * Only the given fields of each document are fetched from the index.
+     * <p>
+     * {@inheritDoc}
+     * </p>
+     */
+    @Override
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                                         Map<String, Object>
+                                                                                             attributeValuesMap,
+                                                                                         Collection<String> fields,
+                                                                                         int limit, int offset) {
+        return complete(indexClient.findAllEntitiesByAttributesAsync(modelClass, attributeValuesMap, fields, limit,
+                                                                     offset));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Collection<URI>>> getIncoming(URI passEntity) {
+        if (incomingFromIndex) {
+            return complete(indexClient.getIncomingAsync(passEntity, null, null));
+        }
+        return complete(crudClient.getIncomingAsync(passEntity));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Collection<URI>>> getIncoming(URI passEntity, Collection<String> predicates,
+                                                                      Collection<PassEntityType> types) {
+        if (incomingFromIndex) {
+            return complete(indexClient.getIncomingAsync(passEntity, predicates, types));
+        }
+        return complete(crudClient.getIncomingAsync(passEntity, predicates, types));
+    }
+
+    @Override
+    public CompletableFuture<URI> upload(URI entityUri, InputStream content, Map<String, ?> params) {
+        return complete(crudClient.uploadAsync(entityUri, content, params));
+    }
+
+    /**
+     * Releases the pooled connections held by this client. The client cannot be used after it has been closed.
+     */
+    @Override
+    public void close() {
+        indexClient.close();
+    }
+
+    /**
+     * Hand the outcome of a future over to the callback executor, if there is one.
+     */
+    private <T> CompletableFuture<T> complete(CompletableFuture<T> future) {
+        if (callbackExecutor == null) {
+            return future;
+        }
+        CompletableFuture<T> handedOff = new CompletableFuture<>();
+        future.whenCompleteAsync((result, e) -> {
+            if (e != null) {
+                handedOff.completeExceptionally(e);
+            } else {
+                handedOff.complete(result);
+            }
+        }, callbackExecutor);
+        return handedOff;
+    }
+}
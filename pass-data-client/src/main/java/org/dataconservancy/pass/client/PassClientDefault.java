@@ -15,42 +15,77 @@
  */
 package org.dataconservancy.pass.client;
 
+import static org.dataconservancy.pass.client.util.FutureUtil.join;
+
+import java.io.Closeable;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import org.dataconservancy.pass.client.elasticsearch.ElasticsearchPassClient;
 import org.dataconservancy.pass.client.fedora.FedoraPassCrudClient;
 import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
 
 /**
  * Creates instances of objects needed to perform PassClient requirements, and redirects to appropriate
  * service (Index client or CRUD client)
+ * <p>
+ * Each operation is made through an {@link AsyncPassClientDefault}, waiting for its result.
+ * </p>
+ * <p>
+ * The client holds pooled connections that are reused across requests, so a single instance should be shared, and
+ * {@link #close() closed} when it is no longer needed.
+ * </p>
  *
  * @author Karen Hanson
  */
-public class PassClientDefault implements PassClient {
+public class PassClientDefault implements PassClient, Closeable {
 
     /**
-     * Client that interacts with Fedora repo to carry out CRUD operations
+     * Client that interacts with Fedora repo, used to crawl the repository
      */
     private FedoraPassCrudClient crudClient;
 
     /**
-     * Client that interacts with Index repo to do lookups and searches
+     * Client that interacts with Index repo, used to stream search results
      */
     private ElasticsearchPassClient indexClient;
 
+    /**
+     * Asynchronous client that carries out all CRUD operations and searches
+     */
+    private AsyncPassClientDefault asyncClient;
+
+    /**
+     * Whether incoming links are found by searching the index, rather than asking Fedora
+     */
+    private boolean incomingFromIndex;
+
     /**
      * Create a default pass client, with default configuration.
      */
     public PassClientDefault() {
-        crudClient = new FedoraPassCrudClient();
-        indexClient = new ElasticsearchPassClient();
+        this(new FedoraPassCrudClient(), new ElasticsearchPassClient());
+    }
+
+    /**
+     * Support passing in of the CRUD and index clients.
+     *
+     * @param crudClient  Fedora CRUD client
+     * @param indexClient Elasticsearch client
+     */
+    public PassClientDefault(FedoraPassCrudClient crudClient, ElasticsearchPassClient indexClient) {
+        this.asyncClient = new AsyncPassClientDefault(crudClient, indexClient);
+        this.crudClient = crudClient;
+        this.indexClient = indexClient;
     }
 
     /**
@@ -60,7 +95,22 @@ public class PassClientDefault implements PassClient {
      * @return
      */
     public PassClientDefault overWriteOnUpdate(boolean overwriteOnUpdate) {
-        this.crudClient.overwriteOnUpdate(overwriteOnUpdate);
+        this.asyncClient.overWriteOnUpdate(overwriteOnUpdate);
+        return this;
+    }
+
+    /**
+     * Sets option to find the incoming links to an entity by searching the reference fields of entities in the index,
+     * instead of the default of asking Fedora for its inbound references. The index is updated after Fedora, so
+     * references made or removed very recently may not be reflected.
+     *
+     * @param incomingFromIndex - set to true to search the index for incoming links
+     * @return this client
+     * @see ElasticsearchPassClient#getIncomingAsync(URI, Collection, Collection)
+     */
+    public PassClientDefault incomingFromIndex(boolean incomingFromIndex) {
+        this.asyncClient.incomingFromIndex(incomingFromIndex);
+        this.incomingFromIndex = incomingFromIndex;
         return this;
     }
 
@@ -69,12 +119,12 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public URI createResource(PassEntity modelObj) {
-        return crudClient.createResource(modelObj);
+        return join(asyncClient.createResource(modelObj));
     }
 
     @Override
     public <T extends PassEntity> T createAndReadResource(T modelObj, Class<T> modelClass) {
-        return crudClient.createAndReadResource(modelObj, modelClass);
+        return join(asyncClient.createAndReadResource(modelObj, modelClass));
     }
 
     /**
@@ -82,12 +132,12 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public void updateResource(PassEntity modelObj) {
-        crudClient.updateResource(modelObj);
+        join(asyncClient.updateResource(modelObj));
     }
 
     @Override
     public <T extends PassEntity> T updateAndReadResource(T modelObj, Class<T> modelClass) {
-        return crudClient.updateAndReadResource(modelObj, modelClass);
+        return join(asyncClient.updateAndReadResource(modelObj, modelClass));
     }
 
     /**
@@ -95,7 +145,7 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public void deleteResource(URI modelObj) {
-        crudClient.deleteResource(modelObj);
+        join(asyncClient.deleteResource(modelObj));
     }
 
     /**
@@ -103,12 +153,71 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
-        return crudClient.readResource(uri, modelClass);
+        return join(asyncClient.readResource(uri, modelClass));
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Resources are read concurrently, with at most {@code pass.fedora.read.parallelism} reads in flight at once.
+     * </p>
+     */
+    @Override
+    public <T extends PassEntity> List<ReadResult<T>> readResources(Collection<URI> uris, Class<T> modelClass) {
+        return join(asyncClient.readResources(uris, modelClass));
     }
 
     @Override
     public Map<String, Collection<URI>> getIncoming(URI passEntity) {
-        return crudClient.getIncoming(passEntity);
+        return join(asyncClient.getIncoming(passEntity));
+    }
+
+    @Override
+    public Map<String, Collection<URI>> getIncoming(URI passEntity, Collection<String> predicates,
+                                                    Collection<PassEntityType> types) {
+        if (incomingFromIndex) {
+            return indexClient.getIncoming(passEntity, predicates, types);
+        }
+        return crudClient.getIncoming(passEntity, predicates, types);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The links are handed to the consumer as the response is read, on the calling thread. Where incoming links
+     * are {@link #incomingFromIndex(boolean) found in the index}, they are handed to the consumer once all have been
+     * found.
+     * </p>
+     */
+    @Override
+    public int forEachIncoming(URI passEntity, Collection<String> predicates, Collection<PassEntityType> types,
+                               BiConsumer<String, URI> consumer) {
+        if (incomingFromIndex) {
+            if (consumer == null) {
+                throw new IllegalArgumentException("consumer cannot be null");
+            }
+            int count = 0;
+            for (Map.Entry<String, Collection<URI>> entry : indexClient.getIncoming(passEntity, predicates, types)
+                                                                        .entrySet()) {
+                for (URI link : entry.getValue()) {
+                    consumer.accept(entry.getKey(), link);
+                    count++;
+                }
+            }
+            return count;
+        }
+        return crudClient.forEachIncoming(passEntity, predicates, types, consumer);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The reads and incoming reference lookups of each level of the graph are made concurrently.
+     * </p>
+     */
+    @Override
+    public <T extends PassEntity> EntityGraph<T> loadGraph(URI uri, Class<T> modelClass, IncludeSpec include) {
+        return join(asyncClient.loadGraph(uri, modelClass, include));
     }
 
     @Override
@@ -121,7 +230,7 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public URI upload(URI entityUri, InputStream content, Map<String, ?> params) {
-        return crudClient.upload(entityUri, content, params);
+        return join(asyncClient.upload(entityUri, content, params));
     }
 
     /**
@@ -129,7 +238,16 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public <T extends PassEntity> URI findByAttribute(Class<T> modelClass, String attribute, Object value) {
-        return indexClient.findByAttribute(modelClass, attribute, value);
+        return join(asyncClient.findByAttribute(modelClass, attribute, value));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends PassEntity, V> Map<V, URI> findByAttributeBatch(Class<T> modelClass, String attribute,
+                                                                      Collection<V> values) {
+        return join(asyncClient.findByAttributeBatch(modelClass, attribute, values));
     }
 
     /**
@@ -137,7 +255,7 @@ public class PassClientDefault implements PassClient {
      */
     @Override
     public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value) {
-        return indexClient.findAllByAttribute(modelClass, attribute, value);
+        return join(asyncClient.findAllByAttribute(modelClass, attribute, value));
     }
 
     /**
@@ -146,7 +264,7 @@ public class PassClientDefault implements PassClient {
     @Override
     public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value,
                                                               int limit, int offset) {
-        return indexClient.findAllByAttribute(modelClass, attribute, value, limit, offset);
+        return join(asyncClient.findAllByAttribute(modelClass, attribute, value, limit, offset));
     }
 
     /**
@@ -155,7 +273,7 @@ public class PassClientDefault implements PassClient {
     @Override
     public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
                                                                Map<String, Object> valueAttributesMap) {
-        return indexClient.findAllByAttributes(modelClass, valueAttributesMap);
+        return join(asyncClient.findAllByAttributes(modelClass, valueAttributesMap));
     }
 
     /**
@@ -165,7 +283,63 @@ public class PassClientDefault implements PassClient {
     public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
                                                                Map<String, Object> valueAttributesMap, int limit,
                                                                int offset) {
-        return indexClient.findAllByAttributes(modelClass, valueAttributesMap, limit, offset);
+        return join(asyncClient.findAllByAttributes(modelClass, valueAttributesMap, limit, offset));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends PassEntity> Stream<URI> streamAllByAttribute(Class<T> modelClass, String attribute,
+                                                                   Object value) {
+        return indexClient.streamAllByAttribute(modelClass, attribute, value);
+    }
+
+    /**
+     * Matches are sorted by {@code @id}, and each page is fetched with {@code search_after} the last match of the
+     * previous page, so there is no limit on the number of matches. The page size is set by
+     * {@code pass.elasticsearch.page.size}.
+     * <p>
+     * {@inheritDoc}
+     * </p>
+     */
+    @Override
+    public <T extends PassEntity> Stream<URI> streamAllByAttributes(Class<T> modelClass,
+                                                                    Map<String, Object> valueAttributesMap) {
+        return indexClient.streamAllByAttributes(modelClass, valueAttributesMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap) {
+        return join(asyncClient.findAllEntitiesByAttributes(modelClass, valueAttributesMap));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap,
+                                                                      int limit, int offset) {
+        return join(asyncClient.findAllEntitiesByAttributes(modelClass, valueAttributesMap, limit, offset));
+    }
+
+    /**
+     * Only the given fields of each document are fetched from the index.
+     * <p>
+     * {@inheritDoc}
+     * </p>
+     */
+    @Override
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap,
+                                                                      Collection<String> fields,
+                                                                      int limit, int offset) {
+        return join(asyncClient.findAllEntitiesByAttributes(modelClass, valueAttributesMap, fields, limit, offset));
     }
 
     /**
@@ -175,4 +349,12 @@ public class PassClientDefault implements PassClient {
     public <T extends PassEntity> int processAllEntities(Consumer<URI> processor, Class<T> modelClass) {
         return crudClient.processAllEntities(processor, modelClass);
     }
+
+    /**
+     * Releases the pooled connections held by this client. The client cannot be used after it has been closed.
+     */
+    @Override
+    public void close() {
+        asyncClient.close();
+    }
 }
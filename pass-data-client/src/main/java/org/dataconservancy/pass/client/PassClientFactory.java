@@ -16,18 +16,37 @@
 
 package org.dataconservancy.pass.client;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * PASS client factory.
+ * <p>
+ * The clients provided hold pooled connections and the threads serving them, so the factory creates one of each
+ * kind, with each update policy, the first time it is asked for, and provides the same instance to every caller. The
+ * shared clients live as long as the JVM, and must not be closed. To control the lifetime of a client, create a
+ * {@link PassClientDefault} or {@link AsyncPassClientDefault}, and close it when it is no longer needed.
+ * </p>
  *
  * @author Karen Hanson
  */
 public class PassClientFactory {
 
+    /**
+     * Shared clients, by whether they overwrite on update
+     */
+    private static final Map<Boolean, PassClient> CLIENTS = new ConcurrentHashMap<>();
+
+    /**
+     * Shared asynchronous clients, by whether they overwrite on update
+     */
+    private static final Map<Boolean, AsyncPassClient> ASYNC_CLIENTS = new ConcurrentHashMap<>();
+
     private PassClientFactory() {
     }
 
     /**
-     * Provide an instance a PassClient.
+     * Provide the shared instance of a PassClient.
      * <p>
      * Defaults to overwriteOnUpdate = false.
      * </p>
@@ -35,11 +54,11 @@ public class PassClientFactory {
      * @return PASS client
      */
     public static PassClient getPassClient() {
-        return new PassClientDefault();
+        return getPassClient(false);
     }
 
     /**
-     * Provide an instance of a PassClient, using a prpvided update policy.
+     * Provide the shared instance of a PassClient, using a provided update policy.
      * <p>
      * Includes option to overwrite during an update. The current default is to only update fields that have changed
      * thus allowing slightly different versions of the model to function together without overwriting each other.
@@ -52,7 +71,33 @@ public class PassClientFactory {
      * @return PASS client
      */
     public static PassClient getPassClient(boolean overwriteOnUpdate) {
-        return new PassClientDefault().overWriteOnUpdate(overwriteOnUpdate);
+        return CLIENTS.computeIfAbsent(overwriteOnUpdate,
+            overwrite -> new PassClientDefault().overWriteOnUpdate(overwrite));
+    }
+
+    /**
+     * Provide the shared instance of an AsyncPassClient.
+     * <p>
+     * Defaults to overwriteOnUpdate = false.
+     * </p>
+     *
+     * @return asynchronous PASS client
+     */
+    public static AsyncPassClient getAsyncPassClient() {
+        return getAsyncPassClient(false);
+    }
+
+    /**
+     * Provide the shared instance of an AsyncPassClient, using a provided update policy.
+     *
+     * @param overwriteOnUpdate - true if you would like updates to completely overwrite the record, false if you
+     *                          would like only fields that have changed to be updated
+     * @return asynchronous PASS client
+     * @see #getPassClient(boolean)
+     */
+    public static AsyncPassClient getAsyncPassClient(boolean overwriteOnUpdate) {
+        return ASYNC_CLIENTS.computeIfAbsent(overwriteOnUpdate,
+            overwrite -> new AsyncPassClientDefault().overWriteOnUpdate(overwrite));
     }
 
 }
@@ -17,6 +17,7 @@ package org.dataconservancy.pass.client.elasticsearch;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -26,6 +27,11 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Holds information and methods required to configure Fedora.
+ * <p>
+ * Each of the static methods reads its setting from the system properties or environment when called. Clients
+ * instead read all of the settings once, as a {@link Snapshot}, when they are created. The {@link #snapshot() current
+ * snapshot} is taken when first needed, and again when {@link #refresh() refreshed}.
+ * </p>
  *
  * @author Karen Hanson
  */
@@ -42,9 +48,54 @@ public class ElasticsearchConfig {
     private static final String INDEXER_LIMIT_KEY = "pass.elasticsearch.limit";
     private static final Integer DEFAULT_INDEXER_LIMIT = 200;
 
+    private static final String PAGE_SIZE_KEY = "pass.elasticsearch.page.size";
+    private static final Integer DEFAULT_PAGE_SIZE = 500;
+
+    private static final String BATCH_SIZE_KEY = "pass.elasticsearch.batch.size";
+    private static final Integer DEFAULT_BATCH_SIZE = 100;
+
+    private static final String MAX_CONNECTIONS_KEY = "pass.elasticsearch.connections.max";
+    private static final Integer DEFAULT_MAX_CONNECTIONS = 30;
+
+    private static final String MAX_CONNECTIONS_PER_ROUTE_KEY = "pass.elasticsearch.connections.perroute";
+    private static final Integer DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+
+    private static final String KEEPALIVE_KEY = "pass.elasticsearch.keepalive";
+    private static final Integer DEFAULT_KEEPALIVE = 60000;
+
+    private static final String CONNECT_TIMEOUT_KEY = "pass.elasticsearch.connect.timeout";
+    private static final Integer DEFAULT_CONNECT_TIMEOUT = 1000;
+
+    private static final String SOCKET_TIMEOUT_KEY = "pass.elasticsearch.socket.timeout";
+    private static final Integer DEFAULT_SOCKET_TIMEOUT = 30000;
+
+    private static volatile Snapshot snapshot;
+
     private ElasticsearchConfig() {
     }
 
+    /**
+     * Get the current snapshot of the configuration, taking it if it has not yet been taken.
+     *
+     * @return the snapshot
+     */
+    public static Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Take a new snapshot of the configuration, which becomes the current one, should the configuration have changed.
+     * Clients already created keep the snapshot they were created with.
+     *
+     * @return the new snapshot
+     */
+    public static Snapshot refresh() {
+        Snapshot current = new Snapshot();
+        snapshot = current;
+        return current;
+    }
+
     /**
      * Get indexer URL(s), defaults to DEFAULT_INDEXER_URL if one not set
      *
@@ -86,24 +137,233 @@ public class ElasticsearchConfig {
      * @return indexer limit.
      */
     public static Integer getIndexerLimit() {
-        Integer limit = DEFAULT_INDEXER_LIMIT;
+        Integer limit = getNonNegativeInteger(INDEXER_LIMIT_KEY, DEFAULT_INDEXER_LIMIT);
+        LOG.debug("Using indexer limit of: {}", limit);
+        return limit;
+    }
+
+    /**
+     * Get the number of matches fetched per request when streaming search results, defaults to DEFAULT_PAGE_SIZE if
+     * not set or zero
+     *
+     * @return page size.
+     */
+    public static Integer getPageSize() {
+        Integer pageSize = getNonNegativeInteger(PAGE_SIZE_KEY, DEFAULT_PAGE_SIZE);
+        if (pageSize == 0) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        }
+        LOG.debug("Using search page size of: {}", pageSize);
+        return pageSize;
+    }
+
+    /**
+     * Get the number of searches sent to the index in each multi-search request by batch lookups, defaults to
+     * DEFAULT_BATCH_SIZE if not set or zero
+     *
+     * @return batch size.
+     */
+    public static Integer getBatchSize() {
+        Integer batchSize = getNonNegativeInteger(BATCH_SIZE_KEY, DEFAULT_BATCH_SIZE);
+        if (batchSize == 0) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+        LOG.debug("Using search batch size of: {}", batchSize);
+        return batchSize;
+    }
+
+    /**
+     * Get the maximum number of pooled connections to the index across all hosts, defaults to
+     * DEFAULT_MAX_CONNECTIONS if not set
+     *
+     * @return maximum number of connections.
+     */
+    public static Integer getMaxConnections() {
+        return getNonNegativeInteger(MAX_CONNECTIONS_KEY, DEFAULT_MAX_CONNECTIONS);
+    }
+
+    /**
+     * Get the maximum number of pooled connections to a single index host, defaults to
+     * DEFAULT_MAX_CONNECTIONS_PER_ROUTE if not set
+     *
+     * @return maximum number of connections per host.
+     */
+    public static Integer getMaxConnectionsPerRoute() {
+        return getNonNegativeInteger(MAX_CONNECTIONS_PER_ROUTE_KEY, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    /**
+     * Get the time in milliseconds an idle pooled connection is kept alive for reuse, defaults to DEFAULT_KEEPALIVE
+     * if not set. A shorter keep-alive sent by the server takes precedence.
+     *
+     * @return keep-alive in milliseconds.
+     */
+    public static Integer getKeepAlive() {
+        return getNonNegativeInteger(KEEPALIVE_KEY, DEFAULT_KEEPALIVE);
+    }
+
+    /**
+     * Get the timeout in milliseconds for establishing a connection to the index, defaults to
+     * DEFAULT_CONNECT_TIMEOUT if not set
+     *
+     * @return connect timeout in milliseconds.
+     */
+    public static Integer getConnectTimeout() {
+        return getNonNegativeInteger(CONNECT_TIMEOUT_KEY, DEFAULT_CONNECT_TIMEOUT);
+    }
+
+    /**
+     * Get the timeout in milliseconds to wait for data from the index once connected, defaults to
+     * DEFAULT_SOCKET_TIMEOUT if not set
+     *
+     * @return socket timeout in milliseconds.
+     */
+    public static Integer getSocketTimeout() {
+        return getNonNegativeInteger(SOCKET_TIMEOUT_KEY, DEFAULT_SOCKET_TIMEOUT);
+    }
+
+    /**
+     * Read an integer setting, falling back to the default if it is not set, negative, or not a number
+     *
+     * @param key          property key
+     * @param defaultValue default value
+     * @return the setting.
+     */
+    private static Integer getNonNegativeInteger(String key, Integer defaultValue) {
+        Integer value = defaultValue;
 
         try {
-            String sLimit = ConfigUtil.getSystemProperty(INDEXER_LIMIT_KEY, DEFAULT_INDEXER_LIMIT.toString());
-            limit = Integer.parseInt(sLimit);
-            if (limit < 0) {
-                limit = DEFAULT_INDEXER_LIMIT;
-                LOG.warn(
-                    "Index record limit environment variable was a negative integer, using default limit of " + limit);
+            String sValue = ConfigUtil.getSystemProperty(key, defaultValue.toString());
+            value = Integer.parseInt(sValue);
+            if (value < 0) {
+                value = defaultValue;
+                LOG.warn("Value of {} was a negative integer, using default of {}", key, value);
             }
         } catch (Exception e) {
-            limit = DEFAULT_INDEXER_LIMIT;
-            LOG.warn("Limit environment variable could not be converted to an Integer, using default limit of " + limit,
-                     e);
+            value = defaultValue;
+            LOG.warn("Value of " + key + " could not be converted to an Integer, using default of " + value, e);
         }
 
-        LOG.debug("Using indexer limit of: {}", limit);
-        return limit;
+        return value;
+    }
+
+    /**
+     * An immutable snapshot of the Elasticsearch configuration, read once when it is taken.
+     */
+    public static final class Snapshot {
+
+        private final Set<URL> indexerHostUrls;
+
+        private final String[] indices;
+
+        private final int indexerLimit;
+
+        private final int pageSize;
+
+        private final int batchSize;
+
+        private final int maxConnections;
+
+        private final int maxConnectionsPerRoute;
+
+        private final int keepAlive;
+
+        private final int connectTimeout;
+
+        private final int socketTimeout;
+
+        private Snapshot() {
+            indexerHostUrls = Collections.unmodifiableSet(ElasticsearchConfig.getIndexerHostUrl());
+            indices = ElasticsearchConfig.getIndices();
+            indexerLimit = ElasticsearchConfig.getIndexerLimit();
+            pageSize = ElasticsearchConfig.getPageSize();
+            batchSize = ElasticsearchConfig.getBatchSize();
+            maxConnections = ElasticsearchConfig.getMaxConnections();
+            maxConnectionsPerRoute = ElasticsearchConfig.getMaxConnectionsPerRoute();
+            keepAlive = ElasticsearchConfig.getKeepAlive();
+            connectTimeout = ElasticsearchConfig.getConnectTimeout();
+            socketTimeout = ElasticsearchConfig.getSocketTimeout();
+        }
+
+        /**
+         * @return host URLs
+         * @see ElasticsearchConfig#getIndexerHostUrl()
+         */
+        public Set<URL> getIndexerHostUrl() {
+            return indexerHostUrls;
+        }
+
+        /**
+         * @return a copy of the indices
+         * @see ElasticsearchConfig#getIndices()
+         */
+        public String[] getIndices() {
+            return indices.clone();
+        }
+
+        /**
+         * @return indexer limit
+         * @see ElasticsearchConfig#getIndexerLimit()
+         */
+        public int getIndexerLimit() {
+            return indexerLimit;
+        }
+
+        /**
+         * @return page size
+         * @see ElasticsearchConfig#getPageSize()
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * @return batch size
+         * @see ElasticsearchConfig#getBatchSize()
+         */
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        /**
+         * @return maximum number of connections
+         * @see ElasticsearchConfig#getMaxConnections()
+         */
+        public int getMaxConnections() {
+            return maxConnections;
+        }
+
+        /**
+         * @return maximum number of connections per host
+         * @see ElasticsearchConfig#getMaxConnectionsPerRoute()
+         */
+        public int getMaxConnectionsPerRoute() {
+            return maxConnectionsPerRoute;
+        }
+
+        /**
+         * @return keep-alive in milliseconds
+         * @see ElasticsearchConfig#getKeepAlive()
+         */
+        public int getKeepAlive() {
+            return keepAlive;
+        }
+
+        /**
+         * @return connect timeout in milliseconds
+         * @see ElasticsearchConfig#getConnectTimeout()
+         */
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        /**
+         * @return socket timeout in milliseconds
+         * @see ElasticsearchConfig#getSocketTimeout()
+         */
+        public int getSocketTimeout() {
+            return socketTimeout;
+        }
     }
 
 }
@@ -19,82 +19,177 @@ import static java.lang.String.format;
 import static java.lang.String.join;
 import static java.util.stream.Collectors.toList;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.apache.http.HttpHost;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.client.util.FutureUtil;
 import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityReference;
 import org.dataconservancy.pass.model.PassEntityType;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RequestOptions;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
 import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.index.query.Operator;
-import org.elasticsearch.index.query.QueryStringQueryBuilder;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Communicates with elasticsearch
+ * <p>
+ * A single pooled, thread-safe connection to the index is shared by all searches made through an instance of this
+ * client. Instances should therefore be long-lived and shared, and {@link #close() closed} when no longer needed.
+ * </p>
+ * <p>
+ * Every search has a blocking form, and a non-blocking {@code *Async} form that returns a {@link CompletableFuture}.
+ * Searches for all matches regardless of number are made with the {@code streamAll*} methods, which fetch the matches
+ * a page at a time as they are consumed.
+ * </p>
  *
  * @author Karen Hanson
  */
-public class ElasticsearchPassClient {
+public class ElasticsearchPassClient implements Closeable {
 
     private static final Logger LOG = LoggerFactory.getLogger(ElasticsearchPassClient.class);
 
+    private static final String ID_FIELDNAME = "@id";
+
+    private static final String TYPE_FIELDNAME = "@type";
+
     /**
-     * Template for a search attribute e.g. AND fldname:"something"
+     * Source fields fetched by searches for URIs only
      */
-    private static final String QS_ATTRIB_TEMPLATE = " AND %s:\"%s\"";
+    private static final String[] ID_ONLY = {ID_FIELDNAME};
 
     /**
-     * Template for a query string e.g. (@type:Submission AND fldname:"something")
-     * where the second %s could be one or more QS_ATTRIB_TEMPLATES
+     * Pooled client used for all communication with the indexer
      */
-    private static final String QS_TEMPLATE = "(@type:%s %s)";
+    private final RestHighLevelClient client;
 
-    private static final String EXISTS_TEMPLATE = "_exists_:%s";
+    /**
+     * names of indexes
+     */
+    private final String[] indices;
 
-    private static final String NOT_EXISTS_TEMPLATE = "-" + EXISTS_TEMPLATE;
+    /**
+     * Binds indexed documents to PASS entities
+     */
+    private final PassJsonAdapter adapter;
 
-    private static final String QS_ATTRIB_NOT_EXISTS_TEMPLATE = "AND " + NOT_EXISTS_TEMPLATE;
+    /**
+     * Configuration, read when this client was created
+     */
+    private final ElasticsearchConfig.Snapshot config;
 
-    private static final String ID_FIELDNAME = "@id";
+    /**
+     * Default constructor for PASS client. Connects to the indexer host(s) using the connection pool settings in
+     * {@link ElasticsearchConfig}
+     */
+    public ElasticsearchPassClient() {
+        this(ElasticsearchConfig.snapshot());
+    }
 
     /**
-     * URL(s) of indexer
+     * Connects to the indexer host(s) using the settings in the given configuration snapshot.
+     *
+     * @param config configuration
      */
-    private final HttpHost[] hosts;
+    public ElasticsearchPassClient(ElasticsearchConfig.Snapshot config) {
+        this(new RestHighLevelClient(restClientBuilder(config)), new PassJsonAdapterBasic(), config);
+    }
 
     /**
-     * names of indexes
+     * Support passing in of the Elasticsearch client. The client will be closed when this client is closed.
+     *
+     * @param client Elasticsearch client
      */
-    private final String[] indices;
+    public ElasticsearchPassClient(RestHighLevelClient client) {
+        this(client, new PassJsonAdapterBasic());
+    }
 
     /**
-     * Default constructor for PASS client
+     * Support passing in of the Elasticsearch client, and the JSON adapter used to bind indexed documents to PASS
+     * entities. The Elasticsearch client will be closed when this client is closed.
+     *
+     * @param client  Elasticsearch client
+     * @param adapter JSON adapter
      */
-    public ElasticsearchPassClient() {
-        Set<URL> indexerUrls = ElasticsearchConfig.getIndexerHostUrl();
-        hosts = new HttpHost[indexerUrls.size()];
-        int count = 0;
-        for (URL url : indexerUrls) {
-            LOG.info("Connecting to index at {}", url);
-            hosts[count] = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
-            count = count + 1;
+    public ElasticsearchPassClient(RestHighLevelClient client, PassJsonAdapter adapter) {
+        this(client, adapter, ElasticsearchConfig.snapshot());
+    }
+
+    /**
+     * Support passing in of the Elasticsearch client, the JSON adapter used to bind indexed documents to PASS
+     * entities, and the configuration. The Elasticsearch client will be closed when this client is closed.
+     *
+     * @param client  Elasticsearch client
+     * @param adapter JSON adapter
+     * @param config  configuration
+     */
+    public ElasticsearchPassClient(RestHighLevelClient client, PassJsonAdapter adapter,
+                                   ElasticsearchConfig.Snapshot config) {
+        if (client == null) {
+            throw new IllegalArgumentException("client parameter cannot be null");
+        }
+        if (adapter == null) {
+            throw new IllegalArgumentException("adapter parameter cannot be null");
+        }
+        if (config == null) {
+            throw new IllegalArgumentException("config parameter cannot be null");
+        }
+        this.client = client;
+        this.adapter = adapter;
+        this.config = config;
+        this.indices = config.getIndices();
+    }
+
+    /**
+     * Releases the pooled connections to the indexer. This client cannot be used after it has been closed.
+     */
+    @Override
+    public void close() {
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new RuntimeException("A problem occurred while closing the connection to the indexer", e);
         }
-        indices = ElasticsearchConfig.getIndices();
     }
 
     /**
@@ -106,36 +201,83 @@ public class ElasticsearchPassClient {
      * @see org.dataconservancy.pass.client.PassClient#findByAttribute(Class, String, Object)
      */
     public <T extends PassEntity> URI findByAttribute(Class<T> modelClass, String attribute, Object value) {
+        return FutureUtil.join(findByAttributeAsync(modelClass, attribute, value));
+    }
+
+    /**
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param value      value
+     * @param <T>        PASS entity type
+     * @return future URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findByAttribute(Class, String, Object)
+     */
+    public <T extends PassEntity> CompletableFuture<URI> findByAttributeAsync(Class<T> modelClass, String attribute,
+                                                                              Object value) {
         validateModelParam(modelClass);
         validateAttribValParams(attribute, value, true);
 
-        String indexType = null;
+        SearchQuery<T> query = new SearchQuery<>(modelClass).equal(attribute, value);
 
-        if (PassEntityType.getTypeByName(modelClass.getSimpleName()) != null) {
-            indexType = PassEntityType.getTypeByName(modelClass.getSimpleName()).getName();
-        }
+        //get 2 so we can check only one result matched
+        return getIndexerResults(query, 2, 0).thenApply(passEntityUris -> onlyMatch(attribute, value,
+                                                                                     passEntityUris));
+    }
 
-        String attribs = null;
-        if (value != null) {
-            attribs = String.format(QS_ATTRIB_TEMPLATE, attribute, value.toString());
-        } else {
-            attribs = String.format(QS_ATTRIB_NOT_EXISTS_TEMPLATE, attribute);
-        }
-        String querystring = String.format(QS_TEMPLATE, indexType, attribs);
+    /**
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param values     values
+     * @param <T>        PASS entity type
+     * @param <V>        value type
+     * @return Map of value to URI
+     * @see org.dataconservancy.pass.client.PassClient#findByAttributeBatch(Class, String, Collection)
+     */
+    public <T extends PassEntity, V> Map<V, URI> findByAttributeBatch(Class<T> modelClass, String attribute,
+                                                                      Collection<V> values) {
+        return FutureUtil.join(findByAttributeBatchAsync(modelClass, attribute, values));
+    }
 
-        Set<URI> passEntityUris = getIndexerResults(querystring, 2, 0); //get 2 so we can check only one result matched
-        if (passEntityUris.size() > 1) {
-            throw new RuntimeException(
-                format("More than one results was returned by this query (%s = %s). " +
-                       "findByAttribute() searches should match only one result.  Instead found:\n %s",
-                       attribute, value,
-                       join("\n", passEntityUris.stream().map(URI::toString).collect(toList()))));
+    /**
+     * Looks up a SINGLE RECORD for each of a number of values of an attribute, as
+     * {@link #findByAttributeAsync(Class, String, Object)} does for one value. The lookups are sent to the index in
+     * multi-search requests of {@link ElasticsearchConfig#getBatchSize() batch size} lookups each, which are made
+     * concurrently.
+     *
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param values     values
+     * @param <T>        PASS entity type
+     * @param <V>        value type
+     * @return future Map of value to URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findByAttributeBatch(Class, String, Collection)
+     */
+    public <T extends PassEntity, V> CompletableFuture<Map<V, URI>> findByAttributeBatchAsync(Class<T> modelClass,
+                                                                                              String attribute,
+                                                                                              Collection<V> values) {
+        validateModelParam(modelClass);
+        if (values == null) {
+            throw new IllegalArgumentException("values cannot be null");
         }
-        URI passEntityUri = null;
-        if (passEntityUris.size() > 0) {
-            passEntityUri = passEntityUris.iterator().next();
+        List<V> distinctValues = new ArrayList<>(new LinkedHashSet<>(values));
+        for (V value : distinctValues) {
+            validateAttribValParams(attribute, value, false);
         }
-        return passEntityUri;
+
+        int batchSize = config.getBatchSize();
+        List<CompletableFuture<Map<V, URI>>> batches = new ArrayList<>();
+        for (int from = 0; from < distinctValues.size(); from += batchSize) {
+            List<V> batch = distinctValues.subList(from, Math.min(from + batchSize, distinctValues.size()));
+            batches.add(findByAttributeMultiSearch(modelClass, attribute, batch));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<V, URI> matches = new LinkedHashMap<>();
+            for (CompletableFuture<Map<V, URI>> batch : batches) {
+                matches.putAll(batch.join());
+            }
+            return matches;
+        });
     }
 
     /**
@@ -147,7 +289,21 @@ public class ElasticsearchPassClient {
      * @see org.dataconservancy.pass.client.PassClient#findAllByAttribute(Class, String, Object)
      */
     public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value) {
-        return findAllByAttribute(modelClass, attribute, value, ElasticsearchConfig.getIndexerLimit(), 0);
+        return findAllByAttribute(modelClass, attribute, value, config.getIndexerLimit(), 0);
+    }
+
+    /**
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param value      value
+     * @param <T>        PASS entity type
+     * @return future Set of URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllByAttribute(Class, String, Object)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributeAsync(Class<T> modelClass,
+                                                                                      String attribute,
+                                                                                      Object value) {
+        return findAllByAttributeAsync(modelClass, attribute, value, config.getIndexerLimit(), 0);
     }
 
     /**
@@ -162,26 +318,28 @@ public class ElasticsearchPassClient {
      */
     public <T extends PassEntity> Set<URI> findAllByAttribute(Class<T> modelClass, String attribute, Object value,
                                                               int limit, int offset) {
+        return FutureUtil.join(findAllByAttributeAsync(modelClass, attribute, value, limit, offset));
+    }
+
+    /**
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param value      value
+     * @param limit      limit
+     * @param offset     offset
+     * @param <T>        PASS entity type
+     * @return future Set of URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllByAttribute(Class, String, Object, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributeAsync(Class<T> modelClass,
+                                                                                      String attribute,
+                                                                                      Object value, int limit,
+                                                                                      int offset) {
         validateModelParam(modelClass);
         validateAttribValParams(attribute, value, true);
         validLimitOffsetParams(limit, offset);
 
-        String indexType = null;
-
-        if (PassEntityType.getTypeByName(modelClass.getSimpleName()) != null) {
-            indexType = PassEntityType.getTypeByName(modelClass.getSimpleName()).getName();
-        }
-
-        String attribs = null;
-        if (value != null) {
-            attribs = String.format(QS_ATTRIB_TEMPLATE, attribute, value.toString());
-        } else {
-            attribs = String.format(NOT_EXISTS_TEMPLATE, attribute);
-        }
-        String querystring = String.format(QS_TEMPLATE, indexType, attribs);
-        Set<URI> passEntityUris = getIndexerResults(querystring, limit, offset);
-
-        return passEntityUris;
+        return getIndexerResults(new SearchQuery<>(modelClass).equal(attribute, value), limit, offset);
     }
 
     /**
@@ -193,7 +351,20 @@ public class ElasticsearchPassClient {
      */
     public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
                                                                Map<String, Object> valueAttributesMap) {
-        return findAllByAttributes(modelClass, valueAttributesMap, ElasticsearchConfig.getIndexerLimit(), 0);
+        return findAllByAttributes(modelClass, valueAttributesMap, config.getIndexerLimit(), 0);
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param <T>                PASS entity type
+     * @return future Set of URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributesAsync(Class<T> modelClass,
+                                                                                       Map<String, Object>
+                                                                                           valueAttributesMap) {
+        return findAllByAttributesAsync(modelClass, valueAttributesMap, config.getIndexerLimit(), 0);
     }
 
     /**
@@ -208,79 +379,741 @@ public class ElasticsearchPassClient {
     public <T extends PassEntity> Set<URI> findAllByAttributes(Class<T> modelClass,
                                                                Map<String, Object> valueAttributesMap, int limit,
                                                                int offset) {
+        return FutureUtil.join(findAllByAttributesAsync(modelClass, valueAttributesMap, limit, offset));
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param limit              limit
+     * @param offset             offset
+     * @param <T>                PASS entity type
+     * @return future Set of URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllByAttributes(Class, Map, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<Set<URI>> findAllByAttributesAsync(Class<T> modelClass,
+                                                                                       Map<String, Object>
+                                                                                           valueAttributesMap,
+                                                                                       int limit, int offset) {
         validateModelParam(modelClass);
         validateAttribMapParam(valueAttributesMap);
         validLimitOffsetParams(limit, offset);
 
         LOG.debug("Searching for {} using multiple filters", modelClass.getSimpleName());
 
-        String indexType = null;
+        return getIndexerResults(attributesQuery(modelClass, valueAttributesMap), limit, offset);
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param <T>                PASS entity type
+     * @return List of PASS entities
+     * @see org.dataconservancy.pass.client.PassClient#findAllEntitiesByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap) {
+        return findAllEntitiesByAttributes(modelClass, valueAttributesMap, config.getIndexerLimit(), 0);
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param <T>                PASS entity type
+     * @return future List of PASS entities
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllEntitiesByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributesAsync(
+        Class<T> modelClass, Map<String, Object> valueAttributesMap) {
+        return findAllEntitiesByAttributesAsync(modelClass, valueAttributesMap,
+                                                config.getIndexerLimit(), 0);
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param limit              limit
+     * @param offset             offset
+     * @param <T>                PASS entity type
+     * @return List of PASS entities
+     * @see org.dataconservancy.pass.client.PassClient#findAllEntitiesByAttributes(Class, Map, int, int)
+     */
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap,
+                                                                      int limit, int offset) {
+        return FutureUtil.join(findAllEntitiesByAttributesAsync(modelClass, valueAttributesMap, limit, offset));
+    }
 
-        if (PassEntityType.getTypeByName(modelClass.getSimpleName()) != null) {
-            indexType = PassEntityType.getTypeByName(modelClass.getSimpleName()).getName();
+    /**
+     * Searches as {@link #findAllByAttributesAsync(Class, Map, int, int)} does, but binds the document stored in
+     * the index for each match to a PASS entity, rather than keeping only its URI. No request is made to Fedora, so
+     * the entities reflect the resources as they were when last indexed, and have no version tag.
+     *
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param limit              limit
+     * @param offset             offset
+     * @param <T>                PASS entity type
+     * @return future List of PASS entities, in the order the index returned them
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllEntitiesByAttributes(Class, Map, int, int)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributesAsync(
+        Class<T> modelClass, Map<String, Object> valueAttributesMap, int limit, int offset) {
+        validateModelParam(modelClass);
+        validateAttribMapParam(valueAttributesMap);
+        validLimitOffsetParams(limit, offset);
+
+        LOG.debug("Searching for {} entities using multiple filters", modelClass.getSimpleName());
+
+        return search(attributesQuery(modelClass, valueAttributesMap), limit, offset, null,
+                      hits -> toEntities(hits, modelClass));
+    }
+
+    /**
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param fields             fields
+     * @param limit              limit
+     * @param offset             offset
+     * @param <T>                PASS entity type
+     * @return List of PASS entities
+     * @see org.dataconservancy.pass.client.PassClient#findAllEntitiesByAttributes(Class, Map, Collection, int, int)
+     */
+    public <T extends PassEntity> List<T> findAllEntitiesByAttributes(Class<T> modelClass,
+                                                                      Map<String, Object> valueAttributesMap,
+                                                                      Collection<String> fields,
+                                                                      int limit, int offset) {
+        return FutureUtil.join(findAllEntitiesByAttributesAsync(modelClass, valueAttributesMap, fields, limit,
+                                                                offset));
+    }
+
+    /**
+     * Searches as {@link #findAllEntitiesByAttributesAsync(Class, Map, int, int)} does, but fetches only the given
+     * fields of each document from the index, along with {@code @id} and {@code @type}. Other fields of the entities
+     * are left unset.
+     *
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param fields             JSON names of the fields to populate
+     * @param limit              limit
+     * @param offset             offset
+     * @param <T>                PASS entity type
+     * @return future List of partially populated PASS entities, in the order the index returned them
+     * @see org.dataconservancy.pass.client.AsyncPassClient#findAllEntitiesByAttributes(Class, Map, Collection, int,
+     * int)
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByAttributesAsync(
+        Class<T> modelClass, Map<String, Object> valueAttributesMap, Collection<String> fields, int limit,
+        int offset) {
+        validateModelParam(modelClass);
+        validateAttribMapParam(valueAttributesMap);
+        validLimitOffsetParams(limit, offset);
+        if (fields == null) {
+            throw new IllegalArgumentException("fields cannot be null");
         }
 
-        StringBuilder attribs = new StringBuilder("");
-        for (Entry<String, Object> attr : valueAttributesMap.entrySet()) {
-            if (attr.getValue() != null) {
-                attribs.append(String.format(QS_ATTRIB_TEMPLATE, attr.getKey(), attr.getValue().toString()));
-            } else {
-                attribs.append(String.format(QS_ATTRIB_NOT_EXISTS_TEMPLATE, attr.getKey()));
+        Set<String> includes = new LinkedHashSet<>();
+        includes.add(ID_FIELDNAME);
+        includes.add(TYPE_FIELDNAME);
+        includes.addAll(fields);
+
+        LOG.debug("Searching for {} entities using multiple filters, fetching {}", modelClass.getSimpleName(),
+                  includes);
+
+        return search(attributesQuery(modelClass, valueAttributesMap), limit, offset,
+                      includes.toArray(new String[0]), hits -> toEntities(hits, modelClass));
+    }
+
+    /**
+     * @param modelClass modelClass
+     * @param attribute  attribute
+     * @param value      value
+     * @param <T>        PASS entity type
+     * @return Stream of URI
+     * @see org.dataconservancy.pass.client.PassClient#streamAllByAttribute(Class, String, Object)
+     */
+    public <T extends PassEntity> Stream<URI> streamAllByAttribute(Class<T> modelClass, String attribute,
+                                                                   Object value) {
+        validateAttribValParams(attribute, value, true);
+        return streamAllByAttributes(modelClass, Collections.singletonMap(attribute, value));
+    }
+
+    /**
+     * Streams the URIs of all matching records, however many there are. Matches are sorted by {@code @id} and
+     * fetched {@link ElasticsearchConfig#getPageSize() a page} at a time with {@code search_after} as the stream is
+     * consumed, so memory use is bounded by the page size, and no further pages are fetched once the consumer stops.
+     * Each page is fetched by the thread consuming the stream, which waits for it.
+     * <p>
+     * Records added or removed while the stream is being consumed may or may not be included.
+     * </p>
+     *
+     * @param modelClass         modelClass
+     * @param valueAttributesMap valueAttributesMap
+     * @param <T>                PASS entity type
+     * @return Stream of URI
+     * @see org.dataconservancy.pass.client.PassClient#streamAllByAttributes(Class, Map)
+     */
+    public <T extends PassEntity> Stream<URI> streamAllByAttributes(Class<T> modelClass,
+                                                                    Map<String, Object> valueAttributesMap) {
+        validateModelParam(modelClass);
+        validateAttribMapParam(valueAttributesMap);
+
+        LOG.debug("Streaming all {} using multiple filters", modelClass.getSimpleName());
+
+        return streamAllByQuery(attributesQuery(modelClass, valueAttributesMap));
+    }
+
+    /**
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates of the links returned, or null for all
+     * @param types         types of the entities whose links are returned, or null for all
+     * @return map
+     * @see #getIncomingAsync(URI, Collection, Collection)
+     */
+    public Map<String, Collection<URI>> getIncoming(URI passEntityUri, Collection<String> predicates,
+                                                    Collection<PassEntityType> types) {
+        return FutureUtil.join(getIncomingAsync(passEntityUri, predicates, types));
+    }
+
+    /**
+     * Finds the entities that reference a PASS entity by searching the index, rather than asking Fedora for its
+     * inbound references. The result has the same shape as
+     * {@link org.dataconservancy.pass.client.fedora.FedoraPassCrudClient#getIncomingAsync(URI, Collection,
+     * Collection)}: each key is the JSON name of a field referencing the entity, and its value the URIs of the
+     * entities referencing it with that field.
+     * <p>
+     * One search is made for each {@link PassEntityReference reference field} of each type of entity, and the searches are sent in multi-search requests of {@link ElasticsearchConfig#getBatchSize() batch
+     * size} searches each, which are made concurrently. Where a search has more matches than
+     * {@link ElasticsearchConfig#getPageSize() a page}, the rest are fetched a page at a time with
+     * {@code search_after}. Only the {@code @id} of each match is fetched.
+     * </p>
+     * <p>
+     * The index is updated after the repository, so references made or removed very recently may not be reflected.
+     * </p>
+     *
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates (JSON field names) of the links returned, or null for all
+     * @param types         types of the entities whose links are returned, or null for all
+     * @return future map of field name to the URIs of the entities referencing the entity with that field
+     */
+    public CompletableFuture<Map<String, Collection<URI>>> getIncomingAsync(URI passEntityUri,
+                                                                           Collection<String> predicates,
+                                                                           Collection<PassEntityType> types) {
+        if (passEntityUri == null) {
+            throw new IllegalArgumentException("passEntityUri cannot be null");
+        }
+
+        List<SearchQuery<?>> queries = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        for (PassEntityType type : types == null ? Arrays.asList(PassEntityType.values()) : types) {
+            Class<? extends PassEntity> modelClass = type.getModelClass();
+            for (String field : PassEntityReference.getReferences(type).keySet()) {
+                if (predicates == null || predicates.contains(field)) {
+                    queries.add(new SearchQuery<>(modelClass).equal(field, passEntityUri));
+                    fields.add(field);
+                }
             }
         }
-        String querystring = String.format(QS_TEMPLATE, indexType, attribs);
 
-        Set<URI> passEntityUris = getIndexerResults(querystring, limit, offset);
-        return passEntityUris;
+        LOG.debug("Searching index for references to {} in {} fields", passEntityUri, queries.size());
+
+        Map<String, Collection<URI>> incoming = new ConcurrentHashMap<>();
+        int batchSize = config.getBatchSize();
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < queries.size(); from += batchSize) {
+            int to = Math.min(from + batchSize, queries.size());
+            batches.add(getIncomingMultiSearch(passEntityUri, queries.subList(from, to), fields.subList(from, to),
+                                               incoming));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(done -> incoming);
+    }
+
+    /**
+     * @param query  query
+     * @param limit  limit
+     * @param offset offset
+     * @return Set of URI
+     * @see #findAllByQueryAsync(SearchQuery, int, int)
+     */
+    public Set<URI> findAllByQuery(SearchQuery<?> query, int limit, int offset) {
+        return FutureUtil.join(findAllByQueryAsync(query, limit, offset));
+    }
+
+    /**
+     * Retrieves the URIs of records matching a {@link SearchQuery}. The number of records will be limited by limit
+     * provided, and the offset will be applied to the default sorting. If there are no matches, the set is empty.
+     *
+     * @param query  query
+     * @param limit  limit
+     * @param offset offset
+     * @return future Set of URI
+     */
+    public CompletableFuture<Set<URI>> findAllByQueryAsync(SearchQuery<?> query, int limit, int offset) {
+        validateQueryParam(query);
+        validLimitOffsetParams(limit, offset);
+        return getIndexerResults(query, limit, offset);
+    }
+
+    /**
+     * @param query  query
+     * @param limit  limit
+     * @param offset offset
+     * @param <T>    PASS entity type
+     * @return List of PASS entities
+     * @see #findAllEntitiesByQueryAsync(SearchQuery, int, int)
+     */
+    public <T extends PassEntity> List<T> findAllEntitiesByQuery(SearchQuery<T> query, int limit, int offset) {
+        return FutureUtil.join(findAllEntitiesByQueryAsync(query, limit, offset));
+    }
+
+    /**
+     * Retrieves the records matching a {@link SearchQuery}, populating the entities from the documents in the index
+     * as {@link #findAllEntitiesByAttributesAsync(Class, Map, int, int)} does.
+     *
+     * @param query  query
+     * @param limit  limit
+     * @param offset offset
+     * @param <T>    PASS entity type
+     * @return future List of PASS entities, in the order the index returned them
+     */
+    public <T extends PassEntity> CompletableFuture<List<T>> findAllEntitiesByQueryAsync(SearchQuery<T> query,
+                                                                                          int limit, int offset) {
+        validateQueryParam(query);
+        validLimitOffsetParams(limit, offset);
+        return search(query, limit, offset, null, hits -> toEntities(hits, query.getModelClass()));
     }
 
     /**
-     * Retrieve search results from elasticsearch
+     * Streams the URIs of all records matching a {@link SearchQuery}, however many there are, as
+     * {@link #streamAllByAttributes(Class, Map)} does.
      *
-     * @param querystring
+     * @param query query
+     * @return Stream of URI
+     */
+    public Stream<URI> streamAllByQuery(SearchQuery<?> query) {
+        validateQueryParam(query);
+        Iterator<URI> uris = new SearchAfterIterator(query, config.getPageSize());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            uris, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Build a query matching entities of the given type having all of the given attribute values
+     */
+    private static <T extends PassEntity> SearchQuery<T> attributesQuery(Class<T> modelClass,
+                                                                         Map<String, Object> valueAttributesMap) {
+        SearchQuery<T> query = new SearchQuery<>(modelClass);
+        for (Entry<String, Object> attr : valueAttributesMap.entrySet()) {
+            query.equal(attr.getKey(), attr.getValue());
+        }
+        return query;
+    }
+
+    /**
+     * Retrieve the URIs of matching records from elasticsearch. Only the {@code @id} of each record is fetched.
+     *
+     * @param query
      * @param limit
      * @param offset
      * @return
      */
-    private Set<URI> getIndexerResults(String querystring, int limit, int offset) {
+    private CompletableFuture<Set<URI>> getIndexerResults(SearchQuery<?> query, int limit, int offset) {
+        return search(query, limit, offset, ID_ONLY, ElasticsearchPassClient::toUris);
+    }
 
-        Set<URI> passEntityUris = new HashSet<URI>();
+    /**
+     * Look up the only match for each value in a single multi-search request.
+     */
+    private <T extends PassEntity, V> CompletableFuture<Map<V, URI>> findByAttributeMultiSearch(Class<T> modelClass,
+                                                                                              String attribute,
+                                                                                              List<V> values) {
+        CompletableFuture<Map<V, URI>> future = new CompletableFuture<>();
 
-        try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(hosts))) {
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        List<SearchQuery<T>> queries = new ArrayList<>(values.size());
+        for (V value : values) {
+            SearchQuery<T> query = new SearchQuery<>(modelClass).equal(attribute, value);
+            queries.add(query);
 
-            SearchRequest searchRequest = new SearchRequest();
+            //get 2 so we can check only one result matched
             SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
-            sourceBuilder.from(offset);
-            sourceBuilder.size(limit);
-
-            LOG.debug("Searching index using querystring: {}, with limit {} and offset {}", querystring, limit, offset);
-            //(content:this OR name:this)
-            QueryStringQueryBuilder matchQueryBuilder = new QueryStringQueryBuilder(querystring);
-
-            matchQueryBuilder.defaultOperator(Operator.AND);
-            sourceBuilder.query(matchQueryBuilder);
-            searchRequest.source(sourceBuilder);
-            searchRequest.indices(indices);
-            SearchResponse searchResponse = client.search(searchRequest);
-            SearchHits hits = searchResponse.getHits();
-            Iterator<SearchHit> hitsIt = hits.iterator();
-
-            while (hitsIt.hasNext()) {
-                String idField = hitsIt.next().getSourceAsMap().get(ID_FIELDNAME).toString();
+            sourceBuilder.size(2);
+            sourceBuilder.fetchSource(ID_ONLY, null);
+            sourceBuilder.query(query.toQueryBuilder());
+            multiSearchRequest.add(new SearchRequest(indices).source(sourceBuilder));
+        }
+
+        LOG.debug("Searching index for {} {} by {} in one request", values.size(), modelClass.getSimpleName(),
+                  attribute);
+
+        client.msearchAsync(multiSearchRequest, RequestOptions.DEFAULT, new ActionListener<MultiSearchResponse>() {
+            @Override
+            public void onResponse(MultiSearchResponse multiSearchResponse) {
+                Map<V, URI> matches = new LinkedHashMap<>();
+                try {
+                    MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].isFailure()) {
+                            throw new RuntimeException(
+                                String.format("An error occurred while processing the query: %s", queries.get(i)),
+                                items[i].getFailure());
+                        }
+                        V value = values.get(i);
+                        matches.put(value, onlyMatch(attribute, value, toUris(items[i].getResponse().getHits())));
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                future.complete(matches);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(new RuntimeException(
+                    String.format("An error occurred while processing a batch of %s queries on %s", values.size(),
+                                  attribute), e));
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Make the first page of each search for references to an entity in a single multi-search request, adding the
+     * matches to the map of incoming links, and fetching the following pages of any search with more matches.
+     */
+    private CompletableFuture<Void> getIncomingMultiSearch(URI passEntityUri, List<SearchQuery<?>> queries,
+                                                           List<String> fields,
+                                                           Map<String, Collection<URI>> incoming) {
+        CompletableFuture<CompletableFuture<Void>> future = new CompletableFuture<>();
+
+        int pageSize = config.getPageSize();
+        MultiSearchRequest multiSearchRequest = new MultiSearchRequest();
+        for (SearchQuery<?> query : queries) {
+            SearchSourceBuilder sourceBuilder = idPage(pageSize, null);
+            sourceBuilder.query(query.toQueryBuilder());
+            multiSearchRequest.add(new SearchRequest(indices).source(sourceBuilder));
+        }
+
+        client.msearchAsync(multiSearchRequest, RequestOptions.DEFAULT, new ActionListener<MultiSearchResponse>() {
+            @Override
+            public void onResponse(MultiSearchResponse multiSearchResponse) {
+                List<CompletableFuture<Void>> remaining = new ArrayList<>();
+                try {
+                    MultiSearchResponse.Item[] items = multiSearchResponse.getResponses();
+                    for (int i = 0; i < items.length; i++) {
+                        if (items[i].isFailure()) {
+                            throw new RuntimeException(
+                                String.format("An error occurred while processing the query: %s", queries.get(i)),
+                                items[i].getFailure());
+                        }
+                        remaining.add(addIncoming(passEntityUri, queries.get(i), fields.get(i),
+                                                  items[i].getResponse().getHits().getHits(), incoming));
+                    }
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    return;
+                }
+                future.complete(CompletableFuture.allOf(remaining.toArray(new CompletableFuture<?>[0])));
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(new RuntimeException(
+                    String.format("An error occurred while searching a batch of %s fields for references to %s",
+                                  queries.size(), passEntityUri), e));
+            }
+        });
+
+        return future.thenCompose(Function.identity());
+    }
+
+    /**
+     * Add the matches in a page of a search for references to an entity to the map of incoming links, under the
+     * field searched, and fetch the following page if this one was full. The entity itself is not a link.
+     */
+    private CompletableFuture<Void> addIncoming(URI passEntityUri, SearchQuery<?> query, String field,
+                                                SearchHit[] hits, Map<String, Collection<URI>> incoming) {
+        for (SearchHit hit : hits) {
+            URI link = sortedUri(hit);
+            if (!link.equals(passEntityUri)) {
+                incoming.computeIfAbsent(field, f -> ConcurrentHashMap.newKeySet()).add(link);
+            }
+        }
+
+        int pageSize = config.getPageSize();
+        if (hits.length < pageSize) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Object[] searchAfter = hits[hits.length - 1].getSortValues();
+        LOG.debug("Searching index using query: {}, with page size {} after {}", query, pageSize, searchAfter[0]);
+        return search(query, idPage(pageSize, searchAfter), SearchHits::getHits)
+            .thenCompose(next -> addIncoming(passEntityUri, query, field, next, incoming));
+    }
+
+    /**
+     * Extract the URI of each hit
+     */
+    private static Set<URI> toUris(SearchHits hits) {
+        Set<URI> passEntityUris = new HashSet<URI>();
+        Iterator<SearchHit> hitsIt = hits.iterator();
+
+        while (hitsIt.hasNext()) {
+            String idField = hitsIt.next().getSourceAsMap().get(ID_FIELDNAME).toString();
+            try {
                 passEntityUris.add(new URI(idField));
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(
+                    "Something was wrong with the record returned from the indexer. The ID could not be " +
+                    "recognized as a URI", e);
             }
+        }
+        return passEntityUris;
+    }
+
+    /**
+     * Get the only URI matched by a findByAttribute search, or {@code null} if there was no match
+     *
+     * @throws RuntimeException if more than one URI matched
+     */
+    private static URI onlyMatch(String attribute, Object value, Set<URI> passEntityUris) {
+        if (passEntityUris.size() > 1) {
+            throw new RuntimeException(
+                format("More than one results was returned by this query (%s = %s). " +
+                       "findByAttribute() searches should match only one result.  Instead found:\n %s",
+                       attribute, value,
+                       join("\n", passEntityUris.stream().map(URI::toString).collect(toList()))));
+        }
+        URI passEntityUri = null;
+        if (passEntityUris.size() > 0) {
+            passEntityUri = passEntityUris.iterator().next();
+        }
+        return passEntityUri;
+    }
+
+    /**
+     * Bind the source of each hit to a PASS entity
+     */
+    private <T extends PassEntity> List<T> toEntities(SearchHits hits, Class<T> modelClass) {
+        List<T> entities = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            entities.add(adapter.toModel(BytesReference.toBytes(hit.getSourceRef()), modelClass));
+        }
+        return entities;
+    }
+
+    /**
+     * Search elasticsearch for a page of hits at the given offset, converting the hits into a result.
+     *
+     * @param query       query
+     * @param limit       maximum number of hits
+     * @param offset      offset of the first hit
+     * @param includes    source fields to fetch, or {@code null} to fetch the whole source
+     * @param results     converts the hits into the result
+     * @return future result
+     */
+    private <R> CompletableFuture<R> search(SearchQuery<?> query, int limit, int offset, String[] includes,
+                                            Function<SearchHits, R> results) {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.from(offset);
+        sourceBuilder.size(limit);
+        if (includes != null) {
+            sourceBuilder.fetchSource(includes, null);
+        }
+
+        LOG.debug("Searching index using query: {}, with limit {} and offset {}", query, limit, offset);
+        return search(query, sourceBuilder, results);
+    }
+
+    /**
+     * Search elasticsearch with the given query, and the paging, sorting and source settings in the source
+     * builder, converting the hits into a result. The search is made asynchronously, and the returned future is
+     * completed on the client's I/O thread. The number of searches in flight at once is limited by the size of the
+     * connection pool; further searches wait for a connection.
+     *
+     * @param query         query
+     * @param sourceBuilder source builder
+     * @param results       converts the hits into the result
+     * @return future result
+     */
+    private <R> CompletableFuture<R> search(SearchQuery<?> query, SearchSourceBuilder sourceBuilder,
+                                            Function<SearchHits, R> results) {
+
+        CompletableFuture<R> future = new CompletableFuture<>();
+
+        SearchRequest searchRequest = new SearchRequest();
+
+        sourceBuilder.query(query.toQueryBuilder());
+        searchRequest.source(sourceBuilder);
+        searchRequest.indices(indices);
+
+        client.searchAsync(searchRequest, RequestOptions.DEFAULT, new ActionListener<SearchResponse>() {
+            @Override
+            public void onResponse(SearchResponse searchResponse) {
+                R result;
+                try {
+                    result = results.apply(searchResponse.getHits());
+                } catch (Exception e) {
+                    onFailure(e);
+                    return;
+                }
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                future.completeExceptionally(new RuntimeException(
+                    String.format("An error occurred while processing the query: %s", query), e));
+            }
+        });
+
+        return future;
+
+    }
+
+    /**
+     * Build a search for a page of matches sorted by {@code @id}, fetching only their sort values
+     *
+     * @param pageSize    number of matches in the page
+     * @param searchAfter sort values of the last match of the previous page, or {@code null} for the first page
+     * @return source builder, to which the query is yet to be added
+     */
+    private static SearchSourceBuilder idPage(int pageSize, Object[] searchAfter) {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder();
+        sourceBuilder.size(pageSize);
+        sourceBuilder.sort(ID_FIELDNAME, SortOrder.ASC);
+        sourceBuilder.fetchSource(false);
+        if (searchAfter != null) {
+            sourceBuilder.searchAfter(searchAfter);
+        }
+        return sourceBuilder;
+    }
+
+    /**
+     * Get the URI of a hit in a page sorted by {@code @id}, from its sort value
+     */
+    private static URI sortedUri(SearchHit hit) {
+        String idField = hit.getSortValues()[0].toString();
+        try {
+            return new URI(idField);
         } catch (URISyntaxException e) {
             throw new RuntimeException(
-                "Something was wrong with the record returned from the indexer. The ID could not be recognized as a " +
-                "URI",
-                e);
-        } catch (Exception e) {
-            throw new RuntimeException(String.format("An error occurred while processing the query: %s", querystring),
-                                       e);
+                "Something was wrong with the record returned from the indexer. The ID could not be " +
+                "recognized as a URI", e);
         }
+    }
 
-        return passEntityUris;
+    /**
+     * Iterates over the URIs of all records matching a query, sorted by {@code @id}. Each page of matches is
+     * requested with {@code search_after} the last match of the previous page, once the previous page has been
+     * consumed. Only the sort values of the matches are fetched, not their sources.
+     */
+    private class SearchAfterIterator implements Iterator<URI> {
+
+        private final SearchQuery<?> query;
+
+        private final int pageSize;
+
+        private Iterator<SearchHit> page = Collections.emptyIterator();
+
+        private Object[] searchAfter;
+
+        private boolean lastPage = false;
+
+        private SearchAfterIterator(SearchQuery<?> query, int pageSize) {
+            this.query = query;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!page.hasNext() && !lastPage) {
+                fetchPage();
+            }
+            return page.hasNext();
+        }
+
+        @Override
+        public URI next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return sortedUri(page.next());
+        }
 
+        private void fetchPage() {
+            SearchSourceBuilder sourceBuilder = idPage(pageSize, searchAfter);
+
+            LOG.debug("Searching index using query: {}, with page size {} after {}", query, pageSize,
+                      searchAfter == null ? null : searchAfter[0]);
+            SearchHit[] hits = FutureUtil.join(search(query, sourceBuilder, SearchHits::getHits));
+
+            lastPage = hits.length < pageSize;
+            if (hits.length > 0) {
+                searchAfter = hits[hits.length - 1].getSortValues();
+            }
+            page = Arrays.asList(hits).iterator();
+        }
+    }
+
+    /**
+     * Configure a builder for a pooled REST client to the indexer host(s), using the connection settings in
+     * {@link ElasticsearchConfig}
+     *
+     * @param config configuration
+     * @return the builder
+     */
+    @SuppressWarnings("deprecation")
+    private static RestClientBuilder restClientBuilder(ElasticsearchConfig.Snapshot config) {
+        if (config == null) {
+            throw new IllegalArgumentException("config parameter cannot be null");
+        }
+        Set<URL> indexerUrls = config.getIndexerHostUrl();
+        HttpHost[] hosts = new HttpHost[indexerUrls.size()];
+        int count = 0;
+        for (URL url : indexerUrls) {
+            LOG.info("Connecting to index at {}", url);
+            hosts[count] = new HttpHost(url.getHost(), url.getPort(), url.getProtocol());
+            count = count + 1;
+        }
+
+        final int maxConnections = config.getMaxConnections();
+        final int maxConnectionsPerRoute = config.getMaxConnectionsPerRoute();
+        final long keepAlive = config.getKeepAlive();
+        final int connectTimeout = config.getConnectTimeout();
+        final int socketTimeout = config.getSocketTimeout();
+
+        LOG.debug("Index connection pool: {} connections ({} per host), keep-alive {}ms, connect timeout {}ms, " +
+                  "socket timeout {}ms", maxConnections, maxConnectionsPerRoute, keepAlive, connectTimeout,
+                  socketTimeout);
+
+        // Pool threads are daemons so that an unclosed client does not prevent the JVM from exiting
+        final AtomicInteger threadCount = new AtomicInteger();
+
+        // Deprecated, but the 6.x client still enforces the 30s retry timeout, which must not be shorter than the
+        // socket timeout
+        return RestClient.builder(hosts)
+                         .setMaxRetryTimeoutMillis(Math.max(socketTimeout,
+                                                            RestClientBuilder.DEFAULT_MAX_RETRY_TIMEOUT_MILLIS))
+                         .setRequestConfigCallback(requestConfig -> requestConfig
+                             .setConnectTimeout(connectTimeout)
+                             .setSocketTimeout(socketTimeout))
+                         .setHttpClientConfigCallback(httpClient -> httpClient
+                             .setMaxConnTotal(maxConnections)
+                             .setMaxConnPerRoute(maxConnectionsPerRoute)
+                             .setKeepAliveStrategy((response, context) -> {
+                                 long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                                     .getKeepAliveDuration(response, context);
+                                 return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+                             })
+                             .setThreadFactory(runnable -> {
+                                 Thread thread = new Thread(runnable,
+                                                            "pass-elasticsearch-" + threadCount.incrementAndGet());
+                                 thread.setDaemon(true);
+                                 return thread;
+                             }));
     }
 
     private <T extends PassEntity> void validateAttribMapParam(Map<String, Object> valueAttributesMap) {
@@ -292,6 +1125,12 @@ public class ElasticsearchPassClient {
         }
     }
 
+    private void validateQueryParam(SearchQuery<?> query) {
+        if (query == null) {
+            throw new IllegalArgumentException("query cannot be null");
+        }
+    }
+
     private <T extends PassEntity> void validateModelParam(Class<T> modelClass) {
         if (modelClass == null) {
             throw new IllegalArgumentException("modelClass cannot be null");
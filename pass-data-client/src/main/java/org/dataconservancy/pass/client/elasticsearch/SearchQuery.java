@@ -0,0 +1,260 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.elasticsearch;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+/**
+ * A search for PASS entities of one type, matching all of a number of conditions on their attributes.
+ * <p>
+ * For example, to find the submitted Submissions for either of two grants that were submitted in 2019:
+ * </p>
+ * <pre>
+ *   {@code
+ *   SearchQuery<Submission> query = new SearchQuery<>(Submission.class)
+ *       .equal("submitted", true)
+ *       .in("grants", Arrays.asList(grantId1, grantId2))
+ *       .range("submittedDate", new DateTime(2019, 1, 1, 0, 0, DateTimeZone.UTC), null)
+ *       .notEqual("source", Source.OTHER);
+ *   Set<URI> submissions = indexClient.findAllByQuery(query, 100, 0);
+ * }</pre>
+ * <p>
+ * The conditions are sent to the index as a {@code bool} query in filter context, rather than as a query string, so
+ * values need no escaping, and the index can cache each condition for reuse by later searches. Values are converted
+ * to Strings, and {@link DateTime}s to the ISO format they are indexed in. An attribute and value match as they do in
+ * a {@code findByAttribute} search, i.e. as a phrase analyzed the way the field is indexed.
+ * </p>
+ * <p>
+ * A query may be reused for any number of searches, but should not be modified while a search is being made with it.
+ * </p>
+ *
+ * @param <T> PASS entity type
+ * @author Johns Hopkins University
+ */
+public class SearchQuery<T extends PassEntity> {
+
+    private static final String TYPE_FIELDNAME = "@type";
+
+    private static final DateTimeFormatter DATE_FORMATTER = ISODateTimeFormat.dateTime().withZoneUTC();
+
+    private final Class<T> modelClass;
+
+    private final List<QueryBuilder> filters = new ArrayList<>();
+
+    private final List<QueryBuilder> exclusions = new ArrayList<>();
+
+    /**
+     * Create a query matching all entities of the given type
+     *
+     * @param modelClass The class of PASS entity.
+     */
+    public SearchQuery(Class<T> modelClass) {
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+        if (modelClass == PassEntity.class) {
+            throw new IllegalArgumentException("modelClass cannot be the abstract class 'PassEntity.class'");
+        }
+        this.modelClass = modelClass;
+        String indexType = PassEntityType.getTypeByClass(modelClass).getName();
+        this.filters.add(QueryBuilders.matchPhraseQuery(TYPE_FIELDNAME, indexType));
+    }
+
+    /**
+     * Match entities whose attribute has the given value. Where the attribute is multi-valued, one of its values must
+     * match. A {@code null} value matches entities that do not have the attribute.
+     *
+     * @param attribute JSON attribute name
+     * @param value     value to match, may be {@code null}
+     * @return this query
+     */
+    public SearchQuery<T> equal(String attribute, Object value) {
+        validateAttribute(attribute);
+        validateValue(attribute, value);
+        if (value == null) {
+            return missing(attribute);
+        }
+        filters.add(QueryBuilders.matchPhraseQuery(attribute, toIndexValue(value)));
+        return this;
+    }
+
+    /**
+     * Match entities whose attribute has any one of the given values.
+     *
+     * @param attribute JSON attribute name
+     * @param values    values to match, at least one
+     * @return this query
+     */
+    public SearchQuery<T> in(String attribute, Collection<?> values) {
+        filters.add(anyOf(attribute, values));
+        return this;
+    }
+
+    /**
+     * Match entities that have a value for the attribute.
+     *
+     * @param attribute JSON attribute name
+     * @return this query
+     */
+    public SearchQuery<T> exists(String attribute) {
+        validateAttribute(attribute);
+        filters.add(QueryBuilders.existsQuery(attribute));
+        return this;
+    }
+
+    /**
+     * Match entities that do not have a value for the attribute.
+     *
+     * @param attribute JSON attribute name
+     * @return this query
+     */
+    public SearchQuery<T> missing(String attribute) {
+        validateAttribute(attribute);
+        exclusions.add(QueryBuilders.existsQuery(attribute));
+        return this;
+    }
+
+    /**
+     * Match entities whose attribute does not have the given value, including entities that do not have the
+     * attribute. A {@code null} value matches entities that have the attribute.
+     *
+     * @param attribute JSON attribute name
+     * @param value     value not to match, may be {@code null}
+     * @return this query
+     */
+    public SearchQuery<T> notEqual(String attribute, Object value) {
+        validateAttribute(attribute);
+        validateValue(attribute, value);
+        if (value == null) {
+            return exists(attribute);
+        }
+        exclusions.add(QueryBuilders.matchPhraseQuery(attribute, toIndexValue(value)));
+        return this;
+    }
+
+    /**
+     * Match entities whose attribute has none of the given values, including entities that do not have the attribute.
+     *
+     * @param attribute JSON attribute name
+     * @param values    values not to match, at least one
+     * @return this query
+     */
+    public SearchQuery<T> notIn(String attribute, Collection<?> values) {
+        exclusions.add(anyOf(attribute, values));
+        return this;
+    }
+
+    /**
+     * Match entities whose date attribute falls within a range. Both ends of the range are inclusive, and either may be
+     * {@code null} to leave the range open at that end.
+     *
+     * @param attribute JSON attribute name
+     * @param from      earliest date to match, may be {@code null}
+     * @param to        latest date to match, may be {@code null}
+     * @return this query
+     */
+    public SearchQuery<T> range(String attribute, DateTime from, DateTime to) {
+        validateAttribute(attribute);
+        if (from == null && to == null) {
+            throw new IllegalArgumentException("from and to cannot both be null");
+        }
+        RangeQueryBuilder range = QueryBuilders.rangeQuery(attribute);
+        if (from != null) {
+            range.gte(from.toString(DATE_FORMATTER));
+        }
+        if (to != null) {
+            range.lte(to.toString(DATE_FORMATTER));
+        }
+        filters.add(range);
+        return this;
+    }
+
+    /**
+     * @return The class of PASS entity matched by this query
+     */
+    public Class<T> getModelClass() {
+        return modelClass;
+    }
+
+    /**
+     * Build the query to send to the index. Matching entities must match every filter, and none of the exclusions,
+     * neither of which contribute to scoring.
+     *
+     * @return the query
+     */
+    QueryBuilder toQueryBuilder() {
+        BoolQueryBuilder query = QueryBuilders.boolQuery();
+        filters.forEach(query::filter);
+        exclusions.forEach(query::mustNot);
+        return query;
+    }
+
+    /**
+     * @return the query sent to the index, as JSON
+     */
+    @Override
+    public String toString() {
+        return Strings.toString(toQueryBuilder());
+    }
+
+    private QueryBuilder anyOf(String attribute, Collection<?> values) {
+        validateAttribute(attribute);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("values cannot be null or empty");
+        }
+        BoolQueryBuilder anyOf = QueryBuilders.boolQuery();
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("values cannot contain null");
+            }
+            validateValue(attribute, value);
+            anyOf.should(QueryBuilders.matchPhraseQuery(attribute, toIndexValue(value)));
+        }
+        return anyOf.minimumShouldMatch(1);
+    }
+
+    private static String toIndexValue(Object value) {
+        if (value instanceof DateTime) {
+            return ((DateTime) value).toString(DATE_FORMATTER);
+        }
+        return value.toString();
+    }
+
+    private static void validateAttribute(String attribute) {
+        if (attribute == null || attribute.length() == 0) {
+            throw new IllegalArgumentException("attribute cannot be null or empty");
+        }
+    }
+
+    private static void validateValue(String attribute, Object value) {
+        if (value instanceof Collection<?>) {
+            throw new IllegalArgumentException("Value for attribute " + attribute + " cannot be a Collection");
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Extracts the children of a container from an N-Triples representation of it, such as Fedora returns when asked to
+ * include only containment triples.
+ * <p>
+ * The stream is scanned byte by byte, without decoding lines into Strings: only the object of each
+ * {@code ldp:contains} triple is decoded, and handed to a consumer as soon as it has been read, so the children of a
+ * container of any size can be processed in constant memory. Comments, and triples with any other predicate, are
+ * skipped. Children may be pushed to a consumer with {@link #scan(InputStream, Consumer)}, or pulled one at a time
+ * with {@link #next()}.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public final class ContainmentScanner {
+
+    private static final byte[] CONTAINS = "<http://www.w3.org/ns/ldp#contains>".getBytes(US_ASCII);
+
+    private static final int EOF = -1;
+
+    private static final int MATCHED = -2;
+
+    private static final int START = -3;
+
+    private final InputStream in;
+
+    private final byte[] buffer = new byte[8192];
+
+    private int position;
+
+    private int limit;
+
+    private byte[] term = new byte[256];
+
+    private int termLength;
+
+    /**
+     * The character to continue scanning from, or START before any has been read
+     */
+    private int next = START;
+
+    /**
+     * Create a scanner which reads children from N-Triples one at a time, with {@link #next()}.
+     *
+     * @param in N-Triples, encoded as UTF-8
+     */
+    public ContainmentScanner(InputStream in) {
+        if (in == null) {
+            throw new IllegalArgumentException("in parameter cannot be null");
+        }
+        this.in = in;
+    }
+
+    /**
+     * Scan N-Triples for {@code ldp:contains} triples, handing the object of each to the consumer, in the order they
+     * appear. The stream is read to the end, but not closed.
+     *
+     * @param in    N-Triples, encoded as UTF-8
+     * @param child invoked with the URI of each child
+     * @return the number of children
+     * @throws IOException if the stream cannot be read
+     */
+    public static int scan(InputStream in, Consumer<URI> child) throws IOException {
+        if (in == null) {
+            throw new IllegalArgumentException("in cannot be null");
+        }
+        if (child == null) {
+            throw new IllegalArgumentException("child cannot be null");
+        }
+        final ContainmentScanner scanner = new ContainmentScanner(in);
+        int count = 0;
+        for (URI uri = scanner.next(); uri != null; uri = scanner.next()) {
+            child.accept(uri);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Read up to the next {@code ldp:contains} triple. The child is returned as soon as its IRI has been read, without
+     * waiting for the rest of the line. The stream is not closed.
+     *
+     * @return URI of the next child, or {@code null} at the end of the stream
+     * @throws IOException if the stream cannot be read
+     */
+    public URI next() throws IOException {
+        int c = next == START ? read() : skipLine(next);
+        while (c != EOF) {
+            c = skipBlanks(c);
+            if (c == '<') {
+                // Subject is an IRI, otherwise it is a blank node, or this is a comment or empty line
+                c = skipBlanks(skipIri());
+                if (c == '<' && (c = matchContains()) == MATCHED) {
+                    c = skipBlanks(read());
+                    if (c == '<') {
+                        c = readIri();
+                        if (termLength >= 0 && c != '\n' && c != '\r' && c != EOF) {
+                            next = c;
+                            return URI.create(termString());
+                        }
+                    }
+                }
+            }
+            c = skipLine(c);
+        }
+        next = EOF;
+        return null;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return EOF;
+            }
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private int skipBlanks(int c) throws IOException {
+        while (c == ' ' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * @return the first character of the next line
+     */
+    private int skipLine(int c) throws IOException {
+        while (c != '\n' && c != EOF) {
+            c = read();
+        }
+        return c == EOF ? EOF : read();
+    }
+
+    /**
+     * Skip the rest of an IRI, whose opening {@code <} has been read.
+     *
+     * @return the character following the IRI
+     */
+    private int skipIri() throws IOException {
+        int c = read();
+        while (c != '>' && c != '\n' && c != EOF) {
+            c = read();
+        }
+        return c == '>' ? read() : c;
+    }
+
+    /**
+     * Match the rest of the {@code ldp:contains} IRI, whose opening {@code <} has been read.
+     *
+     * @return MATCHED if the IRI is {@code ldp:contains}, otherwise the first character that does not match
+     */
+    private int matchContains() throws IOException {
+        for (int i = 1; i < CONTAINS.length; i++) {
+            int c = read();
+            if (c != CONTAINS[i]) {
+                return c;
+            }
+        }
+        return MATCHED;
+    }
+
+    /**
+     * Read an IRI, whose opening {@code <} has been read, into the term buffer. The term length is -1 if the IRI is
+     * not terminated on the same line.
+     *
+     * @return the character following the IRI
+     */
+    private int readIri() throws IOException {
+        termLength = 0;
+        int c = read();
+        while (c != '>') {
+            if (c == '\n' || c == EOF) {
+                termLength = -1;
+                return c;
+            }
+            if (termLength == term.length) {
+                term = Arrays.copyOf(term, term.length * 2);
+            }
+            term[termLength++] = (byte) c;
+            c = read();
+        }
+        return read();
+    }
+
+    private String termString() {
+        String iri = new String(term, 0, termLength, UTF_8);
+        return iri.indexOf('\\') < 0 ? iri : unescape(iri);
+    }
+
+    /**
+     * Decode the {@code \}{@code uXXXX} and {@code \}{@code UXXXXXXXX} escapes N-Triples allows in IRIs
+     */
+    private static String unescape(String iri) {
+        StringBuilder unescaped = new StringBuilder(iri.length());
+        for (int i = 0; i < iri.length(); i++) {
+            char c = iri.charAt(i);
+            if (c == '\\' && i + 1 < iri.length() && (iri.charAt(i + 1) == 'u' || iri.charAt(i + 1) == 'U')) {
+                int digits = iri.charAt(i + 1) == 'u' ? 4 : 8;
+                if (i + 2 + digits <= iri.length()) {
+                    unescaped.appendCodePoint(Integer.parseInt(iri.substring(i + 2, i + 2 + digits), 16));
+                    i += 1 + digits;
+                    continue;
+                }
+            }
+            unescaped.append(c);
+        }
+        return unescaped.toString();
+    }
+}
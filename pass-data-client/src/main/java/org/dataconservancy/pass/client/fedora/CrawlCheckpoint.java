@@ -0,0 +1,384 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of a depth-first crawl, kept in a local file, from which an interrupted crawl can resume.
+ * <p>
+ * The checkpoint holds the containers being crawled, from the root down to the one whose children are being visited.
+ * For each, it holds the children whose visits have completed, as 64-bit hashes of their URIs; the number of them is
+ * the crawl's position in the container's listing. A resumed crawl skips those children, whether or not the listing
+ * is in the same order as before.
+ * </p>
+ * <p>
+ * The file is a log, to which a record is appended as the crawl enters a container, completes a child which is not
+ * itself crawled, and completes a container. Once the records of completed containers outweigh those still needed,
+ * the file is replaced by one with only the latter. Records are flushed at least every second, so a crawl that stops
+ * abruptly loses at most the last second of its progress; those resources are visited again when it resumes.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+class CrawlCheckpoint implements Closeable {
+
+    private static final int MAGIC = 0x50415343;
+
+    private static final int ENTER = 'E';
+
+    private static final int DONE = 'D';
+
+    private static final int EXIT = 'X';
+
+    private static final long FLUSH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Number of bytes the file may hold beyond twice those still needed, before it is compacted
+     */
+    private static final long COMPACTION_SLACK = 64 * 1024;
+
+    private final Path file;
+
+    /**
+     * Containers being crawled, root first. The first {@code entered} have been entered by this crawl; any others
+     * were read from the file, and are still to be resumed.
+     */
+    private final List<Level> stack = new ArrayList<>();
+
+    private int entered;
+
+    private DataOutputStream out;
+
+    /**
+     * Size of the file when it was last compacted
+     */
+    private long compactedSize;
+
+    private long lastFlush;
+
+    private CrawlCheckpoint(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Open a checkpoint for a crawl, resuming from the file if it exists.
+     *
+     * @param file local file holding the checkpoint
+     * @param root URI of the resource the crawl starts from
+     * @return the checkpoint
+     */
+    static CrawlCheckpoint open(Path file, URI root) {
+        final CrawlCheckpoint checkpoint = new CrawlCheckpoint(file);
+        try {
+            if (Files.exists(file)) {
+                checkpoint.replay();
+            }
+            checkpoint.compact();
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not open crawl checkpoint " + file, e);
+        }
+
+        if (!checkpoint.stack.isEmpty() && !checkpoint.stack.get(0).container.equals(root)) {
+            checkpoint.close();
+            throw new IllegalArgumentException("Checkpoint " + file + " is for a crawl of " + checkpoint.stack.get(0)
+                .container + ", not " + root);
+        }
+        return checkpoint;
+    }
+
+    /**
+     * @param container URI of a container
+     * @return true if the crawl is resuming the container, which has already been visited itself
+     */
+    boolean resumes(URI container) {
+        return entered < stack.size() && stack.get(entered).container.equals(container);
+    }
+
+    /**
+     * Record that the crawl has visited a container, and is about to visit its children.
+     *
+     * @param container URI of the container
+     */
+    void enter(URI container) {
+        if (resumes(container)) {
+            entered++;
+            return;
+        }
+        truncate();
+        stack.add(new Level(container));
+        entered++;
+        write(ENTER, container, 0);
+    }
+
+    /**
+     * @param child URI of a child of the current container
+     * @return true if the child, and any children of its own, have already been visited
+     */
+    boolean isDone(URI child) {
+        return entered > 0 && stack.get(entered - 1).done.contains(hash(child));
+    }
+
+    /**
+     * Record that the crawl has visited a child of the current container, which is not itself crawled.
+     *
+     * @param child URI of the child
+     */
+    void done(URI child) {
+        if (entered == 0) {
+            return;
+        }
+        truncate();
+        final long hash = hash(child);
+        stack.get(entered - 1).done.add(hash);
+        write(DONE, null, hash);
+    }
+
+    /**
+     * Record that the crawl has visited all the children of the current container.
+     */
+    void exit() {
+        truncate();
+        final Level level = stack.remove(--entered);
+        if (entered > 0) {
+            stack.get(entered - 1).done.add(hash(level.container));
+        }
+        write(EXIT, null, 0);
+
+        if (compactedSize + out.size() > 2 * liveSize() + COMPACTION_SLACK) {
+            try {
+                compact();
+            } catch (final IOException e) {
+                throw new RuntimeException("Could not write crawl checkpoint " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return the number of children of the current container whose visits have completed
+     */
+    int position() {
+        return entered > 0 ? stack.get(entered - 1).done.size() : 0;
+    }
+
+    /**
+     * Record that the crawl is complete, by deleting the file.
+     */
+    void complete() {
+        close();
+        try {
+            Files.deleteIfExists(file);
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not delete crawl checkpoint " + file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (final IOException e) {
+                throw new RuntimeException("Could not write crawl checkpoint " + file, e);
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    /**
+     * Forget containers read from the file that the crawl has not resumed, and will not, as it has moved on from the
+     * container that listed them. The file is rewritten without them, so that records appended later apply to the
+     * current container.
+     */
+    private void truncate() {
+        if (stack.size() > entered) {
+            stack.subList(entered, stack.size()).clear();
+            try {
+                compact();
+            } catch (final IOException e) {
+                throw new RuntimeException("Could not write crawl checkpoint " + file, e);
+            }
+        }
+    }
+
+    /**
+     * @return approximate size of the records still needed
+     */
+    private long liveSize() {
+        long size = 4;
+        for (final Level level : stack) {
+            size += 3 + level.container.toString().length() + 9L * level.done.size();
+        }
+        return size;
+    }
+
+    private void write(int type, URI container, long hash) {
+        try {
+            out.writeByte(type);
+            if (type == ENTER) {
+                out.writeUTF(container.toString());
+            } else if (type == DONE) {
+                out.writeLong(hash);
+            }
+
+            final long now = System.nanoTime();
+            if (now - lastFlush > FLUSH_INTERVAL) {
+                out.flush();
+                lastFlush = now;
+            }
+        } catch (final IOException e) {
+            throw new RuntimeException("Could not write crawl checkpoint " + file, e);
+        }
+    }
+
+    private void replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException(file + " is not a crawl checkpoint");
+            }
+            for (int type = in.read(); type != -1; type = in.read()) {
+                if (type == ENTER) {
+                    stack.add(new Level(URI.create(in.readUTF())));
+                } else if (type == DONE && !stack.isEmpty()) {
+                    stack.get(stack.size() - 1).done.add(in.readLong());
+                } else if (type == EXIT && !stack.isEmpty()) {
+                    final Level level = stack.remove(stack.size() - 1);
+                    if (!stack.isEmpty()) {
+                        stack.get(stack.size() - 1).done.add(hash(level.container));
+                    }
+                } else {
+                    throw new IllegalArgumentException("Crawl checkpoint " + file + " is corrupt");
+                }
+            }
+        } catch (final EOFException e) {
+            // The last record was not written in full before the crawl stopped
+        }
+    }
+
+    /**
+     * Replace the file with one holding only the containers being crawled, and their completed children.
+     */
+    private void compact() throws IOException {
+        close();
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream compacted = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+            temp)))) {
+            compacted.writeInt(MAGIC);
+            for (final Level level : stack) {
+                compacted.writeByte(ENTER);
+                compacted.writeUTF(level.container.toString());
+                for (final long hash : level.done.table) {
+                    if (hash != 0) {
+                        compacted.writeByte(DONE);
+                        compacted.writeLong(hash);
+                    }
+                }
+            }
+        }
+        Files.move(temp, file, ATOMIC_MOVE, REPLACE_EXISTING);
+
+        compactedSize = Files.size(file);
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, APPEND)));
+        lastFlush = System.nanoTime();
+    }
+
+    /**
+     * Hash of a URI, never 0, which marks an empty slot
+     */
+    private static long hash(URI uri) {
+        final long hash = RepositoryCrawler.hash(uri);
+        return hash == 0 ? 1 : hash;
+    }
+
+    /**
+     * A container being crawled, and the hashes of its completed children
+     */
+    private static class Level {
+
+        final URI container;
+
+        final Hashes done = new Hashes();
+
+        Level(URI container) {
+            this.container = container;
+        }
+    }
+
+    /**
+     * Set of non-zero hashes, in a table of longs rather than boxed, so that the hashes of a million children take 16
+     * MB at most.
+     */
+    private static class Hashes {
+
+        private long[] table = new long[16];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(long hash) {
+            final int mask = table.length - 1;
+            for (int i = (int) hash & mask; table[i] != 0; i = (i + 1) & mask) {
+                if (table[i] == hash) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void add(long hash) {
+            if (2 * (size + 1) > table.length) {
+                final long[] old = table;
+                table = new long[old.length * 2];
+                size = 0;
+                for (final long h : old) {
+                    if (h != 0) {
+                        add(h);
+                    }
+                }
+            }
+            final int mask = table.length - 1;
+            int i = (int) hash & mask;
+            while (table[i] != 0) {
+                if (table[i] == hash) {
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            table[i] = hash;
+            size++;
+        }
+    }
+}
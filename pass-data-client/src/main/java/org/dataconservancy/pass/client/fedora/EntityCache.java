@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import java.lang.reflect.Constructor;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dataconservancy.pass.model.PassEntity;
+
+/**
+ * A bounded cache of PASS entities read from Fedora, keyed by URI, used by {@link FedoraPassCrudClient} to avoid
+ * downloading and deserializing representations that have not changed.
+ * <p>
+ * Each entry holds the entity and the ETag it was read with. An entry that was read or revalidated less than the
+ * time-to-live ago is fresh, and is returned without a request to Fedora. Once it is stale, the client revalidates it
+ * with an {@code If-None-Match} request; if the resource has not changed, Fedora answers {@code 304 Not Modified} with
+ * no body, and the entry is fresh again. With a time-to-live of zero, the default, every read is revalidated, so reads
+ * see changes as soon as they are made.
+ * </p>
+ * <p>
+ * When the cache is full, the least recently used entry is evicted. The cache holds its own copy of each entity, and
+ * hands out a new copy on every read, so callers may modify the entities they read.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public class EntityCache {
+
+    private final int maxEntries;
+
+    private final long ttlNanos;
+
+    private final Map<URI, Entry> entries;
+
+    private final Map<Class<?>, Constructor<?>> copyConstructors = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong revalidations = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Create a cache configured by {@link FedoraConfig#getCacheSize()} and {@link FedoraConfig#getCacheTtl()}
+     */
+    public EntityCache() {
+        this(FedoraConfig.getCacheSize(), FedoraConfig.getCacheTtl());
+    }
+
+    /**
+     * @param maxEntries maximum number of entities held, at least 1
+     * @param ttlMillis  milliseconds an entry may be used without revalidating it, 0 to revalidate on every read
+     */
+    public EntityCache(int maxEntries, long ttlMillis) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries parameter must be at least 1");
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("ttlMillis parameter cannot be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.entries = new LinkedHashMap<URI, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<URI, Entry> eldest) {
+                if (size() > EntityCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Remove the entry for a resource, if there is one. Called whenever the resource is updated or deleted.
+     *
+     * @param uri resource URI
+     */
+    public void invalidate(URI uri) {
+        synchronized (entries) {
+            entries.remove(uri);
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * @return number of entries in the cache
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return number of reads answered from a fresh entry, without a request to Fedora
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of reads answered from a stale entry, after Fedora confirmed it had not changed
+     */
+    public long getRevalidationCount() {
+        return revalidations.get();
+    }
+
+    /**
+     * @return number of reads that downloaded the representation, because there was no entry or it had changed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of entries evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "EntityCache{size=" + size() + ", hits=" + hits + ", revalidations=" + revalidations + ", misses=" +
+               misses + ", evictions=" + evictions + "}";
+    }
+
+    /**
+     * Look up the entry for a resource read as the given class.
+     *
+     * @return the entry, or {@code null} if there is none, or it holds an entity of a different class
+     */
+    Entry get(URI uri, Class<?> modelClass) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(uri);
+        }
+        return entry != null && entry.entity.getClass() == modelClass ? entry : null;
+    }
+
+    /**
+     * Cache an entity that was just read, along with the ETag it was read with. Entities whose class has no copy
+     * constructor, or that were read without an ETag, are not cached.
+     */
+    void put(URI uri, PassEntity entity, String etag) {
+        misses.incrementAndGet();
+        if (etag == null || copyConstructor(entity.getClass()) == null) {
+            return;
+        }
+        Entry entry = new Entry(copy(entity), etag);
+        synchronized (entries) {
+            entries.put(uri, entry);
+        }
+    }
+
+    /**
+     * @return a copy of the entity in a fresh entry, counting a hit
+     */
+    <T extends PassEntity> T hit(Entry entry) {
+        hits.incrementAndGet();
+        return copy(entry.entity);
+    }
+
+    /**
+     * Mark an entry fresh, after Fedora confirmed it had not changed.
+     *
+     * @return a copy of the entity in the entry, counting a revalidation
+     */
+    <T extends PassEntity> T revalidated(Entry entry) {
+        revalidations.incrementAndGet();
+        entry.validated = System.nanoTime();
+        return copy(entry.entity);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PassEntity> T copy(PassEntity entity) {
+        try {
+            return (T) copyConstructor(entity.getClass()).newInstance(entity);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not copy a cached " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
+    private Constructor<?> copyConstructor(Class<?> modelClass) {
+        return copyConstructors.computeIfAbsent(modelClass, c -> {
+            try {
+                return c.getConstructor(c);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        });
+    }
+
+    /**
+     * A cached entity, the ETag it was read with, and when it was last read or revalidated
+     */
+    class Entry {
+
+        private final PassEntity entity;
+
+        private final String etag;
+
+        private volatile long validated = System.nanoTime();
+
+        private Entry(PassEntity entity, String etag) {
+            this.entity = entity;
+            this.etag = etag;
+        }
+
+        /**
+         * @return the ETag, exactly as Fedora sent it, for use in an {@code If-None-Match} header
+         */
+        String getEtag() {
+            return etag;
+        }
+
+        /**
+         * @return whether the entry may be used without revalidating it
+         */
+        boolean isFresh() {
+            return ttlNanos > 0 && System.nanoTime() - validated < ttlNanos;
+        }
+    }
+}
@@ -16,63 +16,256 @@
 
 package org.dataconservancy.pass.client.fedora;
 
-import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import org.apache.http.conn.ConnectionReleaseTrigger;
 import org.fcrepo.client.FcrepoClient;
 import org.fcrepo.client.FcrepoClient.FcrepoClientBuilder;
+import org.fcrepo.client.FcrepoOperationFailedException;
 import org.fcrepo.client.FcrepoResponse;
 
 /**
  * Lists children of a given container.
  * <p>
- * Uses n-triples for streaming large results
+ * Uses n-triples for streaming large results, which are scanned by {@link ContainmentScanner}
+ * </p>
+ * <p>
+ * A {@link #streamChildren(URI) streamed} listing is read as it is consumed. If the server pages the listing, as LDP
+ * Paging allows, each page is requested in turn by following its {@code next} link. Should reading a page fail part
+ * way through, the page is requested again, and the children already read from it are skipped, so that the stream
+ * resumes where it left off. A streamed listing holds a connection until it is closed, so at most one fewer listings
+ * than the HTTP client allows connections to the repository ({@code http.maxConnections}) are streamed at once; any
+ * others are read in full when requested, so that nested listings cannot exhaust the connections.
  * </p>
  *
  * @author apb@jhu.edu
  */
 class FcrepoLister implements Lister {
 
-    FcrepoClient client = new FcrepoClientBuilder().credentials(FedoraConfig.getUserName(), FedoraConfig
-        .getPassword()).build();
+    /**
+     * Number of times in a row a page is requested again after failing, before the listing fails
+     */
+    static final int MAX_RESUMES = 3;
+
+    FcrepoClient client = new FcrepoClientBuilder().credentials(FedoraConfig.snapshot().getUserName(),
+                                                                   FedoraConfig.snapshot().getPassword()).build();
 
     static final URI PREFER_CONTAINMENT = URI.create("http://www.w3.org/ns/ldp#PreferContainment");
 
-    static final Pattern childPattern = Pattern.compile(
-        ".+?\\s+<http://www.w3.org/ns/ldp#contains>\\s+<(.+?)>.+?");
+    private final Semaphore openListings = new Semaphore(Math.max(0, Integer.getInteger("http.maxConnections", 5)
+                                                                     - 1));
 
     @Override
     public List<URI> getChildren(URI resource) {
-        try (final FcrepoResponse response = client.get(resource)
-                                                   .accept("application/n-triples")
-                                                   .preferRepresentation(asList(PREFER_CONTAINMENT),
-                                                                         emptyList()).perform()) {
+        final List<URI> children = new ArrayList<>();
+        forEachChild(resource, children::add);
+        return children;
+    }
+
+    @Override
+    public void forEachChild(URI resource, Consumer<URI> child) {
+        try (final FcrepoResponse response = get(resource)) {
+
+            ContainmentScanner.scan(response.getBody(), child);
+
+        } catch (final IOException | FcrepoOperationFailedException e) {
+            throw new RuntimeException("Error getting children of " + resource, e);
+        }
+    }
+
+    @Override
+    public Stream<URI> streamChildren(URI resource) {
+        if (!openListings.tryAcquire()) {
+            return getChildren(resource).stream();
+        }
+
+        final Listing listing;
+        try {
+            listing = new Listing(resource);
+        } catch (final RuntimeException e) {
+            openListings.release();
+            throw e;
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(listing, Spliterator.ORDERED |
+                                                                                  Spliterator.NONNULL), false)
+                            .onClose(listing::close);
+    }
+
+    private FcrepoResponse get(URI resource) throws FcrepoOperationFailedException {
+        return client.get(resource)
+                     .accept("application/n-triples")
+                     .preferRepresentation(asList(PREFER_CONTAINMENT), emptyList()).perform();
+    }
+
+    /**
+     * Reads the children of a container from its listing, one page at a time, resuming a page that fails part way.
+     */
+    private class Listing implements Iterator<URI> {
+
+        private final URI container;
+
+        private URI page;
+
+        private FcrepoResponse response;
+
+        private ContainmentScanner scanner;
+
+        /**
+         * Number of children read from the current page
+         */
+        private int position;
+
+        /**
+         * The last child read from the current page
+         */
+        private URI last;
 
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), UTF_8))) {
+        /**
+         * Number of children still to skip, after requesting the current page again
+         */
+        private int skip;
 
-                final List<URI> children = new ArrayList<>();
+        /**
+         * Number of times in a row the current page has been requested again
+         */
+        private int resumes;
 
-                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                    final Matcher aclFinder = childPattern.matcher(line);
-                    if (aclFinder.matches()) {
-                        children.add(URI.create(aclFinder.group(1)));
+        private URI next;
+
+        private boolean closed;
+
+        Listing(URI container) {
+            this.container = container;
+            this.page = container;
+            try {
+                open();
+            } catch (final FcrepoOperationFailedException e) {
+                throw new RuntimeException("Error getting children of " + container, e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && scanner != null) {
+                next = read();
+            }
+            return next != null;
+        }
+
+        @Override
+        public URI next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final URI child = next;
+            next = null;
+            return child;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                release(true);
+                openListings.release();
+            }
+        }
+
+        /**
+         * @return the next child, or null once the last page has been read
+         */
+        private URI read() {
+            while (true) {
+                try {
+                    final URI child = scanner.next();
+
+                    if (child == null) {
+                        if (skip > 0) {
+                            throw new RuntimeException("Listing of " + container + " changed while resuming it");
+                        }
+                        final List<URI> nextPage = response.getLinkHeaders("next");
+                        release(false);
+                        if (nextPage.isEmpty()) {
+                            return null;
+                        }
+                        page = page.resolve(nextPage.get(0));
+                        position = 0;
+                        last = null;
+                        open();
+                    } else if (skip > 0) {
+                        // Already read before the page was requested again
+                        if (--skip == 0 && !child.equals(last)) {
+                            throw new RuntimeException("Listing of " + container + " changed while resuming it");
+                        }
+                    } else {
+                        position++;
+                        last = child;
+                        resumes = 0;
+                        return child;
                     }
+                } catch (final IOException | FcrepoOperationFailedException e) {
+                    resume(e);
                 }
+            }
+        }
 
-                return children;
+        /**
+         * Request the current page again, and skip the children already read from it.
+         */
+        private void resume(Exception cause) {
+            release(true);
+            skip = position;
+            while (true) {
+                if (++resumes > MAX_RESUMES) {
+                    throw new RuntimeException("Error getting children of " + container, cause);
+                }
+                try {
+                    open();
+                    return;
+                } catch (final FcrepoOperationFailedException e) {
+                    cause = e;
+                }
             }
+        }
 
-        } catch (final Exception e) {
-            throw new RuntimeException("Error getting children of " + resource, e);
+        private void open() throws FcrepoOperationFailedException {
+            response = get(page);
+            scanner = new ContainmentScanner(response.getBody());
+        }
+
+        /**
+         * Close the response for the current page. Unless it has been read to the end, its connection is aborted
+         * rather than reused, so that the rest of the page need not be read.
+         */
+        private void release(boolean abort) {
+            if (response == null) {
+                return;
+            }
+            final InputStream body = response.getBody();
+            try {
+                if (abort && body instanceof ConnectionReleaseTrigger) {
+                    ((ConnectionReleaseTrigger) body).abortConnection();
+                }
+                response.close();
+            } catch (final IOException e) {
+                // The connection is discarded either way
+            }
+            response = null;
+            scanner = null;
         }
     }
 }
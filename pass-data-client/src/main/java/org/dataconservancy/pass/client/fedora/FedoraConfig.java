@@ -15,13 +15,24 @@
  */
 package org.dataconservancy.pass.client.fedora;
 
+import java.net.URI;
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.dataconservancy.pass.client.util.ConfigUtil;
+import org.dataconservancy.pass.model.PassEntity;
 import org.dataconservancy.pass.model.PassEntityType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Holds information and methods required to configure Fedora.
+ * <p>
+ * Each of the static methods reads its setting from the system properties or environment when called. Clients
+ * instead read all of the settings once, as a {@link Snapshot}, so that no configuration is read per request. The
+ * {@link #snapshot() current snapshot} is taken when first needed, and again when {@link #refresh() refreshed}; a
+ * client keeps the snapshot it was created with.
+ * </p>
  *
  * @author Karen Hanson
  */
@@ -41,6 +52,59 @@ public class FedoraConfig {
     private static final String BASEURL_KEY = "pass.fedora.baseurl";
     private static final String DEFAULT_BASE_URL = "http://localhost:8080/fcrepo/rest/";
 
+    private static final String MAX_REQUESTS_KEY = "pass.fedora.requests.max";
+    private static final Integer DEFAULT_MAX_REQUESTS = 64;
+
+    private static final String READ_PARALLELISM_KEY = "pass.fedora.read.parallelism";
+    private static final Integer DEFAULT_READ_PARALLELISM = 8;
+
+    private static final String CRAWL_PARALLELISM_KEY = "pass.fedora.crawl.parallelism";
+    private static final Integer DEFAULT_CRAWL_PARALLELISM = 1;
+
+    private static final String CRAWL_ORDERED_KEY = "pass.fedora.crawl.ordered";
+    private static final String DEFAULT_CRAWL_ORDERED = "false";
+
+    private static final String CRAWL_CHECKPOINT_DIR_KEY = "pass.fedora.crawl.checkpoint.dir";
+
+    private static final String CRAWL_SHARD_INDEX_KEY = "pass.fedora.crawl.shard.index";
+    private static final String DEFAULT_CRAWL_SHARD_INDEX = "0";
+
+    private static final String CRAWL_SHARD_COUNT_KEY = "pass.fedora.crawl.shard.count";
+    private static final Integer DEFAULT_CRAWL_SHARD_COUNT = 1;
+
+    private static final String CACHE_ENABLED_KEY = "pass.fedora.cache.enabled";
+    private static final String DEFAULT_CACHE_ENABLED = "false";
+
+    private static final String CACHE_SIZE_KEY = "pass.fedora.cache.size";
+    private static final Integer DEFAULT_CACHE_SIZE = 1000;
+
+    private static final String CACHE_TTL_KEY = "pass.fedora.cache.ttl";
+    private static final Integer DEFAULT_CACHE_TTL = 0;
+
+    private static volatile Snapshot snapshot;
+
+    /**
+     * Get the current snapshot of the configuration, taking it if it has not yet been taken.
+     *
+     * @return the snapshot
+     */
+    public static Snapshot snapshot() {
+        Snapshot current = snapshot;
+        return current != null ? current : refresh();
+    }
+
+    /**
+     * Take a new snapshot of the configuration, which becomes the current one, should the configuration have changed.
+     * Clients already created keep the snapshot they were created with.
+     *
+     * @return the new snapshot
+     */
+    public static Snapshot refresh() {
+        Snapshot current = new Snapshot();
+        snapshot = current;
+        return current;
+    }
+
     /**
      * Get the Fedora baseUrl
      *
@@ -76,6 +140,149 @@ public class FedoraConfig {
         return user;
     }
 
+    /**
+     * Get the maximum number of requests that may be in flight to Fedora at once, defaults to DEFAULT_MAX_REQUESTS
+     * if not set. Further requests are queued until one completes.
+     *
+     * @return maximum number of concurrent requests
+     */
+    public static Integer getMaxRequests() {
+        Integer maxRequests = getPositiveInteger(MAX_REQUESTS_KEY, DEFAULT_MAX_REQUESTS);
+        LOG.debug("Using maximum of {} concurrent requests", maxRequests);
+        return maxRequests;
+    }
+
+    /**
+     * Get the maximum number of resources read concurrently by a batch read, defaults to DEFAULT_READ_PARALLELISM if
+     * not set. Concurrent reads still count towards {@link #getMaxRequests()}.
+     *
+     * @return maximum number of concurrent reads in a batch
+     */
+    public static Integer getReadParallelism() {
+        Integer parallelism = getPositiveInteger(READ_PARALLELISM_KEY, DEFAULT_READ_PARALLELISM);
+        LOG.debug("Using batch read parallelism of {}", parallelism);
+        return parallelism;
+    }
+
+    /**
+     * Get the number of threads used to crawl the repository, defaults to DEFAULT_CRAWL_PARALLELISM if not set.
+     *
+     * @return crawl parallelism
+     * @see RepositoryCrawler#parallelism(int)
+     */
+    public static Integer getCrawlParallelism() {
+        Integer parallelism = getPositiveInteger(CRAWL_PARALLELISM_KEY, DEFAULT_CRAWL_PARALLELISM);
+        LOG.debug("Using crawl parallelism of {}", parallelism);
+        return parallelism;
+    }
+
+    /**
+     * Whether a parallel crawl visits resources in the order of a serial crawl, defaults to false if not set.
+     *
+     * @return true if parallel crawls are ordered
+     * @see RepositoryCrawler#ordered(boolean)
+     */
+    public static boolean getCrawlOrdered() {
+        boolean ordered = Boolean.parseBoolean(ConfigUtil.getSystemProperty(CRAWL_ORDERED_KEY, DEFAULT_CRAWL_ORDERED));
+        LOG.debug("Parallel crawls ordered: {}", ordered);
+        return ordered;
+    }
+
+    /**
+     * Get the directory in which crawls of the repository keep checkpoints, from which they resume should they be
+     * interrupted. Defaults to null, for no checkpoints, if not set.
+     *
+     * @return checkpoint directory, or null
+     * @see RepositoryCrawler#visit(java.net.URI, java.util.function.Consumer, java.util.function.Predicate,
+     * java.util.function.Predicate, java.nio.file.Path)
+     */
+    public static String getCrawlCheckpointDir() {
+        String dir = ConfigUtil.getSystemProperty(CRAWL_CHECKPOINT_DIR_KEY, null);
+        LOG.debug("Using crawl checkpoint directory {}", dir);
+        return dir;
+    }
+
+    /**
+     * Get the number of shards crawls of the repository are divided into, defaults to DEFAULT_CRAWL_SHARD_COUNT if not
+     * set.
+     *
+     * @return shard count
+     * @see RepositoryCrawler#shard(int, int)
+     */
+    public static Integer getCrawlShardCount() {
+        Integer count = getPositiveInteger(CRAWL_SHARD_COUNT_KEY, DEFAULT_CRAWL_SHARD_COUNT);
+        LOG.debug("Using crawl shard count of {}", count);
+        return count;
+    }
+
+    /**
+     * Get the index of the shard of the repository this client crawls, defaults to 0 if not set. Unlike other
+     * settings, an invalid value is an error rather than replaced by the default, as another shard would then be
+     * crawled twice and this one not at all.
+     *
+     * @return shard index, from 0 to {@link #getCrawlShardCount()} - 1
+     * @see RepositoryCrawler#shard(int, int)
+     */
+    public static Integer getCrawlShardIndex() {
+        String value = ConfigUtil.getSystemProperty(CRAWL_SHARD_INDEX_KEY, DEFAULT_CRAWL_SHARD_INDEX);
+        Integer index;
+        try {
+            index = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Value of " + CRAWL_SHARD_INDEX_KEY + " is not a number: " + value, e);
+        }
+        if (index < 0 || index >= getCrawlShardCount()) {
+            throw new IllegalArgumentException("Value of " + CRAWL_SHARD_INDEX_KEY + " must be at least 0 and less " +
+                                               "than " + CRAWL_SHARD_COUNT_KEY + ": " + value);
+        }
+        LOG.debug("Using crawl shard index of {}", index);
+        return index;
+    }
+
+    /**
+     * Whether entities read from Fedora are cached, defaults to false if not set.
+     *
+     * @return true if reads are cached
+     * @see EntityCache
+     */
+    public static boolean getCacheEnabled() {
+        boolean enabled = Boolean.parseBoolean(ConfigUtil.getSystemProperty(CACHE_ENABLED_KEY, DEFAULT_CACHE_ENABLED));
+        LOG.debug("Entity cache enabled: {}", enabled);
+        return enabled;
+    }
+
+    /**
+     * Get the maximum number of entities held by the entity cache, defaults to DEFAULT_CACHE_SIZE if not set.
+     *
+     * @return maximum number of cached entities
+     */
+    public static Integer getCacheSize() {
+        Integer size = getPositiveInteger(CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+        LOG.debug("Using entity cache size of {}", size);
+        return size;
+    }
+
+    /**
+     * Get the number of milliseconds a cached entity may be used without revalidating it with Fedora, defaults to
+     * DEFAULT_CACHE_TTL if not set. With a value of 0, every read is revalidated.
+     *
+     * @return time-to-live in milliseconds
+     */
+    public static Integer getCacheTtl() {
+        Integer ttl = DEFAULT_CACHE_TTL;
+        try {
+            ttl = Integer.parseInt(ConfigUtil.getSystemProperty(CACHE_TTL_KEY, DEFAULT_CACHE_TTL.toString()));
+            if (ttl < 0) {
+                ttl = DEFAULT_CACHE_TTL;
+                LOG.warn("Value of {} was less than 0, using default of {}", CACHE_TTL_KEY, ttl);
+            }
+        } catch (Exception e) {
+            LOG.warn("Value of " + CACHE_TTL_KEY + " could not be converted to an Integer, using default of " + ttl, e);
+        }
+        LOG.debug("Using entity cache time-to-live of {}ms", ttl);
+        return ttl;
+    }
+
     /**
      * Get a path for a container, given a PASS type
      *
@@ -95,4 +302,210 @@ public class FedoraConfig {
         return path;
     }
 
+    /**
+     * Read an integer setting, falling back to the default if it is not set, less than 1, or not a number
+     *
+     * @param key          property key
+     * @param defaultValue default value
+     * @return the setting
+     */
+    private static Integer getPositiveInteger(String key, Integer defaultValue) {
+        Integer value = defaultValue;
+        try {
+            value = Integer.parseInt(ConfigUtil.getSystemProperty(key, defaultValue.toString()));
+            if (value < 1) {
+                value = defaultValue;
+                LOG.warn("Value of {} was less than 1, using default of {}", key, value);
+            }
+        } catch (Exception e) {
+            value = defaultValue;
+            LOG.warn("Value of " + key + " could not be converted to an Integer, using default of " + value, e);
+        }
+        return value;
+    }
+
+    /**
+     * An immutable snapshot of the Fedora configuration, read once when it is taken. The container of each type of
+     * entity is resolved up front.
+     */
+    public static final class Snapshot {
+
+        private final String baseUrl;
+
+        private final String userName;
+
+        private final String password;
+
+        private final Map<PassEntityType, URI> containers = new EnumMap<>(PassEntityType.class);
+
+        private final int maxRequests;
+
+        private final int readParallelism;
+
+        private final int crawlParallelism;
+
+        private final boolean crawlOrdered;
+
+        private final String crawlCheckpointDir;
+
+        private final int crawlShardIndex;
+
+        private final int crawlShardCount;
+
+        private final boolean cacheEnabled;
+
+        private final int cacheSize;
+
+        private final int cacheTtl;
+
+        private Snapshot() {
+            baseUrl = FedoraConfig.getBaseUrl();
+            userName = FedoraConfig.getUserName();
+            password = FedoraConfig.getPassword();
+            for (PassEntityType type : PassEntityType.values()) {
+                containers.put(type, URI.create(baseUrl + type.getPlural()));
+            }
+            maxRequests = FedoraConfig.getMaxRequests();
+            readParallelism = FedoraConfig.getReadParallelism();
+            crawlParallelism = FedoraConfig.getCrawlParallelism();
+            crawlOrdered = FedoraConfig.getCrawlOrdered();
+            crawlCheckpointDir = FedoraConfig.getCrawlCheckpointDir();
+            crawlShardCount = FedoraConfig.getCrawlShardCount();
+            crawlShardIndex = FedoraConfig.getCrawlShardIndex();
+            cacheEnabled = FedoraConfig.getCacheEnabled();
+            cacheSize = FedoraConfig.getCacheSize();
+            cacheTtl = FedoraConfig.getCacheTtl();
+        }
+
+        /**
+         * @return the base URL, ending with a slash
+         * @see FedoraConfig#getBaseUrl()
+         */
+        public String getBaseUrl() {
+            return baseUrl;
+        }
+
+        /**
+         * @return user name
+         * @see FedoraConfig#getUserName()
+         */
+        public String getUserName() {
+            return userName;
+        }
+
+        /**
+         * @return password
+         * @see FedoraConfig#getPassword()
+         */
+        public String getPassword() {
+            return password;
+        }
+
+        /**
+         * Get the container of a type of entity.
+         *
+         * @param type type of entity
+         * @return the container
+         */
+        public URI getContainer(PassEntityType type) {
+            if (type == null) {
+                throw new IllegalArgumentException("type cannot be null");
+            }
+            return containers.get(type);
+        }
+
+        /**
+         * Get the container of a class of entity.
+         *
+         * @param modelClass class of entity
+         * @return the container
+         */
+        public URI getContainer(Class<? extends PassEntity> modelClass) {
+            if (modelClass == null) {
+                throw new IllegalArgumentException("modelClass cannot be null");
+            }
+            return containers.get(PassEntityType.getTypeByClass(modelClass));
+        }
+
+        /**
+         * @return maximum number of concurrent requests
+         * @see FedoraConfig#getMaxRequests()
+         */
+        public int getMaxRequests() {
+            return maxRequests;
+        }
+
+        /**
+         * @return maximum number of concurrent reads in a batch
+         * @see FedoraConfig#getReadParallelism()
+         */
+        public int getReadParallelism() {
+            return readParallelism;
+        }
+
+        /**
+         * @return crawl parallelism
+         * @see FedoraConfig#getCrawlParallelism()
+         */
+        public int getCrawlParallelism() {
+            return crawlParallelism;
+        }
+
+        /**
+         * @return true if parallel crawls are ordered
+         * @see FedoraConfig#getCrawlOrdered()
+         */
+        public boolean getCrawlOrdered() {
+            return crawlOrdered;
+        }
+
+        /**
+         * @return checkpoint directory, or null
+         * @see FedoraConfig#getCrawlCheckpointDir()
+         */
+        public String getCrawlCheckpointDir() {
+            return crawlCheckpointDir;
+        }
+
+        /**
+         * @return shard index
+         * @see FedoraConfig#getCrawlShardIndex()
+         */
+        public int getCrawlShardIndex() {
+            return crawlShardIndex;
+        }
+
+        /**
+         * @return shard count
+         * @see FedoraConfig#getCrawlShardCount()
+         */
+        public int getCrawlShardCount() {
+            return crawlShardCount;
+        }
+
+        /**
+         * @return true if reads are cached
+         * @see FedoraConfig#getCacheEnabled()
+         */
+        public boolean getCacheEnabled() {
+            return cacheEnabled;
+        }
+
+        /**
+         * @return maximum number of cached entities
+         * @see FedoraConfig#getCacheSize()
+         */
+        public int getCacheSize() {
+            return cacheSize;
+        }
+
+        /**
+         * @return time-to-live in milliseconds
+         * @see FedoraConfig#getCacheTtl()
+         */
+        public int getCacheTtl() {
+            return cacheTtl;
+        }
+    }
+
 }
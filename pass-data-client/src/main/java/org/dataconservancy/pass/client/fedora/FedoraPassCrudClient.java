@@ -17,25 +17,41 @@ package org.dataconservancy.pass.client.fedora;
 
 import static java.lang.String.format;
 import static java.util.Base64.getEncoder;
-import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.Ignore.IGNORE_CONTAINERS;
 import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.Skip.SKIP_ACLS;
 import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.Skip.depth;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -43,23 +59,34 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.logging.HttpLoggingInterceptor;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
 import org.apache.http.HttpStatus;
 import org.dataconservancy.pass.client.PassClientDefault;
 import org.dataconservancy.pass.client.PassJsonAdapter;
+import org.dataconservancy.pass.client.ReadResult;
 import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.client.fedora.RepositoryCrawler.State;
+import org.dataconservancy.pass.client.util.FutureUtil;
 import org.dataconservancy.pass.model.PassEntity;
-import org.fcrepo.client.DeleteBuilder;
+import org.dataconservancy.pass.model.PassEntityType;
 import org.fcrepo.client.FcrepoClient;
-import org.fcrepo.client.FcrepoOperationFailedException;
-import org.fcrepo.client.FcrepoResponse;
-import org.fcrepo.client.GetBuilder;
-import org.fcrepo.client.PostBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Fedora CRUD client does basic work of creating, retrieving, updating, and deleting
  * records in Fedora based on model and/or URI provided.
+ * <p>
+ * Every operation has a blocking form, and a non-blocking {@code *Async} form that returns a
+ * {@link CompletableFuture}. Requests are made asynchronously with OkHttp; the blocking forms wait for the result.
+ * At most {@link FedoraConfig#getMaxRequests()} requests are in flight at once; further requests are queued until
+ * one completes. Responses are read on OkHttp's dispatcher threads, and futures are completed on other threads of the
+ * dispatcher's executor once the request no longer counts towards the limit, so dependent stages may make further
+ * requests of this client.
+ * </p>
  *
  * @author Karen Hanson
  */
@@ -69,23 +96,27 @@ public class FedoraPassCrudClient {
 
     private final static String JSONLD_CONTENTTYPE = "application/ld+json; charset=utf-8";
     private final static String JSONLD_PATCH_CONTENTTYPE = "application/merge-patch+json; charset=utf-8";
+    private final static String BINARY_CONTENTTYPE = "application/octet-stream";
     private final static String SERVER_MANAGED_OMITTYPE = "http://fedora.info/definitions/v4/repository#ServerManaged";
     private final static String ACCEPT_HEADER = "Accept";
     private final static String COMPACTED_ACCEPTTYPE = "application/ld+json";
     private final static String PREFER_HEADER = "Prefer";
     private final static String PREFER_LENIENT_VAL = "handling=lenient; received=\"minimal\"";
+    private final static String PREFER_READ_VAL = "return=representation; omit=\"" + SERVER_MANAGED_OMITTYPE + "\"";
     private final static String INCOMING_INCLUDETYPE = "http://fedora.info/definitions/v4/repository#InboundReferences";
+    private final static String PREFER_INCOMING_VAL = "return=representation; include=\"" + INCOMING_INCLUDETYPE +
+                                                      "\"; omit=\"" + SERVER_MANAGED_OMITTYPE + "\"";
     private final static String IFMATCH_HEADER = "If-Match";
+    private final static String IFNONEMATCH_HEADER = "If-None-Match";
     private final static String ETAG_HEADER = "ETag";
     private final static String ETAG_WEAK_PREFIX = "W/";
+    private final static String SLUG_HEADER = "Slug";
+    private final static String DIGEST_HEADER = "Digest";
+    private final static String CONTENT_DISPOSITION_HEADER = "Content-Disposition";
+    private final static String LOCATION_HEADER = "Location";
 
     /**
-     * The Fedora client tool
-     */
-    private FcrepoClient client;
-
-    /**
-     * OkHttp client, for when using HTTP is desired
+     * OkHttp client, used for all requests to Fedora
      */
     private OkHttpClient okHttpClient;
 
@@ -94,10 +125,20 @@ public class FedoraPassCrudClient {
      */
     private PassJsonAdapter adapter;
 
+    /**
+     * Configuration this client was created with
+     */
+    private final FedoraConfig.Snapshot config;
+
     /**
      * Crawls the repository
      */
-    private RepositoryCrawler crawler = new RepositoryCrawler();
+    private RepositoryCrawler crawler;
+
+    /**
+     * Ignores the containers of PASS entities below the configured base URL when crawling
+     */
+    private final Predicate<State> ignoreContainers;
 
     /**
      * If this is set to true, on update PUT will be used instead of PATCH to perform updates
@@ -108,64 +149,100 @@ public class FedoraPassCrudClient {
     private boolean overwriteOnUpdate = false;
 
     /**
-     * Instantiates default implementations of the underlying Fedora client, JSON adapter, and OkHttpClient.
+     * Maximum number of resources read concurrently by a batch read
+     */
+    private int readParallelism;
+
+    /**
+     * Cache of entities read, or null if reads are not cached
+     */
+    private EntityCache cache;
+
+    /**
+     * Instantiates default implementations of the JSON adapter and OkHttpClient, configured by the current
+     * {@link FedoraConfig#snapshot() snapshot} of the configuration.
      */
     public FedoraPassCrudClient() {
-        this(FcrepoClient.client()
-                         .credentials(FedoraConfig.getUserName(), FedoraConfig.getPassword())
-                         .throwExceptionOnFailure()
-                         .build(),
-             new PassJsonAdapterBasic());
+        this(FedoraConfig.snapshot());
     }
 
     /**
-     * Support passing in of Fedora client and adapter.  Instantiates a default OkHttpClient.
+     * Instantiates default implementations of the JSON adapter and OkHttpClient, configured by the given snapshot of
+     * the configuration.
+     *
+     * @param config configuration
+     */
+    public FedoraPassCrudClient(FedoraConfig.Snapshot config) {
+        this(new PassJsonAdapterBasic(), config);
+    }
+
+    /**
+     * Support passing in of the JSON adapter. Instantiates a default OkHttpClient.
      *
-     * @param client  Fedora client.
      * @param adapter JSON adapter.
      */
-    public FedoraPassCrudClient(FcrepoClient client, PassJsonAdapter adapter) {
-        if (client == null) {
-            throw new IllegalArgumentException("client parameter cannot be null");
-        }
+    public FedoraPassCrudClient(PassJsonAdapter adapter) {
+        this(adapter, FedoraConfig.snapshot());
+    }
+
+    private FedoraPassCrudClient(PassJsonAdapter adapter, FedoraConfig.Snapshot config) {
+        this(adapter, defaultOkHttpClient(config), config);
+    }
+
+    /**
+     * Support passing in of JSON adapter and OkHttpClient. The number of requests in flight at once is governed by
+     * the {@link Dispatcher} of the supplied client.
+     *
+     * @param adapter      JSON adapter
+     * @param okHttpClient HTTP client
+     */
+    public FedoraPassCrudClient(PassJsonAdapter adapter, OkHttpClient okHttpClient) {
+        this(adapter, okHttpClient, FedoraConfig.snapshot());
+    }
+
+    /**
+     * Support passing in of JSON adapter, OkHttpClient, and the snapshot of the configuration used for everything
+     * else. The number of requests in flight at once is governed by the {@link Dispatcher} of the supplied client.
+     *
+     * @param adapter      JSON adapter
+     * @param okHttpClient HTTP client
+     * @param config       configuration
+     */
+    public FedoraPassCrudClient(PassJsonAdapter adapter, OkHttpClient okHttpClient, FedoraConfig.Snapshot config) {
         if (adapter == null) {
             throw new IllegalArgumentException("adapter parameter cannot be null");
         }
-        this.client = client;
-        this.adapter = adapter;
-
-        OkHttpClient.Builder okBuilder = new OkHttpClient.Builder();
-
-        if (FedoraConfig.getUserName() != null) {
-            okBuilder.addInterceptor((requestChain) -> {
-                Request request = requestChain.request();
-                LOG.trace("Adding 'Authorization' header for communication with {}", FedoraConfig.getBaseUrl());
-                Request.Builder reqBuilder = request.newBuilder();
-                byte[] bytes = format("%s:%s",
-                                      FedoraConfig.getUserName(), FedoraConfig.getPassword()).getBytes();
-                return requestChain.proceed(reqBuilder.addHeader("Authorization",
-                                                                 "Basic " + getEncoder().encodeToString(bytes))
-                                                      .build());
-            });
+        if (okHttpClient == null) {
+            throw new IllegalArgumentException("okhttpclient parameter cannot be null");
         }
-
-        if (LOG.isDebugEnabled()) {
-            Interceptor loggingInterceptor = new HttpLoggingInterceptor(LOG::debug);
-            okBuilder.addInterceptor(loggingInterceptor);
+        if (config == null) {
+            throw new IllegalArgumentException("config parameter cannot be null");
         }
+        this.adapter = adapter;
+        this.okHttpClient = okHttpClient;
+        this.config = config;
+        this.crawler = new RepositoryCrawler().parallelism(config.getCrawlParallelism())
+                                              .ordered(config.getCrawlOrdered())
+                                              .shard(config.getCrawlShardIndex(), config.getCrawlShardCount());
+        this.ignoreContainers = RepositoryCrawler.Ignore.containers(config.getBaseUrl());
+        this.readParallelism = config.getReadParallelism();
+        this.cache = config.getCacheEnabled() ? new EntityCache(config.getCacheSize(), config.getCacheTtl()) : null;
+    }
 
-        String userAgent = System.getProperty("http.agent");
-        if (userAgent != null) {
-            LOG.trace("Adding 'User-Agent' header with value: {}", userAgent);
-            okBuilder.addInterceptor((requestChain) -> {
-                Request.Builder reqBuilder = requestChain.request().newBuilder();
-                reqBuilder.removeHeader("User-Agent");
-                reqBuilder.addHeader("User-Agent", userAgent);
-                return requestChain.proceed(reqBuilder.build());
-            });
+    /**
+     * Support passing in of Fedora client and adapter.  Instantiates a default OkHttpClient.
+     *
+     * @param client  Fedora client.
+     * @param adapter JSON adapter.
+     * @deprecated all requests are now made with OkHttp, and the Fedora client is not used. Use
+     * {@link #FedoraPassCrudClient(PassJsonAdapter)}
+     */
+    @Deprecated
+    public FedoraPassCrudClient(FcrepoClient client, PassJsonAdapter adapter) {
+        this(adapter);
+        if (client == null) {
+            throw new IllegalArgumentException("client parameter cannot be null");
         }
-
-        this.okHttpClient = okBuilder.build();
     }
 
     /**
@@ -174,20 +251,15 @@ public class FedoraPassCrudClient {
      * @param client       Fedora client
      * @param adapter      JSON adapter
      * @param okHttpClient HTTP client
+     * @deprecated all requests are now made with OkHttp, and the Fedora client is not used. Use
+     * {@link #FedoraPassCrudClient(PassJsonAdapter, OkHttpClient)}
      */
+    @Deprecated
     public FedoraPassCrudClient(FcrepoClient client, PassJsonAdapter adapter, OkHttpClient okHttpClient) {
+        this(adapter, okHttpClient);
         if (client == null) {
             throw new IllegalArgumentException("client parameter cannot be null");
         }
-        if (adapter == null) {
-            throw new IllegalArgumentException("adapter parameter cannot be null");
-        }
-        if (okHttpClient == null) {
-            throw new IllegalArgumentException("okhttpclient parameter cannot be null");
-        }
-        this.client = client;
-        this.adapter = adapter;
-        this.okHttpClient = okHttpClient;
     }
 
     /**
@@ -201,13 +273,56 @@ public class FedoraPassCrudClient {
         return this;
     }
 
+    /**
+     * Set the maximum number of resources read concurrently by a batch read. Defaults to
+     * {@link FedoraConfig#getReadParallelism()}.
+     *
+     * @param readParallelism maximum number of concurrent reads, at least 1
+     * @return this client
+     */
+    public FedoraPassCrudClient readParallelism(int readParallelism) {
+        if (readParallelism < 1) {
+            throw new IllegalArgumentException("readParallelism must be at least 1");
+        }
+        this.readParallelism = readParallelism;
+        return this;
+    }
+
+    /**
+     * Set the cache of entities read by this client, replacing any existing cache. Defaults to a new
+     * {@link EntityCache} if {@link FedoraConfig#getCacheEnabled()}, otherwise none.
+     *
+     * @param cache the cache, or {@code null} to read without caching
+     * @return this client
+     */
+    public FedoraPassCrudClient cache(EntityCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * @return the cache of entities read by this client, for its metrics, or {@code null} if reads are not cached
+     */
+    public EntityCache getCache() {
+        return cache;
+    }
+
     /**
      * @param modelObj modelObj
      * @return URI
      * @see org.dataconservancy.pass.client.PassClient#createResource(PassEntity)
      */
     public URI createResource(PassEntity modelObj) {
-        return createInternal(modelObj, true).getId();
+        return FutureUtil.join(createResourceAsync(modelObj));
+    }
+
+    /**
+     * @param modelObj modelObj
+     * @return future URI
+     * @see org.dataconservancy.pass.client.AsyncPassClient#createResource(PassEntity)
+     */
+    public CompletableFuture<URI> createResourceAsync(PassEntity modelObj) {
+        return createInternal(modelObj, true).thenApply(PassEntity::getId);
     }
 
     /**
@@ -218,6 +333,17 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#createResource(PassEntity)
      */
     public <T extends PassEntity> T createAndReadResource(T modelObj, Class<T> modelClass) {
+        return FutureUtil.join(createAndReadResourceAsync(modelObj, modelClass));
+    }
+
+    /**
+     * @param modelObj   modelObj
+     * @param modelClass modelClass
+     * @param <T>        PASS entity type
+     * @return future PASS entity.
+     * @see org.dataconservancy.pass.client.AsyncPassClient#createAndReadResource(PassEntity, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<T> createAndReadResourceAsync(T modelObj, Class<T> modelClass) {
         return createInternal(modelObj, true);
     }
 
@@ -226,7 +352,16 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#updateResource(PassEntity)
      */
     public void updateResource(PassEntity modelObj) {
-        updateInternal(modelObj, true, false);
+        FutureUtil.join(updateResourceAsync(modelObj));
+    }
+
+    /**
+     * @param modelObj modelObj
+     * @return future that completes when the update has been made
+     * @see org.dataconservancy.pass.client.AsyncPassClient#updateResource(PassEntity)
+     */
+    public CompletableFuture<Void> updateResourceAsync(PassEntity modelObj) {
+        return updateInternal(modelObj, true);
     }
 
     /**
@@ -237,7 +372,20 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#updateAndReadResource(PassEntity, Class)
      */
     public <T extends PassEntity> T updateAndReadResource(T modelObj, Class<T> modelClass) {
-        return updateInternal(modelObj, true, true);
+        return FutureUtil.join(updateAndReadResourceAsync(modelObj, modelClass));
+    }
+
+    /**
+     * @param modelObj   modelObj
+     * @param modelClass modelClass
+     * @param <T>        PASS entity type
+     * @return future PASS entity.
+     * @see org.dataconservancy.pass.client.AsyncPassClient#updateAndReadResource(PassEntity, Class)
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends PassEntity> CompletableFuture<T> updateAndReadResourceAsync(T modelObj, Class<T> modelClass) {
+        return updateInternal(modelObj, true)
+            .thenCompose(updated -> readResourceAsync(modelObj.getId(), (Class<T>) modelObj.getClass()));
     }
 
     /**
@@ -245,11 +393,29 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#deleteResource(URI)
      */
     public void deleteResource(URI uri) {
-        try (FcrepoResponse response = new DeleteBuilder(uri, client).perform()) {
-            LOG.info("Resource deletion status for {}: {}", uri, response.getStatusCode());
-        } catch (IOException | FcrepoOperationFailedException e) {
-            throw new RuntimeException("A problem occurred while attempting to delete a Resource", e);
-        }
+        FutureUtil.join(deleteResourceAsync(uri));
+    }
+
+    /**
+     * @param uri uri.
+     * @return future that completes when the resource has been deleted
+     * @see org.dataconservancy.pass.client.AsyncPassClient#deleteResource(URI)
+     */
+    public CompletableFuture<Void> deleteResourceAsync(URI uri) {
+        Request request = new Request.Builder()
+            .url(uri.toString())
+            .delete()
+            .build();
+
+        return execute(request, res -> {
+            invalidate(uri);
+            checkStatus(uri, res);
+            LOG.info("Resource deletion status for {}: {}", uri, res.code());
+            return (Void) null;
+        }, e -> {
+            invalidate(uri);
+            return new RuntimeException("A problem occurred while attempting to delete a Resource", e);
+        });
     }
 
     /**
@@ -260,34 +426,125 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#readResource(URI, Class)
      */
     public <T extends PassEntity> T readResource(URI uri, Class<T> modelClass) {
+        return FutureUtil.join(readResourceAsync(uri, modelClass));
+    }
 
-        List<URI> omits = new ArrayList<URI>();
-        try {
-            omits.add(new URI(SERVER_MANAGED_OMITTYPE));
-        } catch (URISyntaxException e) {
-            throw new RuntimeException("Could not create required \"omit\" type.", e);
+    /**
+     * If reads are {@link #cache(EntityCache) cached}, a fresh cached entity is returned without a request, and a
+     * stale one is revalidated with a conditional request.
+     *
+     * @param uri        uri
+     * @param modelClass modelClass
+     * @param <T>        PASS entity type
+     * @return future PASS entity
+     * @see org.dataconservancy.pass.client.AsyncPassClient#readResource(URI, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<T> readResourceAsync(URI uri, Class<T> modelClass) {
+        EntityCache cache = this.cache;
+        EntityCache.Entry cached = cache != null ? cache.get(uri, modelClass) : null;
+        if (cached != null && cached.isFresh()) {
+            LOG.debug("Resource read from cache: {}", uri);
+            return CompletableFuture.completedFuture(cache.hit(cached));
         }
 
-        try (FcrepoResponse response = new GetBuilder(uri, client)
-            .accept(COMPACTED_ACCEPTTYPE)
-            .preferRepresentation(null, omits)
-            .perform()) {
-
-            LOG.info("Resource read status for {}: {}", uri, response.getStatusCode());
-            T model = adapter.toModel(response.getBody(), modelClass);
+        Request.Builder reqBuilder = new Request.Builder()
+            .url(uri.toString())
+            .addHeader(ACCEPT_HEADER, COMPACTED_ACCEPTTYPE)
+            .addHeader(PREFER_HEADER, PREFER_READ_VAL);
+        if (cached != null) {
+            reqBuilder.addHeader(IFNONEMATCH_HEADER, cached.getEtag());
+        }
 
-            //remove the etag prefix, not needed for version comparison
-            String etag = response.getHeaderValue(ETAG_HEADER);
-            if (etag != null && etag.contains(ETAG_WEAK_PREFIX)) {
-                etag = etag.replace(ETAG_WEAK_PREFIX, "");
+        return execute(reqBuilder.build(), res -> {
+            if (cached != null && res.code() == HttpStatus.SC_NOT_MODIFIED) {
+                LOG.debug("Cached resource not modified: {}", uri);
+                return cache.<T>revalidated(cached);
             }
-            model.setVersionTag(etag);
+            checkStatus(uri, res);
+
+            LOG.info("Resource read status for {}: {}", uri, res.code());
+            T model = adapter.toModel(res.body().byteStream(), modelClass);
 
+            model.setVersionTag(versionTag(res));
+
+            if (cache != null) {
+                cache.put(uri, model, res.header(ETAG_HEADER));
+            }
             return model;
+        }, e -> new RuntimeException("A problem occurred while attempting to read a Resource", e));
+    }
+
+    /**
+     * @param uris       uris
+     * @param modelClass modelClass
+     * @param <T>        PASS entity type
+     * @return one result per URI, in the order given
+     * @see org.dataconservancy.pass.client.PassClient#readResources(Collection, Class)
+     */
+    public <T extends PassEntity> List<ReadResult<T>> readResources(Collection<URI> uris, Class<T> modelClass) {
+        return FutureUtil.join(readResourcesAsync(uris, modelClass));
+    }
+
+    /**
+     * Reads the resources with at most {@link #readParallelism(int) readParallelism} reads in flight at once,
+     * starting the next read as each one completes.
+     *
+     * @param uris       uris
+     * @param modelClass modelClass
+     * @param <T>        PASS entity type
+     * @return future list of one result per URI, in the order given
+     * @see org.dataconservancy.pass.client.AsyncPassClient#readResources(Collection, Class)
+     */
+    public <T extends PassEntity> CompletableFuture<List<ReadResult<T>>> readResourcesAsync(Collection<URI> uris,
+                                                                                            Class<T> modelClass) {
+        if (uris == null) {
+            throw new IllegalArgumentException("uris cannot be null");
+        }
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+
+        BatchRead<T> batch = new BatchRead<>(new ArrayList<>(uris), modelClass);
+        for (int i = 0; i < Math.min(readParallelism, uris.size()); i++) {
+            batch.readNext();
+        }
+        return batch.done;
+    }
+
+    /**
+     * Retrieves the current version tag (ETag) of a resource, without reading its representation.
+     *
+     * @param uri uri
+     * @return the version tag, or {@code null} if the resource does not exist or has been deleted
+     */
+    public String readVersionTag(URI uri) {
+        return FutureUtil.join(readVersionTagAsync(uri));
+    }
 
-        } catch (IOException | FcrepoOperationFailedException e) {
-            throw new RuntimeException("A problem occurred while attempting to read a Resource", e);
+    /**
+     * Retrieves the current version tag (ETag) of a resource with a {@code HEAD} request, without reading its
+     * representation.
+     *
+     * @param uri uri
+     * @return future version tag, which is {@code null} if the resource does not exist or has been deleted
+     */
+    public CompletableFuture<String> readVersionTagAsync(URI uri) {
+        if (uri == null) {
+            throw new IllegalArgumentException("uri cannot be null");
         }
+        Request request = new Request.Builder()
+            .url(uri.toString())
+            .head()
+            .build();
+
+        return execute(request, res -> {
+            if (res.code() == 404 || res.code() == 410) {
+                LOG.debug("Resource {} no longer exists: {}", uri, res.code());
+                return null;
+            }
+            checkStatus(uri, res);
+            return versionTag(res);
+        }, e -> new RuntimeException("A problem occurred while attempting to read the version of a Resource", e));
     }
 
     /**
@@ -296,54 +553,138 @@ public class FedoraPassCrudClient {
      * @see org.dataconservancy.pass.client.PassClient#getIncoming(URI)
      */
     public Map<String, Collection<URI>> getIncoming(URI passEntityUri) {
-        List<URI> include = Collections.singletonList(URI.create(INCOMING_INCLUDETYPE));
-        List<URI> omits = Collections.singletonList(URI.create(SERVER_MANAGED_OMITTYPE));
-
-        try (FcrepoResponse response = new GetBuilder(passEntityUri, client)
-            .accept(COMPACTED_ACCEPTTYPE)
-            .preferRepresentation(include, omits)
-            .perform()) {
+        return FutureUtil.join(getIncomingAsync(passEntityUri));
+    }
 
-            LOG.info("Resource read status: for {}: {}", passEntityUri, response.getStatusCode());
+    /**
+     * @param passEntityUri pass entity URI
+     * @return future map
+     * @see org.dataconservancy.pass.client.AsyncPassClient#getIncoming(URI)
+     */
+    public CompletableFuture<Map<String, Collection<URI>>> getIncomingAsync(URI passEntityUri) {
+        return getIncomingAsync(passEntityUri, null, null);
+    }
 
-            JsonNode raw = new ObjectMapper().readTree(response.getBody());
-            JsonNode graph = raw.withArray("@graph");
+    /**
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates of the links returned, or null for all
+     * @param types         types of the entities whose links are returned, or null for all
+     * @return map
+     * @see org.dataconservancy.pass.client.PassClient#getIncoming(URI, Collection, Collection)
+     */
+    public Map<String, Collection<URI>> getIncoming(URI passEntityUri, Collection<String> predicates,
+                                                    Collection<PassEntityType> types) {
+        return FutureUtil.join(getIncomingAsync(passEntityUri, predicates, types));
+    }
 
-            if (graph == null || graph.size() < 1) {
-                return Collections.emptyMap();
-            }
+    /**
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates of the links returned, or null for all
+     * @param types         types of the entities whose links are returned, or null for all
+     * @return future map
+     * @see org.dataconservancy.pass.client.PassClient#getIncoming(URI, Collection, Collection)
+     */
+    public CompletableFuture<Map<String, Collection<URI>>> getIncomingAsync(URI passEntityUri,
+                                                                           Collection<String> predicates,
+                                                                           Collection<PassEntityType> types) {
+        Map<String, Collection<URI>> result = new ConcurrentHashMap<>();
+        return forEachIncomingAsync(passEntityUri, predicates, types,
+            (predicate, link) -> result.computeIfAbsent(predicate, p -> new HashSet<>()).add(link))
+            .thenApply(count -> result);
+    }
 
-            Map<String, Collection<URI>> result = new ConcurrentHashMap<>();
+    /**
+     * Stream the incoming links to a PASS entity to a consumer, as the response is read. The request is made on the
+     * calling thread, and the consumer is invoked on it, so the consumer may block, or make requests of this client.
+     * An exception thrown by the consumer stops the scan and is thrown to the caller.
+     *
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates of the links handed to the consumer, or null for all
+     * @param types         types of the entities whose links are handed to the consumer, or null for all
+     * @param consumer      accepts the predicate and linking URI of each link
+     * @return number of links handed to the consumer
+     * @see org.dataconservancy.pass.client.PassClient#forEachIncoming(URI, Collection, Collection, BiConsumer)
+     */
+    public int forEachIncoming(URI passEntityUri, Collection<String> predicates, Collection<PassEntityType> types,
+                               BiConsumer<String, URI> consumer) {
+        Request request = incomingRequest(passEntityUri, consumer);
+        return executeNow(request, incomingHandler(passEntityUri, predicates, types, consumer),
+                          e -> new RuntimeException("A problem occurred while attempting to read a Resource", e));
+    }
 
-            graph.elements().forEachRemaining((node) -> {
-                if (!node.has("@id")) {
-                    return;
-                }
+    /**
+     * Stream the incoming links to a PASS entity to a consumer, as the response is read. The links are never held in
+     * memory together, so an entity referenced by any number of others can be processed in constant memory. The
+     * consumer is invoked on the dispatcher thread reading the response, while the request counts towards the
+     * in-flight limit, so it must not block, nor wait on another request of this client; use
+     * {@link #forEachIncoming(URI, Collection, Collection, BiConsumer)} for a consumer that does.
+     * <p>
+     * The type of an entity linking to the given one is that whose container it is in, as found by
+     * {@link PassEntityType#getTypeByUri(URI)}, so links are recognized under any base URL Fedora gives them.
+     * </p>
+     *
+     * @param passEntityUri pass entity URI
+     * @param predicates    predicates of the links handed to the consumer, or null for all
+     * @param types         types of the entities whose links are handed to the consumer, or null for all
+     * @param consumer      accepts the predicate and linking URI of each link
+     * @return future number of links handed to the consumer
+     */
+    public CompletableFuture<Integer> forEachIncomingAsync(URI passEntityUri, Collection<String> predicates,
+                                                           Collection<PassEntityType> types,
+                                                           BiConsumer<String, URI> consumer) {
+        Request request = incomingRequest(passEntityUri, consumer);
+        return execute(request, incomingHandler(passEntityUri, predicates, types, consumer),
+                       e -> new RuntimeException("A problem occurred while attempting to read a Resource", e));
+    }
 
-                URI incomingLink = URI.create(node.get("@id").asText());
+    /**
+     * @param passEntityUri pass entity URI
+     * @param consumer      accepts the predicate and linking URI of each link
+     * @return request for the representation of the entity including its inbound references
+     */
+    private static Request incomingRequest(URI passEntityUri, BiConsumer<String, URI> consumer) {
+        if (passEntityUri == null) {
+            throw new IllegalArgumentException("passEntityUri cannot be null");
+        }
+        if (consumer == null) {
+            throw new IllegalArgumentException("consumer cannot be null");
+        }
+        return new Request.Builder()
+            .url(passEntityUri.toString())
+            .addHeader(ACCEPT_HEADER, COMPACTED_ACCEPTTYPE)
+            .addHeader(PREFER_HEADER, PREFER_INCOMING_VAL)
+            .build();
+    }
 
-                // Filter out any nodes in the graph that refer to the requested PASS entity
-                // Remaining nodes in the graph are incoming links
-                if (passEntityUri.toString().equals(incomingLink.toString())) {
-                    return;
-                }
+    /**
+     * @return handler scanning the inbound references in a response, and handing those that match to the consumer
+     */
+    private ResponseHandler<Integer> incomingHandler(URI passEntityUri, Collection<String> predicates,
+                                                     Collection<PassEntityType> types,
+                                                     BiConsumer<String, URI> consumer) {
+        Predicate<String> predicateFilter = predicates == null ? p -> true : new HashSet<>(predicates)::contains;
+        Predicate<String> linkFilter = types == null ? l -> true : ofTypes(types);
 
-                node.fieldNames().forEachRemaining(field -> {
-                    if ("@id".equals(field)) {
-                        return;
-                    }
+        return res -> {
+            checkStatus(passEntityUri, res);
 
-                    Collection<URI> uris = result.getOrDefault(field, new HashSet<>());
-                    uris.add(incomingLink);
-                    result.putIfAbsent(field, uris);
-                });
-            });
+            LOG.info("Resource read status: for {}: {}", passEntityUri, res.code());
 
-            return result;
+            return IncomingLinkScanner.scan(res.body().byteStream(), passEntityUri, predicateFilter, linkFilter,
+                                            consumer);
+        };
+    }
 
-        } catch (IOException | FcrepoOperationFailedException e) {
-            throw new RuntimeException("A problem occurred while attempting to read a Resource", e);
-        }
+    /**
+     * @param types types of entity
+     * @return predicate matching the URIs of entities of the types, by the containers they are in, under whichever
+     * base URL they are given
+     * @see PassEntityType#getTypeByUri(URI)
+     */
+    private static Predicate<String> ofTypes(Collection<PassEntityType> types) {
+        Set<PassEntityType> selected = EnumSet.noneOf(PassEntityType.class);
+        selected.addAll(types);
+        return link -> selected.contains(PassEntityType.getTypeByUri(URI.create(link)));
     }
 
     /**
@@ -355,48 +696,68 @@ public class FedoraPassCrudClient {
      * @see PassClientDefault#upload(URI, InputStream, Map)
      */
     public URI upload(URI passEntityUri, InputStream content, Map<String, ?> params) {
-        PostBuilder builder = new PostBuilder(passEntityUri, client);
+        return FutureUtil.join(uploadAsync(passEntityUri, content, params));
+    }
 
-        if (params.containsKey("content-type")) {
-            builder.body(content, (String) params.get("content-type"));
-        } else {
-            builder.body(content);
-        }
+    /**
+     * The {@code content} is read while the request is in flight, so it must not be closed before the returned
+     * future completes.
+     *
+     * @param passEntityUri PASS entity
+     * @param content       content to upload
+     * @param params        parameters
+     * @return future URI of uploaded content
+     * @see org.dataconservancy.pass.client.AsyncPassClient#upload(URI, InputStream, Map)
+     */
+    public CompletableFuture<URI> uploadAsync(URI passEntityUri, InputStream content, Map<String, ?> params) {
+        String contentType = params.containsKey("content-type") ? (String) params.get("content-type")
+                                                                : BINARY_CONTENTTYPE;
 
-        if (params.containsKey("slug")) {
-            builder.slug((String) params.get("slug"));
-        }
+        Request.Builder reqBuilder = new Request.Builder()
+            .url(passEntityUri.toString())
+            .post(new InputStreamRequestBody(MediaType.parse(contentType), content));
 
-        if (params.containsKey("sha256")) {
-            builder.digestSha256((String) params.get("sha256"));
+        if (params.containsKey("slug")) {
+            reqBuilder.addHeader(SLUG_HEADER, (String) params.get("slug"));
         }
 
-        if (params.containsKey("md5")) {
-            builder.digestMd5((String) params.get("md5"));
+        StringJoiner digests = new StringJoiner(",");
+        for (String algorithm : new String[] {"sha256", "md5", "sha1"}) {
+            if (params.containsKey(algorithm)) {
+                digests.add(algorithm + "=" + params.get(algorithm));
+            }
         }
-
-        if (params.containsKey("sha1")) {
-            builder.digestSha1((String) params.get("sha1"));
+        if (digests.length() > 0) {
+            reqBuilder.addHeader(DIGEST_HEADER, digests.toString());
         }
 
         if (params.containsKey("filename")) {
-            try {
-                builder.filename((String) params.get("filename"));
-            } catch (FcrepoOperationFailedException e) {
-                throw new RuntimeException(e.getMessage(), e);
-            }
+            reqBuilder.addHeader(CONTENT_DISPOSITION_HEADER, "attachment; filename=\"" +
+                URLEncoder.encode((String) params.get("filename"), StandardCharsets.UTF_8) + "\"");
         }
 
-        try (FcrepoResponse response = builder.perform()) {
-            return response.getLocation();
-        } catch (Exception e) {
-            throw new RuntimeException("An problem occurred while POSTing binary content to Resource " +
-                                       passEntityUri + ": " + e.getMessage(), e);
-        }
+        // Fedora may take a while to respond after receiving a large binary, while it computes fixity
+        OkHttpClient uploadClient = okHttpClient.newBuilder()
+                                                .readTimeout(0, TimeUnit.MILLISECONDS)
+                                                .writeTimeout(0, TimeUnit.MILLISECONDS)
+                                                .build();
+
+        return execute(uploadClient, reqBuilder.build(), res -> {
+            checkStatus(passEntityUri, res);
+            String location = res.header(LOCATION_HEADER);
+            return location != null ? URI.create(location) : null;
+        }, e -> new RuntimeException("An problem occurred while POSTing binary content to Resource " +
+                                     passEntityUri + ": " + e.getMessage(), e));
     }
 
     /**
-     * Process all entities
+     * Process all entities. The crawl is parallel if {@link FedoraConfig#getCrawlParallelism()} is greater than 1, in
+     * which case the processor is invoked concurrently unless {@link FedoraConfig#getCrawlOrdered()} is set. If
+     * {@link FedoraConfig#getCrawlCheckpointDir()} is set, the crawl keeps a checkpoint there, and resumes from it if
+     * a previous crawl of the same entities was interrupted; the crawl is then ordered. If
+     * {@link FedoraConfig#getCrawlShardCount()} is greater than 1, only the entities in the shard given by
+     * {@link FedoraConfig#getCrawlShardIndex()} are processed, so that clients configured with each index between them
+     * process every entity once.
      *
      * @param processor  processor
      * @param modelClass modelClass
@@ -405,37 +766,39 @@ public class FedoraPassCrudClient {
      */
     public <T extends PassEntity> int processAllEntities(Consumer<URI> processor, Class<T> modelClass) {
         if (modelClass == null) {
-            return crawler.visit(
-                URI.create(FedoraConfig.getBaseUrl()),
+            return crawl(
+                URI.create(config.getBaseUrl()),
                 processor,
-                IGNORE_CONTAINERS,
                 depth(2).or(SKIP_ACLS));
         }
 
-        URI container = null;
-        try {
-            container = new URI(FedoraConfig.getContainer(modelClass.getSimpleName()));
-        } catch (URISyntaxException e) {
-            throw new RuntimeException("Container name could not be converted to a URI", e);
-        }
-
-        return crawler.visit(
-            container,
+        return crawl(
+            config.getContainer(modelClass),
             processor,
-            IGNORE_CONTAINERS,
             depth(1).or(SKIP_ACLS));
     }
 
-    private <T extends PassEntity> T createInternal(T modelObj, boolean includeContext) {
-        byte[] json = adapter.toJson(modelObj, true);
-        RequestBody body = RequestBody.create(MediaType.parse(JSONLD_CONTENTTYPE), json);
+    private int crawl(URI root, Consumer<URI> processor, Predicate<State> skip) {
+        String checkpointDir = config.getCrawlCheckpointDir();
+        if (checkpointDir == null) {
+            return crawler.visit(root, processor, ignoreContainers, skip);
+        }
 
-        URI container = null;
-        try {
-            container = new URI(FedoraConfig.getContainer(modelObj.getClass().getSimpleName()));
-        } catch (URISyntaxException e) {
-            throw new RuntimeException("Container name could not be converted to a URI", e);
+        // One checkpoint per crawl root and shard, e.g. crawl-fcrepo-rest-submissions-shard-0-of-4.checkpoint
+        String name = root.getPath().replaceAll("[^A-Za-z0-9]+", "-").replaceAll("^-|-$", "");
+        int shards = config.getCrawlShardCount();
+        if (shards > 1) {
+            name += "-shard-" + config.getCrawlShardIndex() + "-of-" + shards;
         }
+        Path checkpoint = Paths.get(checkpointDir, "crawl-" + name + ".checkpoint");
+        return crawler.visit(root, processor, ignoreContainers, skip, checkpoint);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends PassEntity> CompletableFuture<T> createInternal(T modelObj, boolean includeContext) {
+        RequestBody body = new JsonRequestBody(MediaType.parse(JSONLD_CONTENTTYPE), toJson(modelObj));
+
+        URI container = config.getContainer(modelObj.getClass());
 
         Request.Builder reqBuilder = new Request.Builder()
             .url(container.toString())
@@ -443,31 +806,29 @@ public class FedoraPassCrudClient {
             .addHeader(ACCEPT_HEADER, COMPACTED_ACCEPTTYPE)
             .addHeader(PREFER_HEADER, "return=representation; omits=\"" + SERVER_MANAGED_OMITTYPE + "\"");
 
-        try (Response res = okHttpClient.newCall(reqBuilder.build()).execute()) {
+        return execute(reqBuilder.build(), res -> {
             handleNon2xx(modelObj, res);
 
             PassEntity entity = adapter.toModel(res.body().byteStream(), modelObj.getClass());
             LOG.info("Creation status and location: {}: {}", res.code(), entity.getId());
 
             return (T) entity;
-        } catch (Exception e) {
-            throw new RuntimeException("A problem occurred while attempting to create a Resource: " +
-                                       e.getMessage(), e);
-        }
+        }, e -> new RuntimeException("A problem occurred while attempting to create a Resource: " +
+                                     e.getMessage(), e));
     }
 
-    private <T extends PassEntity> T updateInternal(T modelObj, boolean includeContext, boolean performRead) {
-        byte[] json = adapter.toJson(modelObj, true);
+    private <T extends PassEntity> CompletableFuture<Void> updateInternal(T modelObj, boolean includeContext) {
+        Buffer json = toJson(modelObj);
 
         Request.Builder reqBuilder = new Request.Builder()
             .url(modelObj.getId().toString())
             .addHeader(ACCEPT_HEADER, COMPACTED_ACCEPTTYPE);
 
         if (overwriteOnUpdate) {
-            RequestBody body = RequestBody.create(MediaType.parse(JSONLD_CONTENTTYPE), json);
+            RequestBody body = new JsonRequestBody(MediaType.parse(JSONLD_CONTENTTYPE), json);
             reqBuilder.put(body).addHeader(PREFER_HEADER, PREFER_LENIENT_VAL);
         } else {
-            RequestBody body = RequestBody.create(MediaType.parse(JSONLD_PATCH_CONTENTTYPE), json);
+            RequestBody body = new JsonRequestBody(MediaType.parse(JSONLD_PATCH_CONTENTTYPE), json);
             reqBuilder.patch(body);
         }
 
@@ -478,7 +839,8 @@ public class FedoraPassCrudClient {
                      modelObj.getClass().getName(), modelObj.getId());
         }
 
-        try (Response res = okHttpClient.newCall(reqBuilder.build()).execute()) {
+        return execute(reqBuilder.build(), res -> {
+            invalidate(modelObj.getId());
             if (res.code() == HttpStatus.SC_PRECONDITION_FAILED) {
                 String msg = format("Failed to update %s - the data may have changed since %s was last retrieved.",
                                     modelObj.getId(), modelObj.getId());
@@ -486,15 +848,148 @@ public class FedoraPassCrudClient {
             }
             LOG.info("Resource update status for {}: {}", modelObj.getId(), res.code());
             handleNon2xx(modelObj, res);
-        } catch (UpdateConflictException e) {
-            throw e;
-        } catch (Exception e) {
+            return (Void) null;
+        }, e -> {
+            invalidate(modelObj.getId());
+            if (e instanceof UpdateConflictException) {
+                return (UpdateConflictException) e;
+            }
             String msg = format("A problem occurred while attempting to update Resource %s: %s ",
                                 modelObj.getId(), e.getMessage());
-            throw new RuntimeException(msg, e);
+            return new RuntimeException(msg, e);
+        });
+    }
+
+    /**
+     * Write the JSON of an entity, with its context, to a buffer. The buffer's segments are drawn from Okio's pool, and
+     * are handed to the connection as the request is written, rather than copied into a byte array first.
+     */
+    private Buffer toJson(PassEntity modelObj) {
+        Buffer json = new Buffer();
+        adapter.toJson(modelObj, true, json.outputStream());
+        return json;
+    }
+
+    /**
+     * Remove a resource that is being changed from the cache, if any. Called when the response arrives, or the request
+     * fails, so that a read that follows the change cannot be answered with the cached representation.
+     */
+    private void invalidate(URI uri) {
+        EntityCache cache = this.cache;
+        if (cache != null) {
+            cache.invalidate(uri);
         }
+    }
+
+    private <T> CompletableFuture<T> execute(Request request, ResponseHandler<T> handler,
+                                             Function<Exception, RuntimeException> onFailure) {
+        return execute(okHttpClient, request, handler, onFailure);
+    }
+
+    /**
+     * Enqueue a request, completing the returned future with the result of applying the handler to the response.
+     * The handler runs on the dispatcher thread and the response is closed once it returns, so the response body is
+     * fully consumed while the request still counts towards the in-flight limit; the handler must not block. The
+     * future is completed afterwards, on another thread of the dispatcher's executor, so that dependent stages run
+     * once the request no longer counts towards the limit and may themselves make requests. Cancelling the future
+     * cancels the request.
+     *
+     * @param httpClient client to make the request with
+     * @param request    the request
+     * @param handler    converts the response into a result
+     * @param onFailure  converts a failure to make the request, or an exception of the handler, into the exception the
+     *                   future is completed with; an error of the handler completes the future as it is
+     * @return future result
+     */
+    private static <T> CompletableFuture<T> execute(OkHttpClient httpClient, Request request,
+                                                    ResponseHandler<T> handler,
+                                                    Function<Exception, RuntimeException> onFailure) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = httpClient.newCall(request);
+        Executor completer = httpClient.dispatcher().executorService();
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                complete(completer, future, null, onFailure.apply(e));
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                T result;
+                try (Response res = response) {
+                    result = handler.handle(res);
+                } catch (Exception e) {
+                    complete(completer, future, null, onFailure.apply(e));
+                    return;
+                } catch (Throwable e) {
+                    // An error must not escape to the dispatcher thread, which would leave the future pending
+                    complete(completer, future, null, e);
+                    return;
+                }
+                complete(completer, future, result, null);
+            }
+        });
+
+        future.whenComplete((result, e) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+
+        return future;
+    }
 
-        return performRead ? readResource(modelObj.getId(), (Class<T>) modelObj.getClass()) : null;
+    /**
+     * Make a request on the calling thread, returning the result of applying the handler to the response. A
+     * synchronous call does not count towards the dispatcher's in-flight limit, so the handler may block, or make
+     * further requests of this client.
+     *
+     * @param request   the request
+     * @param handler   converts the response into a result
+     * @param onFailure converts a failure to make the request, or a checked exception of the handler, into the
+     *                  exception thrown
+     * @return result
+     * @throws RuntimeException a runtime exception of the handler, or the exception {@code onFailure} gives
+     */
+    private <T> T executeNow(Request request, ResponseHandler<T> handler,
+                             Function<Exception, RuntimeException> onFailure) {
+        try (Response res = okHttpClient.newCall(request).execute()) {
+            return handler.handle(res);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw onFailure.apply(e);
+        }
+    }
+
+    /**
+     * Complete a future on the executor, rather than on the dispatcher thread that still holds the request's place
+     * in the in-flight limit. Completes it on the calling thread if the executor has been shut down.
+     */
+    private static <T> void complete(Executor completer, CompletableFuture<T> future, T result,
+                                     Throwable failure) {
+        Runnable completion = () -> {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                future.complete(result);
+            }
+        };
+        try {
+            completer.execute(completion);
+        } catch (RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    private static String versionTag(Response res) {
+        //remove the etag prefix, not needed for version comparison
+        String etag = res.header(ETAG_HEADER);
+        if (etag != null && etag.contains(ETAG_WEAK_PREFIX)) {
+            etag = etag.replace(ETAG_WEAK_PREFIX, "");
+        }
+        return etag;
     }
 
     private static <T extends PassEntity> void handleNon2xx(T modelObj, Response res) throws IOException {
@@ -505,4 +1000,214 @@ public class FedoraPassCrudClient {
         }
     }
 
+    private static void checkStatus(URI uri, Response res) throws IOException {
+        if (!res.isSuccessful()) {
+            throw new IOException(format("HTTP operation failed on %s - unexpected status code %s: %s",
+                                         uri, res.code(), res.body().string()));
+        }
+    }
+
+    /**
+     * Build the default HTTP client: authenticates with the configured Fedora credentials, and allows at most
+     * {@link FedoraConfig#getMaxRequests()} requests in flight at once.
+     *
+     * @return the client
+     */
+    private static OkHttpClient defaultOkHttpClient(FedoraConfig.Snapshot config) {
+        // Dispatcher threads are daemons so that an idle client does not prevent the JVM from exiting
+        AtomicInteger threadCount = new AtomicInteger();
+        Dispatcher dispatcher = new Dispatcher(new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                                                                      new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "pass-fedora-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        int maxRequests = config.getMaxRequests();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+
+        OkHttpClient.Builder okBuilder = new OkHttpClient.Builder().dispatcher(dispatcher);
+
+        if (config.getUserName() != null) {
+            byte[] bytes = format("%s:%s", config.getUserName(), config.getPassword()).getBytes();
+            String authorization = "Basic " + getEncoder().encodeToString(bytes);
+            okBuilder.addInterceptor((requestChain) -> {
+                Request request = requestChain.request();
+                LOG.trace("Adding 'Authorization' header for communication with {}", config.getBaseUrl());
+                Request.Builder reqBuilder = request.newBuilder();
+                return requestChain.proceed(reqBuilder.addHeader("Authorization", authorization).build());
+            });
+        }
+
+        if (LOG.isDebugEnabled()) {
+            Interceptor loggingInterceptor = new HttpLoggingInterceptor(LOG::debug);
+            okBuilder.addInterceptor(loggingInterceptor);
+        }
+
+        String userAgent = System.getProperty("http.agent");
+        if (userAgent != null) {
+            LOG.trace("Adding 'User-Agent' header with value: {}", userAgent);
+            okBuilder.addInterceptor((requestChain) -> {
+                Request.Builder reqBuilder = requestChain.request().newBuilder();
+                reqBuilder.removeHeader("User-Agent");
+                reqBuilder.addHeader("User-Agent", userAgent);
+                return requestChain.proceed(reqBuilder.build());
+            });
+        }
+
+        return okBuilder.build();
+    }
+
+    /**
+     * State of a batch read: each call to {@link #readNext()} claims the next unread URI, and reads it; when that
+     * read completes, it claims the next.
+     */
+    private class BatchRead<T extends PassEntity> {
+
+        private final List<URI> uris;
+
+        private final Class<T> modelClass;
+
+        private final AtomicReferenceArray<ReadResult<T>> results;
+
+        private final AtomicInteger next = new AtomicInteger();
+
+        private final AtomicInteger remaining;
+
+        private final CompletableFuture<List<ReadResult<T>>> done = new CompletableFuture<>();
+
+        BatchRead(List<URI> uris, Class<T> modelClass) {
+            this.uris = uris;
+            this.modelClass = modelClass;
+            this.results = new AtomicReferenceArray<>(uris.size());
+            this.remaining = new AtomicInteger(uris.size());
+            if (uris.isEmpty()) {
+                done.complete(new ArrayList<>());
+            }
+        }
+
+        void readNext() {
+            int i;
+            while ((i = next.getAndIncrement()) < uris.size()) {
+                URI uri = uris.get(i);
+                CompletableFuture<T> read;
+                try {
+                    if (uri == null) {
+                        throw new IllegalArgumentException("uri cannot be null");
+                    }
+                    read = readResourceAsync(uri, modelClass);
+                } catch (RuntimeException e) {
+                    // Failed before a request was made, so no read is in flight: claim the next URI
+                    complete(i, ReadResult.failure(uri, e));
+                    continue;
+                }
+
+                // Reads answered from the cache are already complete: take the next URI here, rather than from
+                // the callback, so that a long run of them does not recurse
+                if (read.isDone()) {
+                    complete(i, result(uri, read));
+                    continue;
+                }
+
+                final int index = i;
+                read.whenComplete((resource, e) -> {
+                    complete(index, e == null ? ReadResult.success(uri, resource)
+                                              : ReadResult.failure(uri, FutureUtil.unwrap(e)));
+                    readNext();
+                });
+                return;
+            }
+        }
+
+        private ReadResult<T> result(URI uri, CompletableFuture<T> read) {
+            try {
+                return ReadResult.success(uri, read.join());
+            } catch (RuntimeException e) {
+                return ReadResult.failure(uri, FutureUtil.unwrap(e));
+            }
+        }
+
+        private void complete(int index, ReadResult<T> result) {
+            results.set(index, result);
+            if (remaining.decrementAndGet() == 0) {
+                List<ReadResult<T>> list = new ArrayList<>(results.length());
+                for (int i = 0; i < results.length(); i++) {
+                    list.add(results.get(i));
+                }
+                done.complete(list);
+            }
+        }
+    }
+
+    /**
+     * Converts a response into a result
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws Exception;
+    }
+
+    /**
+     * A request body of JSON held in a buffer. As the body is written, the buffer's segments are shared with the
+     * connection rather than copied, and the body can be written again should the request be retried.
+     */
+    private static class JsonRequestBody extends RequestBody {
+
+        private final MediaType contentType;
+
+        private final Buffer json;
+
+        JsonRequestBody(MediaType contentType, Buffer json) {
+            this.contentType = contentType;
+            this.json = json;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public long contentLength() {
+            return json.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            json.copyTo(sink.getBuffer(), 0, json.size());
+            sink.emitCompleteSegments();
+        }
+    }
+
+    /**
+     * Streams an {@code InputStream} as a request body of unknown length. It can only be written once.
+     */
+    private static class InputStreamRequestBody extends RequestBody {
+
+        private final MediaType contentType;
+
+        private final InputStream content;
+
+        InputStreamRequestBody(MediaType contentType, InputStream content) {
+            this.contentType = contentType;
+            this.content = content;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return contentType;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Source source = Okio.source(content);
+            sink.writeAll(source);
+        }
+    }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Extracts the incoming links to a resource from a compacted JSON-LD representation of it, such as Fedora returns when
+ * asked to include inbound references.
+ * <p>
+ * Each node of the {@code @graph}, other than the resource itself, is a resource linking to it; each of the node's
+ * properties, other than {@code @id}, is a predicate it links with. The JSON is read with a streaming parser rather
+ * than into a tree, and each link is handed to a consumer as soon as its node has been read, so the links to a
+ * resource referenced by any number of others are processed in constant memory. Only the names of a node's
+ * properties are kept until its {@code @id} has been read; their values are skipped.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+final class IncomingLinkScanner {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String GRAPH = "@graph";
+
+    private static final String ID = "@id";
+
+    private IncomingLinkScanner() {
+    }
+
+    /**
+     * Scan the representation of a resource for its incoming links, handing each to the consumer as a predicate and
+     * the URI of the resource linking with it.
+     *
+     * @param in         compacted JSON-LD, with inbound references
+     * @param resource   URI of the resource, whose own node is not a link
+     * @param predicates selects the predicates of the links handed to the consumer
+     * @param links      selects the URIs of the resources whose links are handed to the consumer
+     * @param consumer   accepts each link selected
+     * @return the number of links handed to the consumer
+     * @throws IOException if the representation cannot be read or parsed
+     */
+    static int scan(InputStream in, URI resource, Predicate<String> predicates, Predicate<String> links,
+                    BiConsumer<String, URI> consumer) throws IOException {
+        final String self = resource.toString();
+        final List<String> fields = new ArrayList<>();
+        int count = 0;
+
+        try (JsonParser parser = JSON.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return 0;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                if (parser.nextToken() == JsonToken.START_ARRAY && GRAPH.equals(name)) {
+                    for (JsonToken node = parser.nextToken(); node != JsonToken.END_ARRAY; node = parser.nextToken()) {
+                        if (node == JsonToken.START_OBJECT) {
+                            count += node(parser, self, predicates, links, fields, consumer);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read a node of the graph, from its start, and hand its links to the consumer
+     */
+    private static int node(JsonParser parser, String self, Predicate<String> predicates, Predicate<String> links,
+                            List<String> fields, BiConsumer<String, URI> consumer) throws IOException {
+        fields.clear();
+        String id = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            if (ID.equals(name)) {
+                id = parser.getValueAsString();
+            } else if (predicates.test(name)) {
+                fields.add(name);
+            }
+            parser.skipChildren();
+        }
+
+        if (id == null || fields.isEmpty() || self.equals(id) || !links.test(id)) {
+            return 0;
+        }
+        final URI link = URI.create(id);
+        for (final String predicate : fields) {
+            consumer.accept(predicate, link);
+        }
+        return fields.size();
+    }
+}
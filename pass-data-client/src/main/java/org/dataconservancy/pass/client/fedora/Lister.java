@@ -18,6 +18,8 @@ package org.dataconservancy.pass.client.fedora;
 
 import java.net.URI;
 import java.util.Collection;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * List children of a given container.
@@ -33,4 +35,29 @@ interface Lister {
      * @return A collection of URIs of children.
      */
     Collection<URI> getChildren(URI container);
+
+    /**
+     * List children of a given container, handing each to a consumer as it is listed, rather than collecting them.
+     * An exception thrown by the consumer stops the listing, and is propagated.
+     *
+     * @param container URI of the container.
+     * @param child     invoked with the URI of each child.
+     */
+    default void forEachChild(URI container, Consumer<URI> child) {
+        try (Stream<URI> children = streamChildren(container)) {
+            children.forEach(child);
+        }
+    }
+
+    /**
+     * List children of a given container as a stream, which reads the listing as it is consumed, so that children can
+     * be processed before the listing is complete, without holding the whole listing. The listing is requested before
+     * this method returns. The stream must be closed once it is no longer needed.
+     *
+     * @param container URI of the container.
+     * @return A stream of URIs of children, in the order they are listed.
+     */
+    default Stream<URI> streamChildren(URI container) {
+        return getChildren(container).stream();
+    }
 }
@@ -16,19 +16,39 @@
 
 package org.dataconservancy.pass.client.fedora;
 
-import static java.util.Collections.emptyList;
-
 import java.net.URI;
-import java.util.Collection;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.dataconservancy.pass.client.util.FutureUtil;
 
 /**
  * Crawl/walk through a hierarchy of containers in a repository.
  * <p>
  * Given a URI of an LDP container, this class will visit all its children, their childrens children, etc up to a
  * provided depth and invoke given {@link Consumer}. It is designed to handle an arbitrary large number of resources.
+ * Children are visited as they are listed, so a crawl of a large container, such as {@code /submissions}, neither
+ * waits for nor holds its whole listing.
+ * </p>
+ * <p>
+ * By default, the crawl is depth-first on the calling thread. With a {@link #parallelism(int) parallelism} greater
+ * than 1, children are listed concurrently on a pool of that many threads. An unordered parallel crawl also invokes the
+ * visitor concurrently, from the pool threads, in no particular order; the visitor, and the ignore and skip predicates,
+ * must then be thread-safe. An {@link #ordered(boolean) ordered} parallel crawl invokes the visitor on the calling
+ * thread, in the same order as a serial crawl, while the listings of the next few children are fetched ahead of it.
+ * Either way, the same resources are visited, and the same number is returned.
  * </p>
  *
  * @author apb@jhu.edu
@@ -37,8 +57,84 @@ public class RepositoryCrawler {
 
     Lister repo = new FcrepoLister();
 
-    // Does the resource URI have a path that is like /acls/, /.acl, etc?
-    static final Pattern ACL_PATTERN = Pattern.compile(".+/\\.*acls*(?=/|$).*");
+    /**
+     * Number of threads used to crawl, 1 to crawl on the calling thread
+     */
+    private int parallelism = 1;
+
+    /**
+     * Whether a parallel crawl invokes the visitor in the order a serial crawl would
+     */
+    private boolean ordered = false;
+
+    /**
+     * Number of tasks a thread of an unordered parallel crawl leaves queued, while it lists children
+     */
+    private static final int MAX_QUEUED_TASKS = 64;
+
+    /**
+     * Index of the shard of resources this crawler visits
+     */
+    private int shardIndex = 0;
+
+    /**
+     * Number of shards the resources are divided between, 1 to visit all
+     */
+    private int shardCount = 1;
+
+    /**
+     * Set the number of threads used to crawl. Defaults to 1, which crawls on the calling thread.
+     *
+     * @param parallelism number of threads, at least 1
+     * @return this crawler
+     */
+    public RepositoryCrawler parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Set whether a parallel crawl invokes the visitor on the calling thread, in the order a serial crawl would,
+     * rather than concurrently. Defaults to false. Has no effect on a serial crawl, which is always ordered.
+     *
+     * @param ordered true to invoke the visitor in order
+     * @return this crawler
+     */
+    public RepositoryCrawler ordered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Visit only one shard of the resources, so that a number of crawlers, each given a different index, divide the
+     * resources of a repository between them, without coordinating. Defaults to shard 0 of 1, i.e. all resources.
+     * <p>
+     * A resource that is not ignored belongs to the shard given by the hash of its URI, unless it is in the tree of one
+     * that does, in which case it belongs to the shard of that resource. A crawler neither visits nor lists a tree that
+     * belongs to another shard. Ignored resources above them, such as the containers of PASS entities when visited
+     * with {@link Ignore#IGNORE_CONTAINERS}, are listed by every shard. So each resource is visited by exactly one of
+     * the shards, provided they all crawl the same resource with the same predicates. Nothing is sharded if the root
+     * of the crawl is not ignored, as every resource is in its tree.
+     * </p>
+     *
+     * @param index index of the shard to visit, from 0 to count - 1
+     * @param count number of shards, at least 1
+     * @return this crawler
+     */
+    public RepositoryCrawler shard(int index, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be at least 1");
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("index must be at least 0 and less than count");
+        }
+        this.shardIndex = index;
+        this.shardCount = count;
+        return this;
+    }
 
     /**
      * Visit a container and its children.
@@ -74,43 +170,335 @@ public class RepositoryCrawler {
      */
     public int visit(final URI resource, final Consumer<URI> visitor, Predicate<State> ignore,
                      Predicate<State> skip) {
-        return _visit(resource, visitor, new State(0, null, resource), ignore, skip);
+        return crawl(resource, visitor, ignore, skip, null);
+    }
+
+    /**
+     * Visit a container and its children, as {@link #visit(URI, Consumer, Predicate, Predicate)} does, keeping a
+     * checkpoint of the crawl's progress in a local file, from which the crawl resumes should it be interrupted.
+     * <p>
+     * If the file exists, the crawl resumes from it: resources already visited, and containers all of whose children
+     * have been, are not visited again, though those visited in the last second or so before the crawl stopped may be.
+     * Once the crawl completes, the file is deleted. The checkpoint holds the containers being crawled, and for each,
+     * compact hashes of the children it has completed, so its size grows with the largest container, not the crawl.
+     * A parallel crawl with a checkpoint is always {@link #ordered(boolean) ordered}.
+     * </p>
+     *
+     * @param resource   URI of a resource to visit, which must be the one the checkpoint was made for, if it exists.
+     * @param visitor    For every resource visited, it will invoke the consumer with the URI of the current resource.
+     * @param ignore     Predicate which, when true, will cause a given resource to be ignored.
+     * @param skip       Predicate which, when true, tells the crawler to stop crawling at that resource.
+     * @param checkpoint local file in which to keep the checkpoint
+     * @return the number of resources visited by this call, not counting those visited before it resumed.
+     */
+    public int visit(final URI resource, final Consumer<URI> visitor, Predicate<State> ignore,
+                     Predicate<State> skip, Path checkpoint) {
+        if (checkpoint == null) {
+            throw new IllegalArgumentException("checkpoint cannot be null");
+        }
+        final CrawlCheckpoint progress = CrawlCheckpoint.open(checkpoint, resource);
+        try {
+            final int count = crawl(resource, visitor, ignore, skip, progress);
+            progress.complete();
+            return count;
+        } finally {
+            progress.close();
+        }
+    }
+
+    private int crawl(final URI resource, final Consumer<URI> visitor, Predicate<State> ignore, Predicate<State> skip,
+                      CrawlCheckpoint checkpoint) {
+        final State root = new State(0, null, resource);
+        if (shardCount > 1 && !inShard(root, ignore.test(root))) {
+            return 0;
+        }
+        if (parallelism == 1) {
+            return _visit(resource, visitor, root, ignore, skip, checkpoint);
+        }
+
+        final ForkJoinPool pool = newPool(parallelism);
+        try {
+            if (ordered || checkpoint != null) {
+                return new OrderedCrawl(pool, visitor, ignore, skip, checkpoint).visit(root, list(pool, root, skip));
+            }
+            return new UnorderedCrawl(visitor, ignore, skip).visit(pool, root);
+        } finally {
+            pool.shutdownNow();
+        }
     }
 
     private int _visit(final URI resource, final Consumer<URI> visitor, State state, Predicate<State> ignore,
-                       Predicate<State> terminal) {
+                       Predicate<State> terminal, CrawlCheckpoint checkpoint) {
         int count = 0;
 
-        final Collection<URI> children;
+        final boolean ignored = ignore.test(state);
+        if (!inShard(state, ignored)) {
+            // Neither the resource nor its children are in this shard
+            return count;
+        }
+        final boolean isTerminal = terminal.test(state);
 
-        if (!ignore.test(state)) {
-            // We're not ignoring the resource
+        // Request the listing before visiting, as the visitor may change the resource. If the resource is terminal, do
+        // not get its children.
+        try (Stream<URI> children = isTerminal ? Stream.empty() : repo.streamChildren(resource)) {
+
+            if (!ignored && !resumes(checkpoint, resource)) {
+                // We're not ignoring the resource, nor has it been visited before resuming. Increment counter and
+                // visit.
+                count++;
+                visitor.accept(resource);
+            }
+            enter(checkpoint, resource, isTerminal);
 
-            if (!terminal.test(state)) {
-                // If it's not terminal, get its children.
-                children = repo.getChildren(resource);
-            } else {
-                // If it is terminal, do not get its children
-                children = emptyList();
+            // Visit children as they are listed, unless visited before resuming.
+            final Iterator<URI> remaining = children.iterator();
+            while (remaining.hasNext()) {
+                final URI child = remaining.next();
+                if (checkpoint == null || !checkpoint.isDone(child)) {
+                    count += _visit(child, visitor, state.child(child, ignored), ignore, terminal, checkpoint);
+                }
             }
+        }
+        exit(checkpoint, resource, isTerminal);
+
+        return count;
+    }
+
+    /**
+     * @param state   state of a resource
+     * @param ignored whether the resource is ignored
+     * @return true if the resource, or an ignored resource above it, is in the shard visited
+     */
+    private boolean inShard(State state, boolean ignored) {
+        return shardCount == 1 || state.sharded || ignored || Math.floorMod(hash(state.id), shardCount) == shardIndex;
+    }
 
-            // Increment counter and visit.
-            count++;
-            visitor.accept(resource);
-        } else if (!terminal.test(state)) {
-            // Ignored, but not terminal. Get its children.
-            children = repo.getChildren(resource);
+    /**
+     * 64-bit hash of a URI, the same in every process, mixed so that any of its bits may be used to divide URIs.
+     * FNV-1a over the characters of the URI, followed by the MurmurHash3 finalizer.
+     */
+    static long hash(URI uri) {
+        final String s = uri.toString();
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static boolean resumes(CrawlCheckpoint checkpoint, URI resource) {
+        return checkpoint != null && checkpoint.resumes(resource);
+    }
+
+    private static void enter(CrawlCheckpoint checkpoint, URI resource, boolean isTerminal) {
+        if (checkpoint != null && !isTerminal) {
+            checkpoint.enter(resource);
+        }
+    }
+
+    private static void exit(CrawlCheckpoint checkpoint, URI resource, boolean isTerminal) {
+        if (checkpoint == null) {
+            return;
+        }
+        if (isTerminal) {
+            checkpoint.done(resource);
         } else {
-            // Ignored and terminal. Do not visit children,
-            children = emptyList();
+            checkpoint.exit();
         }
+    }
 
-        // Visit children.
-        for (final URI child : children) {
-            count += _visit(child, visitor, new State(state.depth + 1, resource, child), ignore, terminal);
+    /**
+     * Start listing the children of a resource on the pool, unless it is terminal.
+     */
+    private CompletableFuture<Stream<URI>> list(ForkJoinPool pool, State state, Predicate<State> terminal) {
+        if (terminal.test(state)) {
+            return CompletableFuture.completedFuture(Stream.empty());
         }
+        return CompletableFuture.supplyAsync(() -> repo.streamChildren(state.id), pool);
+    }
 
-        return count;
+    private static ForkJoinPool newPool(int parallelism) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return new ForkJoinPool(parallelism, pool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("pass-crawler-" + threadCount.incrementAndGet());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Visits resources concurrently on the pool, in no particular order. Each task visits a resource, then forks a
+     * task for each of its children as they are listed, without waiting for them. The crawl is complete once no task
+     * remains. Once any task has failed, tasks that have not yet started do nothing, so that the failure is reported
+     * promptly.
+     */
+    private class UnorderedCrawl {
+
+        private final Consumer<URI> visitor;
+
+        private final Predicate<State> ignore;
+
+        private final Predicate<State> terminal;
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        private final AtomicInteger pending = new AtomicInteger();
+
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        UnorderedCrawl(Consumer<URI> visitor, Predicate<State> ignore, Predicate<State> terminal) {
+            this.visitor = visitor;
+            this.ignore = ignore;
+            this.terminal = terminal;
+        }
+
+        int visit(ForkJoinPool pool, State root) {
+            pending.incrementAndGet();
+            pool.execute(new VisitTask(root));
+            done.join();
+
+            final Throwable e = failure.get();
+            if (e instanceof Error) {
+                throw (Error) e;
+            } else if (e != null) {
+                throw (RuntimeException) e;
+            }
+            return count.get();
+        }
+
+        private class VisitTask extends RecursiveAction {
+
+            private static final long serialVersionUID = 1L;
+
+            private final State state;
+
+            VisitTask(State state) {
+                this.state = state;
+            }
+
+            @Override
+            protected void compute() {
+                try {
+                    if (failure.get() == null) {
+                        crawl();
+                    }
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (pending.decrementAndGet() == 0) {
+                        done.complete(null);
+                    }
+                }
+            }
+
+            private void crawl() {
+                final boolean ignored = ignore.test(state);
+                if (!inShard(state, ignored)) {
+                    return;
+                }
+                try (Stream<URI> children = terminal.test(state) ? Stream.empty() : repo.streamChildren(state.id)) {
+                    if (!ignored) {
+                        count.incrementAndGet();
+                        visitor.accept(state.id);
+                    }
+
+                    final Iterator<URI> remaining = children.iterator();
+                    while (failure.get() == null && remaining.hasNext()) {
+                        pending.incrementAndGet();
+                        new VisitTask(state.child(remaining.next(), ignored)).fork();
+
+                        // However many children are listed, keep only a few queued, by visiting some here
+                        while (getQueuedTaskCount() > MAX_QUEUED_TASKS) {
+                            final ForkJoinTask<?> task = pollTask();
+                            if (task != null) {
+                                task.quietlyInvoke();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Visits resources in the order of a serial crawl, on the calling thread. While it visits a resource, the listings
+     * of up to {@code parallelism} of the siblings that follow it are fetched on the pool.
+     */
+    private class OrderedCrawl {
+
+        private final ForkJoinPool pool;
+
+        private final Consumer<URI> visitor;
+
+        private final Predicate<State> ignore;
+
+        private final Predicate<State> terminal;
+
+        private final CrawlCheckpoint checkpoint;
+
+        OrderedCrawl(ForkJoinPool pool, Consumer<URI> visitor, Predicate<State> ignore, Predicate<State> terminal,
+                     CrawlCheckpoint checkpoint) {
+            this.pool = pool;
+            this.visitor = visitor;
+            this.ignore = ignore;
+            this.terminal = terminal;
+            this.checkpoint = checkpoint;
+        }
+
+        int visit(State state, CompletableFuture<Stream<URI>> listing) {
+            int count = 0;
+
+            final Deque<State> ahead = new ArrayDeque<>();
+            final Deque<CompletableFuture<Stream<URI>>> aheadListings = new ArrayDeque<>();
+            final boolean ignored = ignore.test(state);
+            final boolean isTerminal = terminal.test(state);
+            try (Stream<URI> children = join(listing)) {
+
+                if (!ignored && !resumes(checkpoint, state.id)) {
+                    count++;
+                    visitor.accept(state.id);
+                }
+                enter(checkpoint, state.id, isTerminal);
+
+                final Iterator<URI> remaining = children.iterator();
+                while (remaining.hasNext() || !ahead.isEmpty()) {
+                    while (remaining.hasNext() && ahead.size() < pool.getParallelism()) {
+                        final URI next = remaining.next();
+                        final State child = state.child(next, ignored);
+                        if ((checkpoint == null || !checkpoint.isDone(next)) &&
+                            (shardCount == 1 || inShard(child, ignore.test(child)))) {
+                            ahead.add(child);
+                            aheadListings.add(list(pool, child, terminal));
+                        }
+                    }
+                    if (!ahead.isEmpty()) {
+                        count += visit(ahead.poll(), aheadListings.poll());
+                    }
+                }
+            } finally {
+                // Should the crawl fail, close the listings fetched ahead that will not be visited
+                aheadListings.forEach(unvisited -> unvisited.thenAccept(Stream::close));
+            }
+            exit(checkpoint, state.id, isTerminal);
+
+            return count;
+        }
+
+        private Stream<URI> join(CompletableFuture<Stream<URI>> listing) {
+            try {
+                return listing.join();
+            } catch (RuntimeException e) {
+                throw FutureUtil.unwrap(e);
+            }
+        }
     }
 
     /**
@@ -135,6 +523,11 @@ public class RepositoryCrawler {
          */
         public final URI id;
 
+        /**
+         * Whether a resource above the current one was not ignored, so the current resource is in that one's shard
+         */
+        final boolean sharded;
+
         /**
          * Create an immutible crawling state.
          *
@@ -143,9 +536,23 @@ public class RepositoryCrawler {
          * @param id     URI of the current resource.
          */
         public State(int depth, URI parent, URI id) {
+            this(depth, parent, id, false);
+        }
+
+        State(int depth, URI parent, URI id, boolean sharded) {
             this.depth = depth;
             this.parent = parent;
             this.id = id;
+            this.sharded = sharded;
+        }
+
+        /**
+         * @param child   URI of a child of the current resource
+         * @param ignored whether the current resource is ignored
+         * @return state of the child
+         */
+        State child(URI child, boolean ignored) {
+            return new State(depth + 1, id, child, sharded || !ignored);
         }
     }
 
@@ -162,10 +569,9 @@ public class RepositoryCrawler {
         public static final Predicate<State> SKIP_NONE = s -> false;
 
         /**
-         * Skip ACLs
+         * Skip ACLs, whose paths have a segment like /acls/, /.acl, etc
          */
-        public static final Predicate<State> SKIP_ACLS = s -> RepositoryCrawler.ACL_PATTERN.matcher(s.id.toString())
-                                                                                           .matches();
+        public static final Predicate<State> SKIP_ACLS = s -> isAcl(s.id.toString());
 
         /**
          * Limit recursion to a given depth.
@@ -197,13 +603,91 @@ public class RepositoryCrawler {
         public static final Predicate<State> IGNORE_ROOT = s -> s.parent == null;
 
         /**
-         * Ignore all "top level" containers for PASS entities, such as /submissions, etc
+         * Ignore all "top level" containers for PASS entities, such as /submissions, etc, and the base URL itself,
+         * below the base URL of the {@link FedoraConfig#snapshot() current configuration}
+         */
+        public static final Predicate<State> IGNORE_CONTAINERS = s -> isContainer(s.id.toString(), endWithSlash(
+            FedoraConfig.snapshot().getBaseUrl()));
+
+        /**
+         * Ignore all "top level" containers for PASS entities, such as /submissions, etc, and the base URL itself,
+         * below the given base URL.
+         *
+         * @param baseUrl base URL of the repository
+         * @return predicate matching the containers
          */
-        public static final Predicate<State> IGNORE_CONTAINERS = s -> s.id.toString().matches(
-            endWithSlash(
-                FedoraConfig.getBaseUrl()) + "\\.{0,1}[a-zA-Z]+/*$") ||
-                    RepositoryCrawler.endWithSlash(s.id.toString()).equals(RepositoryCrawler
-                       .endWithSlash(FedoraConfig.getBaseUrl()));
+        public static Predicate<State> containers(String baseUrl) {
+            if (baseUrl == null) {
+                throw new IllegalArgumentException("baseUrl cannot be null");
+            }
+            final String base = endWithSlash(baseUrl);
+            return s -> isContainer(s.id.toString(), base);
+        }
+    }
+
+    /**
+     * Whether a URI has a path segment of the form {@code acl} or {@code acls}, preceded by any number of dots, after
+     * its first character. Scans the string rather than matching a regular expression, so nothing is allocated.
+     *
+     * @param uri URI of a resource
+     * @return true if the URI is of an ACL
+     */
+    static boolean isAcl(String uri) {
+        final int length = uri.length();
+        for (int slash = uri.indexOf('/', 1); slash >= 0; slash = uri.indexOf('/', slash + 1)) {
+            int i = slash + 1;
+            while (i < length && uri.charAt(i) == '.') {
+                i++;
+            }
+            if (uri.startsWith("acl", i)) {
+                i += 3;
+                while (i < length && uri.charAt(i) == 's') {
+                    i++;
+                }
+                if (i == length || uri.charAt(i) == '/') {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Whether a URI is the base URL, with or without its slash, or a container directly below it: a single segment of
+     * letters, optionally preceded by a dot and followed by slashes. Scans the string rather than matching a regular
+     * expression, so nothing is allocated.
+     *
+     * @param uri  URI of a resource
+     * @param base base URL, ending with a slash
+     * @return true if the URI is of a container
+     */
+    static boolean isContainer(String uri, String base) {
+        final int length = uri.length();
+        if (!uri.startsWith(base)) {
+            return length == base.length() - 1 && base.startsWith(uri);
+        }
+        int i = base.length();
+        if (i == length) {
+            return true;
+        }
+        if (uri.charAt(i) == '.') {
+            i++;
+        }
+        final int name = i;
+        while (i < length && isLetter(uri.charAt(i))) {
+            i++;
+        }
+        if (i == name) {
+            return false;
+        }
+        while (i < length && uri.charAt(i) == '/') {
+            i++;
+        }
+        return i == length;
+    }
+
+    private static boolean isLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
     }
 
     static String endWithSlash(String uri) {
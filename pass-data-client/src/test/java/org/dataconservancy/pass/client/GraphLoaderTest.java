@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dataconservancy.pass.model.Deposit;
+import org.dataconservancy.pass.model.Funder;
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.Journal;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.dataconservancy.pass.model.Policy;
+import org.dataconservancy.pass.model.Publication;
+import org.dataconservancy.pass.model.Repository;
+import org.dataconservancy.pass.model.RepositoryCopy;
+import org.dataconservancy.pass.model.Submission;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class GraphLoaderTest {
+
+    private static final IncludeSpec INCLUDE =
+        IncludeSpec.paths("publication.journal", "grants.primaryFunder.policy", "repositories")
+                   .incoming(PassEntityType.DEPOSIT, "submission", IncludeSpec.paths("repositoryCopy"));
+
+    private final URI submissionId = URI.create("http://example.org/fcrepo/rest/submissions/1");
+
+    private final URI publicationId = URI.create("http://example.org/fcrepo/rest/publications/1");
+
+    private final URI journalId = URI.create("http://example.org/fcrepo/rest/journals/1");
+
+    private final URI grant1Id = URI.create("http://example.org/fcrepo/rest/grants/1");
+
+    private final URI grant2Id = URI.create("http://example.org/fcrepo/rest/grants/2");
+
+    private final URI funderId = URI.create("http://example.org/fcrepo/rest/funders/1");
+
+    private final URI policyId = URI.create("http://example.org/fcrepo/rest/policies/1");
+
+    private final URI repositoryId = URI.create("http://example.org/fcrepo/rest/repositories/1");
+
+    private final URI depositId = URI.create("http://example.org/fcrepo/rest/deposits/1");
+
+    private final URI repositoryCopyId = URI.create("http://example.org/fcrepo/rest/repositoryCopies/1");
+
+    private final Map<URI, PassEntity> entities = new HashMap<>();
+
+    private final FakeSource source = new FakeSource();
+
+    @Before
+    public void setUp() {
+        Submission submission = entity(new Submission(), submissionId);
+        submission.setPublication(publicationId);
+        submission.setGrants(Arrays.asList(grant1Id, grant2Id));
+        submission.setRepositories(Collections.singletonList(repositoryId));
+        Publication publication = entity(new Publication(), publicationId);
+        publication.setJournal(journalId);
+        entity(new Journal(), journalId);
+        entity(new Grant(), grant1Id).setPrimaryFunder(funderId);
+        entity(new Grant(), grant2Id).setPrimaryFunder(funderId);
+        entity(new Funder(), funderId).setPolicy(policyId);
+        entity(new Policy(), policyId);
+        entity(new Repository(), repositoryId);
+        Deposit deposit = entity(new Deposit(), depositId);
+        deposit.setSubmission(submissionId);
+        deposit.setRepositoryCopy(repositoryCopyId);
+        entity(new RepositoryCopy(), repositoryCopyId);
+    }
+
+    /**
+     * The graph is loaded a level at a time, each entity is read once though two grants share a funder, and the
+     * references between the entities resolve to the loaded entities.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadGraph() throws Exception {
+        EntityGraph<Submission> graph = new GraphLoader(source).load(submissionId, Submission.class, INCLUDE).get();
+
+        assertSame(entities.get(submissionId), graph.getRoot());
+        assertEquals(entities, graph.getEntities());
+        assertEquals(4, graph.getWaves());
+
+        Submission submission = graph.getRoot();
+        List<Grant> grants = graph.get(submission.getGrants(), Grant.class);
+        assertEquals(2, grants.size());
+        assertSame(graph.get(grants.get(0).getPrimaryFunder(), Funder.class),
+                   graph.get(grants.get(1).getPrimaryFunder(), Funder.class));
+        Journal journal = graph.get(graph.get(submission.getPublication(), Publication.class).getJournal(),
+                                    Journal.class);
+        assertSame(entities.get(journalId), journal);
+
+        List<Deposit> deposits = graph.getIncoming(submissionId, Deposit.class, "submission");
+        assertEquals(Collections.singletonList(entities.get(depositId)), deposits);
+        assertSame(entities.get(repositoryCopyId),
+                   graph.get(deposits.get(0).getRepositoryCopy(), RepositoryCopy.class));
+
+        assertEquals(entities.keySet(), source.reads.keySet());
+        for (AtomicInteger reads : source.reads.values()) {
+            assertEquals(1, reads.get());
+        }
+        assertEquals(1, source.lookups.get());
+    }
+
+    /**
+     * Only the root is read when nothing is included
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testLoadRootOnly() throws Exception {
+        EntityGraph<Submission> graph = new GraphLoader(source).load(submissionId, Submission.class,
+                                                                     new IncludeSpec()).get();
+
+        assertEquals(Collections.singleton(submissionId), graph.getEntities().keySet());
+        assertEquals(1, graph.getWaves());
+        assertTrue(graph.get(graph.getRoot().getGrants(), Grant.class).isEmpty());
+    }
+
+    /**
+     * A spec naming a field that is not a reference is rejected before anything is read
+     */
+    @Test
+    public void testNotAReferenceField() {
+        for (String path : Arrays.asList("grants.awardNumber", "effectivePolicies.institution", "submitterEmail")) {
+            try {
+                new GraphLoader(source).load(submissionId, Submission.class, IncludeSpec.paths(path));
+                fail("Expected " + path + " to be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(source.reads.isEmpty());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotAnIncomingReference() {
+        new GraphLoader(source).load(submissionId, Submission.class,
+                                     new IncludeSpec().incoming(PassEntityType.DEPOSIT, "repository"));
+    }
+
+    private <T extends PassEntity> T entity(T entity, URI id) {
+        entity.setId(id);
+        entities.put(id, entity);
+        return entity;
+    }
+
+    /**
+     * Reads the test entities, counting the reads of each, and finds the deposit referencing the submission
+     */
+    private class FakeSource implements GraphLoader.Source {
+
+        final Map<URI, AtomicInteger> reads = new ConcurrentHashMap<>();
+
+        final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public <T extends PassEntity> CompletableFuture<T> read(URI uri, Class<T> modelClass) {
+            reads.computeIfAbsent(uri, u -> new AtomicInteger()).incrementAndGet();
+            return CompletableFuture.completedFuture(modelClass.cast(entities.get(uri)));
+        }
+
+        @Override
+        public CompletableFuture<Collection<URI>> incoming(URI uri, PassEntityType type, String field) {
+            lookups.incrementAndGet();
+            boolean referenced = uri.equals(submissionId) && type == PassEntityType.DEPOSIT &&
+                                 field.equals("submission");
+            return CompletableFuture.completedFuture(
+                referenced ? Collections.singleton(depositId) : Collections.emptySet());
+        }
+    }
+}
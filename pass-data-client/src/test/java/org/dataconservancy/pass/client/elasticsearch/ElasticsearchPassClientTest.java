@@ -0,0 +1,407 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.http.HttpHost;
+import org.dataconservancy.pass.client.AsyncPassClientDefault;
+import org.dataconservancy.pass.client.adapter.PassJsonAdapterBasic;
+import org.dataconservancy.pass.client.fedora.FedoraPassCrudClient;
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class ElasticsearchPassClientTest {
+
+    private static final String HIT_JSON = "{\"_index\":\"pass\",\"_type\":\"_doc\",\"_id\":\"%1$s\"," +
+                                           "\"_score\":1.0,\"_source\":{\"@id\":\"%1$s\",\"@type\":\"Grant\"," +
+                                           "\"awardNumber\":\"%2$s\",\"localKey\":\"%2$s\"}}";
+
+    private static final String SORTED_HIT_JSON = "{\"_index\":\"pass\",\"_type\":\"_doc\",\"_id\":\"%1$s\"," +
+                                                  "\"_score\":null,\"sort\":[\"%1$s\"]}";
+
+    private static final String SEARCH_JSON = "{\"took\":1,\"timed_out\":false,\"_shards\":{\"total\":1," +
+                                              "\"successful\":1,\"skipped\":0,\"failed\":0},\"hits\":{\"total\":%d," +
+                                              "\"max_score\":1.0,\"hits\":[%s]}}";
+
+    private MockWebServer server;
+
+    private ElasticsearchPassClient indexClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        indexClient = connect();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        indexClient.close();
+        server.shutdown();
+        System.clearProperty("pass.elasticsearch.page.size");
+        System.clearProperty("pass.elasticsearch.batch.size");
+        ElasticsearchConfig.refresh();
+    }
+
+    @Test
+    public void findAllEntitiesByAttributesTest() throws Exception {
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        URI grant2 = server.url("/fcrepo/grants/2").uri();
+        server.enqueue(searchResponse(grant2, grant1));
+
+        List<Grant> grants = indexClient.findAllEntitiesByAttributes(Grant.class, attributes(), 10, 5);
+
+        assertEquals(2, grants.size());
+        assertEquals(grant2, grants.get(0).getId());
+        assertEquals(grant2.toString(), grants.get(0).getAwardNumber());
+        assertEquals(grant1, grants.get(1).getId());
+        assertEquals(grant1.toString(), grants.get(1).getLocalKey());
+        assertNull(grants.get(0).getVersionTag());
+
+        RecordedRequest request = server.takeRequest();
+        assertTrue(request.getPath().contains("/_search"));
+        String query = request.getBody().readUtf8();
+        assertTrue(query.contains("\"from\":5"));
+        assertTrue(query.contains("\"size\":10"));
+        assertTrue(query.contains("\"filter\":[{\"match_phrase\":{\"@type\":{\"query\":\"Grant\""));
+        assertTrue(query.contains("{\"match_phrase\":{\"awardStatus\":{\"query\":\"active\""));
+    }
+
+    @Test
+    public void findAllByAttributesFetchesOnlyIdTest() throws Exception {
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        server.enqueue(searchResponse(grant1));
+
+        assertEquals(Collections.singleton(grant1), indexClient.findAllByAttributes(Grant.class, attributes()));
+
+        String query = server.takeRequest().getBody().readUtf8();
+        assertTrue(query.contains("\"_source\":{\"includes\":[\"@id\"]"));
+    }
+
+    @Test
+    public void findAllEntitiesByAttributesProjectionTest() throws Exception {
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        server.enqueue(searchResponse(grant1));
+
+        List<Grant> grants = indexClient.findAllEntitiesByAttributes(Grant.class, attributes(),
+                                                                     Arrays.asList("awardNumber"), 10, 0);
+
+        assertEquals(1, grants.size());
+        assertEquals(grant1, grants.get(0).getId());
+
+        String query = server.takeRequest().getBody().readUtf8();
+        assertTrue(query.contains("\"_source\":{\"includes\":[\"@id\",\"@type\",\"awardNumber\"]"));
+    }
+
+    /**
+     * Entities populated from the index are returned without reading Fedora, and without a version tag that would let
+     * an update of a stale entity pass the repository's conflict check
+     *
+     * @throws Exception
+     */
+    @Test
+    public void findAllEntitiesByAttributesHasNoVersionTagTest() throws Exception {
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        URI grant2 = server.url("/fcrepo/grants/2").uri();
+        server.enqueue(searchResponse(grant1, grant2));
+
+        AsyncPassClientDefault client = new AsyncPassClientDefault(new FedoraPassCrudClient(), indexClient);
+        List<Grant> grants = client.findAllEntitiesByAttributes(Grant.class, attributes(), 10, 0).get();
+
+        assertEquals(2, grants.size());
+        assertNull(grants.get(0).getVersionTag());
+        assertNull(grants.get(1).getVersionTag());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void streamAllByAttributesTest() throws Exception {
+        System.setProperty("pass.elasticsearch.page.size", "2");
+        reconnect();
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        URI grant2 = server.url("/fcrepo/grants/2").uri();
+        URI grant3 = server.url("/fcrepo/grants/3").uri();
+        server.enqueue(sortedSearchResponse(grant1, grant2));
+        server.enqueue(sortedSearchResponse(grant3));
+
+        List<URI> uris = indexClient.streamAllByAttributes(Grant.class, attributes()).collect(Collectors.toList());
+
+        assertEquals(Arrays.asList(grant1, grant2, grant3), uris);
+        assertEquals(2, server.getRequestCount());
+
+        String first = server.takeRequest().getBody().readUtf8();
+        assertTrue(first.contains("\"size\":2"));
+        assertTrue(first.contains("\"@id\":{\"order\":\"asc\"}"));
+        assertTrue(first.contains("\"_source\":false"));
+        assertFalse(first.contains("search_after"));
+        String second = server.takeRequest().getBody().readUtf8();
+        assertTrue(second.contains("\"search_after\":[\"" + grant2 + "\"]"));
+    }
+
+    @Test
+    public void streamAllByAttributesStopsFetchingTest() throws Exception {
+        System.setProperty("pass.elasticsearch.page.size", "2");
+        reconnect();
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        URI grant2 = server.url("/fcrepo/grants/2").uri();
+        server.enqueue(sortedSearchResponse(grant1, grant2));
+
+        Stream<URI> uris = indexClient.streamAllByAttribute(Grant.class, "awardStatus", "active");
+        assertEquals(0, server.getRequestCount());
+
+        assertEquals(grant1, uris.findFirst().get());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void findByAttributeBatchTest() throws Exception {
+        System.setProperty("pass.elasticsearch.batch.size", "2");
+        reconnect();
+        URI grant1 = server.url("/fcrepo/grants/1").uri();
+        URI grant3 = server.url("/fcrepo/grants/3").uri();
+        Map<String, URI> index = new HashMap<>();
+        index.put("award-1", grant1);
+        index.put("award-3", grant3);
+        server.setDispatcher(multiSearchDispatcher(index));
+
+        Map<String, URI> uris = indexClient.findByAttributeBatch(Grant.class, "awardNumber",
+                                                                 Arrays.asList("award-3", "award-2", "award-1",
+                                                                               "award-3"));
+
+        assertEquals(Arrays.asList("award-3", "award-2", "award-1"), new ArrayList<>(uris.keySet()));
+        assertEquals(grant3, uris.get("award-3"));
+        assertNull(uris.get("award-2"));
+        assertEquals(grant1, uris.get("award-1"));
+
+        assertEquals(2, server.getRequestCount());
+        for (int i = 0; i < 2; i++) {
+            RecordedRequest request = server.takeRequest();
+            assertTrue(request.getPath().contains("/_msearch"));
+            String body = request.getBody().readUtf8();
+            assertTrue(body.contains("\"size\":2"));
+            assertTrue(body.contains("\"_source\":{\"includes\":[\"@id\"]"));
+        }
+    }
+
+    @Test
+    public void findByAttributeBatchMoreThanOneMatchTest() throws Exception {
+        server.setDispatcher(multiSearchDispatcher(Collections.singletonMap("award-1",
+                                                                            server.url("/fcrepo/grants/1").uri())));
+
+        try {
+            indexClient.findByAttributeBatch(Grant.class, "awardNumber", Arrays.asList("award-1", "duplicate"));
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("More than one results was returned by this query " +
+                                               "(awardNumber = duplicate)"));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void findByAttributeBatchNullValueTest() {
+        indexClient.findByAttributeBatch(Grant.class, "awardNumber", Arrays.asList("award-1", null));
+    }
+
+    @Test
+    public void getIncomingTest() throws Exception {
+        System.setProperty("pass.elasticsearch.page.size", "2");
+        System.setProperty("pass.elasticsearch.batch.size", "2");
+        reconnect();
+        URI submission = server.url("/fcrepo/submissions/1").uri();
+        URI deposit1 = server.url("/fcrepo/deposits/1").uri();
+        URI deposit2 = server.url("/fcrepo/deposits/2").uri();
+        URI deposit3 = server.url("/fcrepo/deposits/3").uri();
+        URI event = server.url("/fcrepo/submissionEvents/1").uri();
+        Map<String, List<URI>> references = new HashMap<>();
+        references.put("Deposit.submission", Arrays.asList(deposit1, deposit2, deposit3));
+        references.put("SubmissionEvent.submission", Collections.singletonList(event));
+        references.put("SubmissionEvent.link", Collections.singletonList(submission));
+        server.setDispatcher(referenceDispatcher(references));
+
+        Map<String, Collection<URI>> incoming = indexClient.getIncoming(
+            submission, null, Arrays.asList(PassEntityType.DEPOSIT, PassEntityType.SUBMISSION_EVENT));
+
+        assertEquals(Collections.singleton("submission"), incoming.keySet());
+        assertEquals(new HashSet<>(Arrays.asList(deposit1, deposit2, deposit3, event)),
+                     new HashSet<>(incoming.get("submission")));
+
+        // Five reference fields, but not the link of an event, two searches to a multi-search, and a second page of
+        // deposits
+        assertEquals(4, server.getRequestCount());
+        int multiSearches = 0;
+        for (int i = 0; i < 4; i++) {
+            RecordedRequest request = server.takeRequest();
+            String body = request.getBody().readUtf8();
+            assertTrue(body.contains("\"_source\":false"));
+            assertFalse(body.contains("\"link\""));
+            if (request.getPath().contains("/_msearch")) {
+                multiSearches++;
+                assertFalse(body.contains("search_after"));
+            } else {
+                assertTrue(body.contains("\"search_after\":[\"" + deposit2 + "\"]"));
+            }
+        }
+        assertEquals(3, multiSearches);
+    }
+
+    @Test
+    public void getIncomingByPredicateTest() throws Exception {
+        URI submission = server.url("/fcrepo/submissions/1").uri();
+        URI deposit = server.url("/fcrepo/deposits/1").uri();
+        server.setDispatcher(referenceDispatcher(Collections.singletonMap("Deposit.submission",
+                                                                          Collections.singletonList(deposit))));
+
+        Map<String, Collection<URI>> incoming = indexClient.getIncoming(
+            submission, Collections.singleton("submission"), Collections.singleton(PassEntityType.DEPOSIT));
+
+        assertEquals(Collections.singleton(deposit), new HashSet<>(incoming.get("submission")));
+        assertEquals(1, server.getRequestCount());
+        String body = server.takeRequest().getBody().readUtf8();
+        assertTrue(body.contains("\"query\":\"Deposit\""));
+        assertFalse(body.contains("\"repository\""));
+    }
+
+    /**
+     * Answers each search in a multi-search with the entity indexed under its value, or two entities for the value
+     * "duplicate".
+     */
+    private Dispatcher multiSearchDispatcher(Map<String, URI> index) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                List<String> responses = new ArrayList<>();
+                for (String line : request.getBody().clone().readUtf8().split("\n")) {
+                    if (!line.contains("match_phrase")) {
+                        continue;
+                    }
+                    List<String> hits = new ArrayList<>();
+                    if (line.contains("\"duplicate\"")) {
+                        hits.add(String.format(HIT_JSON, server.url("/fcrepo/grants/8").uri(), "duplicate"));
+                        hits.add(String.format(HIT_JSON, server.url("/fcrepo/grants/9").uri(), "duplicate"));
+                    }
+                    index.forEach((value, id) -> {
+                        if (line.contains("\"" + value + "\"")) {
+                            hits.add(String.format(HIT_JSON, id, value));
+                        }
+                    });
+                    String search = String.format(SEARCH_JSON, hits.size(), String.join(",", hits));
+                    responses.add(search.substring(0, search.length() - 1) + ",\"status\":200}");
+                }
+                return new MockResponse().setHeader("Content-Type", "application/json")
+                                         .setBody("{\"took\":1,\"responses\":[" + String.join(",", responses) +
+                                                  "]}");
+            }
+        };
+    }
+
+    /**
+     * Answers each search for references, whether in a multi-search or on its own, with the entities referencing the
+     * URI in the field searched, keyed by type and field, a page of two at a time.
+     */
+    private Dispatcher referenceDispatcher(Map<String, List<URI>> references) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                List<String> responses = new ArrayList<>();
+                for (String line : request.getBody().clone().readUtf8().split("\n")) {
+                    if (!line.contains("match_phrase")) {
+                        continue;
+                    }
+                    List<URI> matches = new ArrayList<>();
+                    references.forEach((key, ids) -> {
+                        String[] typeAndField = key.split("\\.");
+                        if (line.contains("\"query\":\"" + typeAndField[0] + "\"") &&
+                            line.contains("\"" + typeAndField[1] + "\":{\"query\"")) {
+                            matches.addAll(ids);
+                        }
+                    });
+                    List<URI> page = line.contains("search_after") ? matches.subList(2, matches.size())
+                                                                   : matches.subList(0, Math.min(2, matches.size()));
+                    String[] hits = page.stream().map(id -> String.format(SORTED_HIT_JSON, id)).toArray(String[]::new);
+                    responses.add(String.format(SEARCH_JSON, page.size(), String.join(",", hits)));
+                }
+                String body = responses.get(0);
+                if (request.getPath().contains("/_msearch")) {
+                    body = "{\"took\":1,\"responses\":[" + responses.stream().map(
+                        search -> search.substring(0, search.length() - 1) + ",\"status\":200}")
+                        .collect(Collectors.joining(",")) + "]}";
+                }
+                return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+            }
+        };
+    }
+
+    private static Map<String, Object> attributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("awardStatus", "active");
+        return attributes;
+    }
+
+    private static MockResponse sortedSearchResponse(URI... ids) {
+        String[] hits = Arrays.stream(ids).map(id -> String.format(SORTED_HIT_JSON, id)).toArray(String[]::new);
+        return new MockResponse().setHeader("Content-Type", "application/json")
+                                 .setBody(String.format(SEARCH_JSON, ids.length, String.join(",", hits)));
+    }
+
+    private static MockResponse searchResponse(URI... ids) {
+        String[] hits = Arrays.stream(ids).map(id -> String.format(HIT_JSON, id, id)).toArray(String[]::new);
+        return new MockResponse().setHeader("Content-Type", "application/json")
+                                 .setBody(String.format(SEARCH_JSON, ids.length, String.join(",", hits)));
+    }
+
+    private ElasticsearchPassClient connect() {
+        RestHighLevelClient client = new RestHighLevelClient(
+            RestClient.builder(new HttpHost(server.getHostName(), server.getPort(), "http")));
+        return new ElasticsearchPassClient(client, new PassJsonAdapterBasic(), ElasticsearchConfig.refresh());
+    }
+
+    /**
+     * Connect again, so that the client reads the configuration as changed by the test
+     */
+    private void reconnect() {
+        indexClient.close();
+        indexClient = connect();
+    }
+}
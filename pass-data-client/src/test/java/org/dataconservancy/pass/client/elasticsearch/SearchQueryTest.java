@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.Submission.Source;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class SearchQueryTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void filtersAndExclusionsTest() throws Exception {
+        SearchQuery<Submission> query = new SearchQuery<>(Submission.class)
+            .equal("title", "A \"quoted\" title: (with) reserved + chars")
+            .in("grants", Arrays.asList(URI.create("http://example.org/grants/1"),
+                                        URI.create("http://example.org/grants/2")))
+            .range("submittedDate", new DateTime(2019, 1, 1, 5, 0, DateTimeZone.forOffsetHours(5)), null)
+            .exists("publication")
+            .notEqual("source", Source.OTHER)
+            .equal("doi", null);
+
+        JsonNode bool = mapper.readTree(query.toString()).get("bool");
+        JsonNode filter = bool.get("filter");
+        JsonNode mustNot = bool.get("must_not");
+
+        assertEquals(5, filter.size());
+        assertEquals("Submission", filter.get(0).at("/match_phrase/@type/query").asText());
+        assertEquals("A \"quoted\" title: (with) reserved + chars", filter.get(1).at("/match_phrase/title/query")
+                                                                           .asText());
+
+        JsonNode grants = filter.get(2).at("/bool/should");
+        assertEquals(2, grants.size());
+        assertEquals("http://example.org/grants/2", grants.get(1).at("/match_phrase/grants/query").asText());
+        assertEquals("1", filter.get(2).at("/bool/minimum_should_match").asText());
+
+        assertEquals("2019-01-01T00:00:00.000Z", filter.get(3).at("/range/submittedDate/from").asText());
+        assertEquals(true, filter.get(3).at("/range/submittedDate/to").isNull());
+        assertEquals("publication", filter.get(4).at("/exists/field").asText());
+
+        assertEquals(2, mustNot.size());
+        assertEquals("other", mustNot.get(0).at("/match_phrase/source/query").asText());
+        assertEquals("doi", mustNot.get(1).at("/exists/field").asText());
+        assertFalse(bool.has("must"));
+    }
+
+    @Test
+    public void notInTest() throws Exception {
+        SearchQuery<Grant> query = new SearchQuery<>(Grant.class).notIn("awardStatus", Arrays.asList("active",
+                                                                                                    "terminated"));
+
+        JsonNode mustNot = mapper.readTree(query.toString()).at("/bool/must_not");
+        assertEquals(1, mustNot.size());
+        assertEquals(2, mustNot.get(0).at("/bool/should").size());
+        assertEquals(Grant.class, query.getModelClass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyInTest() {
+        new SearchQuery<>(Grant.class).in("awardStatus", Collections.emptyList());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void collectionValueTest() {
+        new SearchQuery<>(Grant.class).equal("awardStatus", Collections.singleton("active"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void openRangeTest() {
+        new SearchQuery<>(Grant.class).range("startDate", null, null);
+    }
+}
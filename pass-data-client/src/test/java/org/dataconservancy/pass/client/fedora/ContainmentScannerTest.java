@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class ContainmentScannerTest {
+
+    private static final String CONTAINS = "<http://www.w3.org/ns/ldp#contains>";
+
+    @Test
+    public void containsTriplesTest() throws Exception {
+        String nt = "# a comment <a> " + CONTAINS + " <http://example.org/not-a-child> .\n" +
+                    "<http://example.org/c> <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> " +
+                    "<http://www.w3.org/ns/ldp#Container> .\n" +
+                    "\n" +
+                    "<http://example.org/c> " + CONTAINS + " <http://example.org/c/1> .\r\n" +
+                    "<http://example.org/c>\t" + CONTAINS + "\t<http://example.org/c/2> .\n" +
+                    "<http://example.org/c> <http://www.w3.org/ns/ldp#containsNot> <http://example.org/c/3> .\n" +
+                    "<http://example.org/c> <http://example.org/label> \"<http://example.org/c/4>\" .\n" +
+                    "_:b0 " + CONTAINS + " <http://example.org/c/5> .\n" +
+                    "<http://example.org/c> " + CONTAINS + " <http://example.org/c/\\u00E9t\\U0001F600> .\n" +
+                    "<http://example.org/c> " + CONTAINS + " <http://example.org/c/über> .\n" +
+                    "<http://example.org/c> " + CONTAINS + " <http://example.org/c/unterminated\n" +
+                    "<http://example.org/c> " + CONTAINS + " <http://example.org/c/6> .";
+
+        List<URI> children = scan(nt);
+
+        assertEquals(asList(URI.create("http://example.org/c/1"), URI.create("http://example.org/c/2"),
+                            URI.create("http://example.org/c/ét😀"),
+                            URI.create("http://example.org/c/über"), URI.create("http://example.org/c/6")),
+                     children);
+    }
+
+    @Test
+    public void largeListingTest() throws Exception {
+        StringBuilder nt = new StringBuilder();
+        String longPath = "x".repeat(1000);
+        for (int i = 0; i < 5000; i++) {
+            nt.append("<http://example.org/c> ").append(CONTAINS).append(" <http://example.org/c/")
+              .append(i % 10 == 0 ? longPath : "").append(i).append("> .\n");
+        }
+
+        List<URI> children = scan(nt.toString());
+
+        assertEquals(5000, children.size());
+        assertEquals(URI.create("http://example.org/c/" + longPath + "4990"), children.get(4990));
+        assertEquals(URI.create("http://example.org/c/4999"), children.get(4999));
+    }
+
+    private static List<URI> scan(String nt) throws Exception {
+        List<URI> children = new ArrayList<>();
+        int count = ContainmentScanner.scan(new ByteArrayInputStream(nt.getBytes(UTF_8)), children::add);
+        assertEquals(children.size(), count);
+        return children;
+    }
+}
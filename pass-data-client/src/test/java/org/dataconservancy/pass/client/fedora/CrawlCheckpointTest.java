@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class CrawlCheckpointTest {
+
+    private static final URI ROOT = URI.create("http://example.org/fcrepo/rest/");
+
+    private static final URI SUBMISSIONS = URI.create("http://example.org/fcrepo/rest/submissions");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = folder.newFolder().toPath().resolve("crawl.checkpoint");
+    }
+
+    @Test
+    public void resumeTest() {
+        CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        checkpoint.enter(child(ROOT, "grants"));
+        checkpoint.done(child(ROOT, "grants/1"));
+        checkpoint.exit();
+        checkpoint.enter(SUBMISSIONS);
+        checkpoint.done(child(SUBMISSIONS, "1"));
+        checkpoint.done(child(SUBMISSIONS, "2"));
+        checkpoint.close();
+
+        checkpoint = CrawlCheckpoint.open(file, ROOT);
+        assertTrue(checkpoint.resumes(ROOT));
+        checkpoint.enter(ROOT);
+        assertTrue(checkpoint.isDone(child(ROOT, "grants")));
+        assertFalse(checkpoint.isDone(SUBMISSIONS));
+        assertFalse(checkpoint.resumes(child(ROOT, "journals")));
+        assertTrue(checkpoint.resumes(SUBMISSIONS));
+        checkpoint.enter(SUBMISSIONS);
+        assertEquals(2, checkpoint.position());
+        assertTrue(checkpoint.isDone(child(SUBMISSIONS, "2")));
+        assertFalse(checkpoint.isDone(child(SUBMISSIONS, "3")));
+
+        checkpoint.done(child(SUBMISSIONS, "3"));
+        checkpoint.exit();
+        checkpoint.exit();
+        checkpoint.complete();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void compactionTest() throws Exception {
+        int containers = 20000;
+        CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        for (int i = 0; i < containers; i++) {
+            URI container = child(ROOT, "container-with-a-long-name/" + i);
+            checkpoint.enter(container);
+            checkpoint.done(child(container, "child"));
+            checkpoint.exit();
+        }
+        checkpoint.close();
+
+        // Without compaction, each container would take over 70 bytes; once complete, each needs only its hash
+        assertTrue(Files.size(file) < containers * 30L);
+
+        checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        assertEquals(containers, checkpoint.position());
+        assertTrue(checkpoint.isDone(child(ROOT, "container-with-a-long-name/" + (containers - 1))));
+        checkpoint.close();
+    }
+
+    @Test
+    public void truncatedRecordTest() throws Exception {
+        CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        checkpoint.done(child(ROOT, "1"));
+        checkpoint.close();
+
+        // A record cut short, as the crawl stopped
+        Files.write(file, new byte[] {'D', 1, 2, 3}, APPEND);
+
+        checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        assertEquals(1, checkpoint.position());
+        checkpoint.done(child(ROOT, "2"));
+        checkpoint.close();
+
+        checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        assertEquals(2, checkpoint.position());
+        checkpoint.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void anotherRootTest() {
+        CrawlCheckpoint checkpoint = CrawlCheckpoint.open(file, ROOT);
+        checkpoint.enter(ROOT);
+        checkpoint.close();
+
+        CrawlCheckpoint.open(file, SUBMISSIONS);
+    }
+
+    private static URI child(URI parent, String path) {
+        return URI.create(parent + (parent.toString().endsWith("/") ? "" : "/") + path);
+    }
+}
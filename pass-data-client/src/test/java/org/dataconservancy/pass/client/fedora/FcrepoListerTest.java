@@ -0,0 +1,141 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class FcrepoListerTest {
+
+    private MockWebServer server;
+
+    private URI container;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        container = server.url("/submissions").uri();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void pagedListingTest() throws Exception {
+        server.enqueue(new MockResponse().setHeader("Link", "</submissions?page=2>; rel=\"next\"")
+                                         .setBody(listing(0, 3)));
+        server.enqueue(new MockResponse().setBody(listing(3, 5)));
+
+        List<URI> children;
+        try (Stream<URI> stream = new FcrepoLister().streamChildren(container)) {
+            children = stream.collect(toList());
+        }
+
+        assertEquals(children(0, 5), children);
+        assertEquals("/submissions", server.takeRequest().getPath());
+        assertEquals("/submissions?page=2", server.takeRequest().getPath());
+    }
+
+    @Test
+    public void resumeAfterFailureTest() throws Exception {
+        server.enqueue(new MockResponse().setBody(listing(0, 200))
+                                         .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        server.enqueue(new MockResponse().setBody(listing(0, 200)));
+
+        List<URI> children;
+        try (Stream<URI> stream = new FcrepoLister().streamChildren(container)) {
+            children = stream.collect(toList());
+        }
+
+        assertEquals(children(0, 200), children);
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void listingChangedWhileResumingTest() {
+        server.enqueue(new MockResponse().setBody(listing(0, 200))
+                                         .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        server.enqueue(new MockResponse().setBody(listing(1, 200)));
+
+        try (Stream<URI> stream = new FcrepoLister().streamChildren(container)) {
+            stream.forEach(child -> { });
+            fail("Expected the listing to fail");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage().contains("changed while resuming"));
+        }
+    }
+
+    @Test
+    public void nestedListingsTest() {
+        // More listings open at once than the client has connections; those beyond the limit are read in full
+        int listings = 8;
+        for (int i = 0; i < listings; i++) {
+            server.enqueue(new MockResponse().setBody(listing(0, 10)));
+        }
+
+        FcrepoLister lister = new FcrepoLister();
+        List<Stream<URI>> streams = new ArrayList<>();
+        List<Iterator<URI>> iterators = new ArrayList<>();
+        for (int i = 0; i < listings; i++) {
+            Stream<URI> stream = lister.streamChildren(container);
+            streams.add(stream);
+            iterators.add(stream.iterator());
+            assertEquals(children(0, 1).get(0), iterators.get(i).next());
+        }
+
+        for (Iterator<URI> iterator : iterators) {
+            List<URI> rest = new ArrayList<>();
+            iterator.forEachRemaining(rest::add);
+            assertEquals(children(1, 10), rest);
+        }
+        streams.forEach(Stream::close);
+    }
+
+    private String listing(int from, int to) {
+        StringBuilder nt = new StringBuilder();
+        for (URI child : children(from, to)) {
+            nt.append('<').append(container).append("> <http://www.w3.org/ns/ldp#contains> <").append(child)
+              .append("> .\n");
+        }
+        return nt.toString();
+    }
+
+    private List<URI> children(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> URI.create(container + "/" + i)).collect(toList());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.PassEntity;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class FedoraConfigTest {
+
+    @After
+    public void tearDown() {
+        System.clearProperty("pass.fedora.baseurl");
+        System.clearProperty("pass.fedora.requests.max");
+        FedoraConfig.refresh();
+    }
+
+    @Test
+    public void snapshotContainersTest() throws Exception {
+        FedoraConfig.Snapshot config = FedoraConfig.refresh();
+        for (PassEntityType type : PassEntityType.values()) {
+            URI expected = URI.create(FedoraConfig.getContainer(type.getName()));
+            assertEquals(expected, config.getContainer(type));
+            @SuppressWarnings("unchecked")
+            Class<? extends PassEntity> modelClass = (Class<? extends PassEntity>) Class.forName(
+                "org.dataconservancy.pass.model." + type.getName());
+            assertEquals(expected, config.getContainer(modelClass));
+        }
+    }
+
+    @Test
+    public void snapshotKeptUntilRefreshedTest() {
+        System.setProperty("pass.fedora.baseurl", "http://example.org/fcrepo/rest");
+        System.setProperty("pass.fedora.requests.max", "3");
+        FedoraConfig.Snapshot config = FedoraConfig.refresh();
+        assertSame(config, FedoraConfig.snapshot());
+
+        System.setProperty("pass.fedora.baseurl", "http://example.org/other/");
+        System.setProperty("pass.fedora.requests.max", "5");
+        assertEquals("http://example.org/fcrepo/rest/", config.getBaseUrl());
+        assertEquals(URI.create("http://example.org/fcrepo/rest/grants"), config.getContainer(Grant.class));
+        assertEquals(3, FedoraConfig.snapshot().getMaxRequests());
+
+        FedoraConfig.Snapshot refreshed = FedoraConfig.refresh();
+        assertEquals("http://example.org/other/", refreshed.getBaseUrl());
+        assertEquals(5, refreshed.getMaxRequests());
+        assertEquals(3, config.getMaxRequests());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownContainerTest() {
+        FedoraConfig.snapshot().getContainer(PassEntity.class);
+    }
+}
@@ -0,0 +1,499 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client.fedora;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.dataconservancy.pass.client.ReadResult;
+import org.dataconservancy.pass.model.Deposit;
+import org.dataconservancy.pass.model.Grant;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class FedoraPassCrudClientTest {
+
+    private static final String GRANT_JSON = "{\"@id\":\"%s\",\"@type\":\"Grant\",\"awardNumber\":\"abc123\"}";
+
+    private MockWebServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+        System.clearProperty("pass.fedora.requests.max");
+        FedoraConfig.refresh();
+    }
+
+    @Test
+    public void readResourceTest() throws Exception {
+        URI uri = server.url("/grants/1").uri();
+        server.enqueue(new MockResponse().setHeader("ETag", "W/\"1234\"")
+                                         .setBody(String.format(GRANT_JSON, uri)));
+
+        Grant grant = new FedoraPassCrudClient().readResource(uri, Grant.class);
+
+        assertEquals(uri, grant.getId());
+        assertEquals("abc123", grant.getAwardNumber());
+        assertEquals("\"1234\"", grant.getVersionTag());
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("GET", request.getMethod());
+        assertEquals("application/ld+json", request.getHeader("Accept"));
+        assertTrue(request.getHeader("Prefer").startsWith("return=representation; omit="));
+    }
+
+    @Test
+    public void readResourceAsyncFailureTest() {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        CompletableFuture<Grant> future = new FedoraPassCrudClient().readResourceAsync(
+            server.url("/grants/missing").uri(), Grant.class);
+
+        try {
+            future.join();
+            fail("Expected the read to fail");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause().getMessage().contains("read a Resource"));
+        }
+    }
+
+    @Test
+    public void getIncomingTest() throws Exception {
+        URI submission = server.url("/fcrepo/rest/submissions/1").uri();
+        FedoraConfig.Snapshot config = FedoraConfig.snapshot();
+        URI deposit1 = URI.create(config.getContainer(PassEntityType.DEPOSIT) + "/1");
+        URI deposit2 = URI.create(config.getContainer(PassEntityType.DEPOSIT) + "/2");
+        URI file = URI.create(config.getContainer(PassEntityType.FILE) + "/1");
+        URI copy = URI.create(config.getContainer(PassEntityType.REPOSITORY_COPY) + "/1");
+        String json = "{\"@context\":{\"submission\":{\"@id\":\"http://example.org/pass#submission\"}}," +
+                      "\"@graph\":[{\"@id\":\"" + submission + "\",\"source\":\"pass\"}," +
+                      "{\"submission\":\"" + submission + "\",\"@id\":\"" + deposit1 + "\"}," +
+                      "{\"@id\":\"" + deposit2 + "\",\"submission\":{\"@id\":\"" + submission + "\"}}," +
+                      "{\"@id\":\"" + file + "\",\"submission\":\"" + submission + "\",\"other\":[\"" +
+                      submission + "\"]}," +
+                      "{\"@id\":\"" + copy + "\",\"publication\":\"" + submission + "\"}]}";
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().setBody(json));
+        }
+        FedoraPassCrudClient client = new FedoraPassCrudClient();
+
+        Map<String, Collection<URI>> incoming = client.getIncoming(submission);
+        assertEquals(3, incoming.size());
+        assertEquals(new HashSet<>(Arrays.asList(deposit1, deposit2, file)), incoming.get("submission"));
+        assertEquals(Collections.singleton(file), incoming.get("other"));
+        assertEquals(Collections.singleton(copy), incoming.get("publication"));
+
+        incoming = client.getIncoming(submission, Collections.singleton("submission"),
+                                      Collections.singleton(PassEntityType.DEPOSIT));
+        assertEquals(1, incoming.size());
+        assertEquals(new HashSet<>(Arrays.asList(deposit1, deposit2)), incoming.get("submission"));
+
+        List<String> predicates = new ArrayList<>();
+        assertEquals(2, client.forEachIncoming(submission, null, Collections.singleton(PassEntityType.FILE),
+            (predicate, link) -> {
+                assertEquals(file, link);
+                predicates.add(predicate);
+            }));
+        assertEquals(Arrays.asList("submission", "other"), predicates);
+
+        RecordedRequest request = server.takeRequest();
+        assertTrue(request.getHeader("Prefer").contains("InboundReferences"));
+    }
+
+    /**
+     * Links are recognized by the containers they are in, though Fedora gives them under another host, scheme and
+     * port than the configured base URL
+     *
+     * @throws Exception
+     */
+    @Test
+    public void getIncomingUnderOtherBaseTest() throws Exception {
+        URI submission = server.url("/fcrepo/rest/submissions/1").uri();
+        URI deposit = URI.create("https://pass.example.org:8443/fcrepo/rest/deposits/ab/cd/1");
+        URI event = URI.create("https://pass.example.org:8443/fcrepo/rest/submissionEvents/1");
+        assertFalse(deposit.toString().startsWith(FedoraConfig.snapshot().getBaseUrl()));
+        server.enqueue(new MockResponse().setBody(
+            "{\"@graph\":[{\"@id\":\"" + deposit + "\",\"submission\":\"" + submission + "\"}," +
+            "{\"@id\":\"" + event + "\",\"submission\":\"" + submission + "\"}]}"));
+
+        Map<String, Collection<URI>> incoming = new FedoraPassCrudClient().getIncoming(
+            submission, Collections.singleton("submission"), Collections.singleton(PassEntityType.DEPOSIT));
+
+        assertEquals(Collections.singletonMap("submission", Collections.singleton(deposit)), incoming);
+    }
+
+    /**
+     * The consumer of the blocking form runs on the calling thread, so it may read each linking entity from the same
+     * client, even with a single request allowed in flight
+     */
+    @Test(timeout = 10000)
+    public void forEachIncomingConsumerMayReadTest() {
+        System.setProperty("pass.fedora.requests.max", "1");
+        URI submission = server.url("/fcrepo/rest/submissions/1").uri();
+        URI deposit1 = server.url("/fcrepo/rest/deposits/1").uri();
+        URI deposit2 = server.url("/fcrepo/rest/deposits/2").uri();
+        String json = "{\"@graph\":[{\"@id\":\"" + submission + "\"}," +
+                      "{\"@id\":\"" + deposit1 + "\",\"submission\":\"" + submission + "\"}," +
+                      "{\"@id\":\"" + deposit2 + "\",\"submission\":\"" + submission + "\"}]}";
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().contains("/submissions/")) {
+                    return new MockResponse().setBody(json);
+                }
+                return new MockResponse().setBody(
+                    String.format("{\"@id\":\"%s\",\"@type\":\"Deposit\"}", server.url(request.getPath())));
+            }
+        });
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient(FedoraConfig.refresh());
+        Thread caller = Thread.currentThread();
+        List<URI> read = new ArrayList<>();
+        int count = client.forEachIncoming(submission, Collections.singleton("submission"), null, (predicate, link) -> {
+            assertEquals(caller, Thread.currentThread());
+            read.add(client.readResource(link, Deposit.class).getId());
+        });
+
+        assertEquals(2, count);
+        assertEquals(Arrays.asList(deposit1, deposit2), read);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void forEachIncomingConsumerExceptionTest() {
+        URI submission = server.url("/fcrepo/rest/submissions/1").uri();
+        server.enqueue(new MockResponse().setBody(
+            "{\"@graph\":[{\"@id\":\"" + server.url("/fcrepo/rest/deposits/1") + "\",\"submission\":\"" +
+            submission + "\"}]}"));
+
+        new FedoraPassCrudClient().forEachIncoming(submission, null, null, (predicate, link) -> {
+            throw new IllegalStateException("Stop");
+        });
+    }
+
+    /**
+     * An error in the handler of an enqueued request completes its future, and the request leaves the in-flight limit
+     */
+    @Test(timeout = 10000)
+    public void handlerErrorCompletesFutureTest() {
+        System.setProperty("pass.fedora.requests.max", "1");
+        URI submission = server.url("/fcrepo/rest/submissions/1").uri();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().contains("/submissions/")) {
+                    return new MockResponse().setBody(
+                        "{\"@graph\":[{\"@id\":\"" + server.url("/fcrepo/rest/deposits/1") +
+                        "\",\"submission\":\"" + submission + "\"}]}");
+                }
+                return new MockResponse().setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient(FedoraConfig.refresh());
+        CompletableFuture<Integer> future = client.forEachIncomingAsync(submission, null, null, (predicate, link) -> {
+            throw new AssertionError("Stop");
+        });
+
+        try {
+            future.join();
+            fail("Expected the consumer's error");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+        URI grant = server.url("/grants/1").uri();
+        assertEquals(grant, client.readResourceAsync(grant, Grant.class).join().getId());
+    }
+
+    @Test(expected = UpdateConflictException.class)
+    public void updateConflictTest() {
+        server.enqueue(new MockResponse().setResponseCode(412));
+
+        Grant grant = new Grant();
+        grant.setId(server.url("/grants/1").uri());
+        grant.setVersionTag("\"1234\"");
+
+        new FedoraPassCrudClient().updateResource(grant);
+    }
+
+    @Test
+    public void uploadTest() throws Exception {
+        URI location = server.url("/submissions/1/file").uri();
+        server.enqueue(new MockResponse().setResponseCode(201).setHeader("Location", location));
+
+        Map<String, String> params = new HashMap<>();
+        params.put("content-type", "text/plain");
+        params.put("slug", "file");
+        params.put("sha1", "a9993e364706816aba3e25717850c26c9cd0d89d");
+        params.put("filename", "my file.txt");
+
+        URI uploaded = new FedoraPassCrudClient().upload(
+            server.url("/submissions/1").uri(),
+            new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8)), params);
+
+        assertEquals(location, uploaded);
+
+        RecordedRequest request = server.takeRequest();
+        assertEquals("POST", request.getMethod());
+        assertEquals("abc", request.getBody().readUtf8());
+        assertTrue(request.getHeader("Content-Type").startsWith("text/plain"));
+        assertEquals("file", request.getHeader("Slug"));
+        assertEquals("sha1=a9993e364706816aba3e25717850c26c9cd0d89d", request.getHeader("Digest"));
+        assertEquals("attachment; filename=\"my+file.txt\"", request.getHeader("Content-Disposition"));
+    }
+
+    @Test
+    public void requestsInFlightAreBoundedTest() throws Exception {
+        System.setProperty("pass.fedora.requests.max", "2");
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                inFlight.decrementAndGet();
+                return new MockResponse().setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient(FedoraConfig.refresh());
+        List<CompletableFuture<Grant>> reads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            reads.add(client.readResourceAsync(server.url("/grants/" + i).uri(), Grant.class));
+        }
+
+        for (int i = 0; i < 8; i++) {
+            assertEquals(server.url("/grants/" + i).uri(), reads.get(i).join().getId());
+        }
+        assertEquals(2, maxInFlight.get());
+    }
+
+    /**
+     * A dependent stage that waits on another request of the same client does not hold up that request, even with a
+     * single request allowed in flight
+     */
+    @Test(timeout = 10000)
+    public void dependentStageMayWaitOnRequestTest() {
+        System.setProperty("pass.fedora.requests.max", "1");
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient(FedoraConfig.refresh());
+        URI second = server.url("/grants/2").uri();
+        Grant grant = client.readResourceAsync(server.url("/grants/1").uri(), Grant.class)
+                            .thenApply(first -> client.readResource(second, Grant.class))
+                            .join();
+
+        assertEquals(second, grant.getId());
+    }
+
+    @Test
+    public void readResourcesKeepsOrderAndFailuresTest() {
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                if (request.getPath().endsWith("missing")) {
+                    return new MockResponse().setResponseCode(404);
+                }
+                return new MockResponse().setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            uris.add(server.url("/grants/" + i).uri());
+        }
+        uris.add(2, server.url("/grants/missing").uri());
+
+        List<ReadResult<Grant>> results = new FedoraPassCrudClient().readParallelism(3)
+                                                                    .readResources(uris, Grant.class);
+
+        assertEquals(uris.size(), results.size());
+        for (int i = 0; i < uris.size(); i++) {
+            ReadResult<Grant> result = results.get(i);
+            assertEquals(uris.get(i), result.getUri());
+            if (i == 2) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getFailure().getMessage().contains("read a Resource"));
+            } else {
+                assertEquals(uris.get(i), result.getResource().getId());
+            }
+        }
+    }
+
+    @Test
+    public void readVersionTagTest() throws Exception {
+        server.enqueue(new MockResponse().setHeader("ETag", "W/\"1234\""));
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient();
+
+        assertEquals("\"1234\"", client.readVersionTag(server.url("/grants/1").uri()));
+        assertNull(client.readVersionTag(server.url("/grants/missing").uri()));
+        assertEquals("HEAD", server.takeRequest().getMethod());
+    }
+
+    @Test
+    public void readResourcesParallelismIsBoundedTest() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                inFlight.decrementAndGet();
+                return new MockResponse().setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        List<URI> uris = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            uris.add(server.url("/grants/" + i).uri());
+        }
+
+        List<ReadResult<Grant>> results = new FedoraPassCrudClient().readParallelism(3)
+                                                                    .readResources(uris, Grant.class);
+
+        assertTrue(results.stream().allMatch(ReadResult::isSuccess));
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    public void cachedReadRevalidatesTest() throws Exception {
+        URI uri = server.url("/grants/1").uri();
+        server.enqueue(new MockResponse().setHeader("ETag", "W/\"1234\"").setBody(String.format(GRANT_JSON, uri)));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "W/\"1234\""));
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient().cache(new EntityCache(10, 0));
+        Grant first = client.readResource(uri, Grant.class);
+        first.setAwardNumber("changed locally");
+        Grant second = client.readResource(uri, Grant.class);
+
+        assertEquals("abc123", second.getAwardNumber());
+        assertEquals("\"1234\"", second.getVersionTag());
+        assertNull(server.takeRequest().getHeader("If-None-Match"));
+        assertEquals("W/\"1234\"", server.takeRequest().getHeader("If-None-Match"));
+
+        EntityCache cache = client.getCache();
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getRevalidationCount());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void cachedReadWithinTtlTest() throws Exception {
+        URI uri1 = server.url("/grants/1").uri();
+        URI uri2 = server.url("/grants/2").uri();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setHeader("ETag", "W/\"1234\"")
+                                         .setBody(String.format(GRANT_JSON, server.url(request.getPath())));
+            }
+        });
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient().cache(new EntityCache(1, 60000));
+        client.readResource(uri1, Grant.class);
+        List<ReadResult<Grant>> results = client.readResources(List.of(uri1, uri1, uri1), Grant.class);
+
+        assertTrue(results.stream().allMatch(ReadResult::isSuccess));
+        assertEquals(uri1, results.get(2).getOrThrow().getId());
+        assertEquals(1, server.getRequestCount());
+        assertEquals(3, client.getCache().getHitCount());
+
+        // Reading another entity evicts the first from a cache of one
+        client.readResource(uri2, Grant.class);
+        client.readResource(uri1, Grant.class);
+        assertEquals(3, server.getRequestCount());
+        assertEquals(2, client.getCache().getEvictionCount());
+    }
+
+    @Test
+    public void updateBodyTest() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        Grant grant = new Grant();
+        grant.setId(server.url("/grants/1").uri());
+        grant.setAwardNumber("abc123");
+        new FedoraPassCrudClient().updateResource(grant);
+
+        RecordedRequest request = server.takeRequest();
+        String body = request.getBody().readUtf8();
+        assertEquals(String.valueOf(request.getBodySize()), request.getHeader("Content-Length"));
+        assertTrue(body.contains("\"@id\":\"" + grant.getId() + "\""));
+        assertTrue(body.contains("\"awardNumber\":\"abc123\""));
+        assertFalse(body.contains("\n"));
+    }
+
+    @Test
+    public void updateInvalidatesCacheTest() throws Exception {
+        URI uri = server.url("/grants/1").uri();
+        server.enqueue(new MockResponse().setHeader("ETag", "W/\"1\"").setBody(String.format(GRANT_JSON, uri)));
+        server.enqueue(new MockResponse().setResponseCode(204));
+        server.enqueue(new MockResponse().setHeader("ETag", "W/\"2\"").setBody(String.format(GRANT_JSON, uri)));
+        server.enqueue(new MockResponse().setResponseCode(204));
+
+        FedoraPassCrudClient client = new FedoraPassCrudClient().cache(new EntityCache(10, 60000));
+        Grant grant = client.readResource(uri, Grant.class);
+        grant = client.updateAndReadResource(grant, Grant.class);
+        assertEquals("\"2\"", grant.getVersionTag());
+        assertEquals(1, client.getCache().size());
+
+        client.deleteResource(uri);
+        assertEquals(0, client.getCache().size());
+        assertEquals(2, client.getCache().getMissCount());
+        assertEquals(0, client.getCache().getHitCount());
+    }
+}
@@ -29,24 +29,34 @@ import static org.dataconservancy.pass.client.fedora.RepositoryCrawler.endWithSl
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 import org.dataconservancy.pass.client.fedora.RepositoryCrawler.State;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
@@ -106,10 +116,16 @@ public class RepositoryCrawlerTest {
 
     final RepositoryCrawler toTest = new RepositoryCrawler();
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Before
     public void wire() {
         toTest.repo = lister;
 
+        // list children with getChildren
+        doAnswer(inv -> lister.getChildren(inv.getArgument(0)).stream()).when(lister).streamChildren(any());
+
         // default - no children
         when(lister.getChildren(any())).thenReturn(emptyList());
 
@@ -227,6 +243,34 @@ public class RepositoryCrawlerTest {
         }
     }
 
+    /**
+     * The predicates scan URIs rather than matching them against the regular expressions they replaced, and should
+     * agree with them.
+     */
+    @Test
+    public void predicatesAgreeWithRegexTest() {
+        final String base = "http://localhost:8080/fcrepo/rest/";
+        final Pattern acl = Pattern.compile(".+/\\.*acls*(?=/|$).*");
+        final Pattern container = Pattern.compile(base + "\\.{0,1}[a-zA-Z]+/*$");
+        final Predicate<State> containers = RepositoryCrawler.Ignore.containers("http://localhost:8080/fcrepo/rest");
+
+        for (final String path : asList("", "/", "submissions", "submissions/", "submissions//", ".acl", ".acl/",
+                                        "acls", "aclss/x", "..acl", "repositoryCopies", "submissions1", "sub-missions",
+                                        "submissions/ab/cd", "submissions/ab/.acl", "submissions/ab/acls/x",
+                                        "submissions/aclfoo", "submissions/fooacl", "submissions/acl.x", "/acl")) {
+            final String uri = base + path;
+            final State state = new State(1, URI.create(base), URI.create(uri));
+            assertEquals(uri, acl.matcher(uri).matches(), SKIP_ACLS.test(state));
+            assertEquals(uri, container.matcher(uri).matches() || endWithSlash(uri).equals(base),
+                         containers.test(state));
+        }
+
+        assertTrue(containers.test(new State(0, null, URI.create("http://localhost:8080/fcrepo/rest"))));
+        assertFalse(containers.test(new State(0, null, URI.create("http://localhost:8080/fcrepo/res"))));
+        assertFalse(containers.test(new State(0, null, URI.create("http://example.org/fcrepo/rest/submissions"))));
+        assertFalse(SKIP_ACLS.test(new State(0, null, URI.create("acl"))));
+    }
+
     @Test
     public void skipAclsWithDepthTest() {
         final List<URI> visited = new ArrayList<>();
@@ -239,6 +283,184 @@ public class RepositoryCrawlerTest {
         assertTrue(visited.containsAll(depth1ExceptAclsAndContainers));
     }
 
+    // Verify that children, which are streamed, are still visited in the order listed
+    @Test
+    public void ignoredContainerOrderTest() {
+        final List<URI> visited = new ArrayList<>();
+
+        assertEquals(9, toTest.visit(root, visited::add, IGNORE_ROOT, SKIP_ACLS));
+        assertEquals(asList(l1_acls_container,
+                            l1_submissions_container, l2_submissions_1, l3_submissions_1, l2_submissions_2,
+                            l3_submissions_2,
+                            l1_cows_container, l2_cow_1, l2_cow_2), visited);
+    }
+
+    // Verify that each child is visited as soon as it is listed, and that the listing is closed
+    @Test
+    public void visitWhileListingTest() {
+        final List<String> events = new ArrayList<>();
+        doReturn(l2_cows.stream().peek(child -> events.add("listed " + child)).onClose(() -> events.add("closed")))
+            .when(lister).streamChildren(l1_cows_container);
+
+        assertEquals(2, toTest.visit(l1_cows_container, child -> events.add("visited " + child), IGNORE_ROOT,
+                                     depth(1)));
+        assertEquals(asList("listed " + l2_cow_1, "visited " + l2_cow_1, "listed " + l2_cow_2,
+                            "visited " + l2_cow_2, "closed"), events);
+    }
+
+    // Verify that an unordered parallel crawl visits the same resources as a serial one
+    @Test
+    public void parallelTest() {
+        final List<URI> serial = new ArrayList<>();
+        final int serialCount = toTest.visit(root, serial::add, IGNORE_CONTAINERS, SKIP_NONE);
+
+        final List<URI> visited = Collections.synchronizedList(new ArrayList<>());
+        assertEquals(serialCount, toTest.parallelism(4).visit(root, visited::add, IGNORE_CONTAINERS, SKIP_NONE));
+        assertEquals(serial.size(), visited.size());
+        assertEquals(new HashSet<>(serial), new HashSet<>(visited));
+
+        visited.clear();
+        assertEquals(union(l2_cows, l2_submissions).size(), toTest.visit(root, visited::add, IGNORE_CONTAINERS,
+                                                                         depth(2).or(SKIP_ACLS)));
+        assertEquals(union(l2_cows, l2_submissions), new HashSet<>(visited));
+    }
+
+    // Verify that an ordered parallel crawl visits resources in the same order as a serial one, on the calling thread
+    @Test
+    public void parallelOrderedTest() {
+        final List<URI> serial = new ArrayList<>();
+        toTest.visit(root, serial::add, IGNORE_NONE, SKIP_NONE);
+
+        final Thread caller = Thread.currentThread();
+        final List<URI> visited = new ArrayList<>();
+        assertEquals(serial.size(), toTest.parallelism(2).ordered(true).visit(root, uri -> {
+            assertEquals(caller, Thread.currentThread());
+            visited.add(uri);
+        }, IGNORE_NONE, SKIP_NONE));
+        assertEquals(serial, visited);
+    }
+
+    // Verify that a failure to list a container fails a parallel crawl
+    @Test
+    public void parallelFailureTest() {
+        when(lister.getChildren(eq(l1_cows_container))).thenThrow(new RuntimeException("Error getting children"));
+
+        for (final boolean ordered : new boolean[] {false, true}) {
+            try {
+                toTest.parallelism(3).ordered(ordered).visit(root, uri -> { }, IGNORE_NONE, SKIP_NONE);
+                fail("Expected the crawl to fail");
+            } catch (RuntimeException e) {
+                assertTrue(e.toString().contains("Error getting children"));
+            }
+        }
+    }
+
+    // Verify that a crawl interrupted part way resumes from its checkpoint, visiting only the rest of the resources
+    @Test
+    public void checkpointResumeTest() throws Exception {
+        final List<URI> serial = new ArrayList<>();
+        toTest.visit(root, serial::add, IGNORE_NONE, SKIP_NONE);
+
+        for (final int parallelism : new int[] {1, 3}) {
+            final Path checkpoint = folder.newFolder().toPath().resolve("crawl.checkpoint");
+            final List<URI> visited = new ArrayList<>();
+            try {
+                toTest.parallelism(parallelism).visit(root, uri -> {
+                    visited.add(uri);
+                    if (uri.equals(l2_submissions_2)) {
+                        throw new RuntimeException("Crawl interrupted");
+                    }
+                }, IGNORE_NONE, SKIP_NONE, checkpoint);
+                fail("Expected the crawl to fail");
+            } catch (RuntimeException e) {
+                assertEquals("Crawl interrupted", e.getMessage());
+            }
+            assertTrue(Files.exists(checkpoint));
+
+            // The resource whose visit failed is visited again, and those after it
+            final List<URI> resumed = new ArrayList<>();
+            assertEquals(serial.size() - visited.size() + 1, toTest.visit(root, resumed::add, IGNORE_NONE,
+                                                                          SKIP_NONE, checkpoint));
+            assertEquals(serial.subList(visited.size() - 1, serial.size()), resumed);
+            assertFalse(Files.exists(checkpoint));
+        }
+    }
+
+    // Verify that a checkpoint cannot be used to resume a crawl of another resource
+    @Test(expected = IllegalArgumentException.class)
+    public void checkpointOfAnotherCrawlTest() throws Exception {
+        final Path checkpoint = folder.newFolder().toPath().resolve("crawl.checkpoint");
+        try {
+            toTest.visit(root, uri -> {
+                throw new RuntimeException("Crawl interrupted");
+            }, IGNORE_ROOT, SKIP_NONE, checkpoint);
+        } catch (RuntimeException e) {
+            // The checkpoint is of a crawl of root
+        }
+
+        toTest.visit(l1_cows_container, uri -> { }, IGNORE_NONE, SKIP_NONE, checkpoint);
+    }
+
+    // Verify that the shards of a crawl between them visit every resource once, in each mode of crawling
+    @Test
+    public void shardTest() {
+        final int shards = 3;
+        for (final Predicate<State> ignore : asList(IGNORE_ROOT, IGNORE_CONTAINERS)) {
+            final Set<URI> all = new HashSet<>();
+            toTest.visit(root, all::add, ignore, SKIP_NONE);
+
+            for (final int parallelism : new int[] {1, 3}) {
+                for (final boolean ordered : new boolean[] {false, true}) {
+                    final Set<URI> union = new HashSet<>();
+                    for (int i = 0; i < shards; i++) {
+                        final RepositoryCrawler shard = new RepositoryCrawler().parallelism(parallelism)
+                                                                               .ordered(ordered).shard(i, shards);
+                        shard.repo = lister;
+
+                        final Set<URI> visited = Collections.synchronizedSet(new HashSet<>());
+                        assertEquals(shard.visit(root, visited::add, ignore, SKIP_NONE), visited.size());
+                        for (final URI uri : visited) {
+                            assertTrue("Visited by more than one shard: " + uri, union.add(uri));
+                        }
+                    }
+                    assertEquals(all, union);
+                }
+            }
+        }
+    }
+
+    // Verify that a shard does not list the trees of resources in other shards
+    @Test
+    public void shardPruningTest() {
+        final int shards = 3;
+        for (int i = 0; i < shards; i++) {
+            final RepositoryCrawler shard = new RepositoryCrawler().shard(i, shards);
+            shard.repo = lister;
+            shard.visit(root, uri -> { }, IGNORE_ROOT, SKIP_NONE);
+        }
+
+        // The root is listed by every shard, each container below it by only the shard it is in
+        verify(lister, times(shards)).getChildren(root);
+        for (final URI container : union(l1_all, l2_all)) {
+            verify(lister, times(1)).getChildren(container);
+        }
+    }
+
+    // Verify that a crawl that is not ignored from its root is not divided
+    @Test
+    public void shardOfUnignoredRootTest() {
+        final List<URI> visited = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            toTest.shard(i, 3).visit(root, visited::add, IGNORE_NONE, SKIP_NONE);
+        }
+        assertEquals(union(asList(root), l1_all, l2_all, l3_all).size(), visited.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shardOutOfRangeTest() {
+        toTest.shard(3, 3);
+    }
+
     private static URI randomUri(URI base) {
         return URI.create(endWithSlash(base.toString() + "/a/b/c/" + UUID.randomUUID().toString()));
     }
@@ -17,12 +17,25 @@ package org.dataconservancy.pass.client.adapter;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.node.TextNode;
-import org.apache.commons.io.IOUtils;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
 import org.dataconservancy.pass.client.PassJsonAdapter;
 import org.dataconservancy.pass.client.util.ConfigUtil;
 import org.dataconservancy.pass.model.PassEntity;
@@ -31,6 +44,13 @@ import org.slf4j.LoggerFactory;
 
 /**
  * JSON Adapter converts a PassEntity object into JSON (with or without context) and back
+ * <p>
+ * All adapters share the {@link ObjectMapper}s used to read and write, so that the serializers and deserializers
+ * Jackson builds for each model class are built once, rather than on every conversion, along with an
+ * {@link ObjectReader} and {@link ObjectWriter} per model class. These are thread-safe, and so is the adapter. Entities
+ * are bound directly from the JSON as it is parsed, and written directly as JSON, without building a tree of either.
+ * JSON is written compactly unless the adapter is created to indent it.
+ * </p>
  *
  * @author Karen Hanson
  */
@@ -42,40 +62,161 @@ public class PassJsonAdapterBasic implements PassJsonAdapter {
     private final static String DEFAULT_CONTEXT = "https://eclipse-pass.github.io/pass-data-model/src/main/resources" +
                                                   "/context-3.5.jsonld";
 
+    /**
+     * Mapper used to write entities, which gives those without an id the null relative URI as their {@code @id}, and
+     * writes the contexts of adapters pre-encoded
+     */
+    private static final ObjectMapper WRITE_MAPPER = new ObjectMapper().addMixIn(PassEntity.class, WriteEntity.class);
+
+    /**
+     * Mapper used to read entities, which ignores their {@code @context}. It may be a URI, or a JSON-LD context
+     * object, which the model cannot hold; either way it is not kept.
+     */
+    private static final ObjectMapper READ_MAPPER = new ObjectMapper().addMixIn(PassEntity.class, IgnoreContext.class);
+
+    private static final Map<Class<?>, ObjectReader> READERS = new ConcurrentHashMap<>();
+
+    // A fragment is written as it is, so it must be a single JSON value, with nothing after it
+    private static final ObjectReader FRAGMENT_READER =
+        READ_MAPPER.reader().with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS);
+
+    private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+
+    private static final Map<Class<?>, ObjectWriter> PRETTY_WRITERS = new ConcurrentHashMap<>();
+
+    /**
+     * Contexts of adapters, encoded once for writing
+     */
+    private static final Map<String, EncodedContext> CONTEXTS = new ConcurrentHashMap<>();
+
+    private final boolean pretty;
+
+    /**
+     * The context assigned to entities, interned
+     */
+    private volatile String context;
+
+    /**
+     * JSON fragment written as the context in place of the configured URI, if any
+     */
+    private volatile String contextFragment;
+
+    /**
+     * Create an adapter that writes compact JSON, without whitespace.
+     */
+    public PassJsonAdapterBasic() {
+        this(false);
+    }
+
+    /**
+     * Create an adapter.
+     *
+     * @param pretty true to indent the JSON written, false to write it compactly
+     */
+    public PassJsonAdapterBasic(boolean pretty) {
+        this.pretty = pretty;
+        reloadContext();
+    }
+
+    /**
+     * Resolve the context from configuration again, should it have changed. The context is otherwise resolved once,
+     * when the adapter is created.
+     *
+     * @return this adapter
+     */
+    public PassJsonAdapterBasic reloadContext() {
+        if (contextFragment == null) {
+            setContext(getPassJsonLdContext(), false);
+        }
+        return this;
+    }
+
+    /**
+     * Write a JSON fragment, such as an inline JSON-LD context object, as the {@code @context} of entities in place of
+     * the configured context URI. The fragment is validated and encoded once, and written as it is. Entities written
+     * with it have it as their context. A null fragment restores the configured context.
+     * <p>
+     * The fragment must be a single JSON value; one followed by anything else, which would be written into the
+     * entity as further fields, is rejected.
+     * </p>
+     *
+     * @param json JSON fragment, or null
+     * @return this adapter
+     */
+    public PassJsonAdapterBasic contextFragment(String json) {
+        if (json == null) {
+            contextFragment = null;
+            return reloadContext();
+        }
+        JsonNode fragment;
+        try {
+            fragment = FRAGMENT_READER.readTree(json);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Context fragment is not JSON: " + json, e);
+        }
+        if (fragment == null || fragment.isMissingNode()) {
+            throw new IllegalArgumentException("Context fragment is not JSON: " + json);
+        }
+        contextFragment = json;
+        setContext(json, true);
+        return this;
+    }
+
+    private void setContext(String value, boolean raw) {
+        String interned = value.intern();
+        CONTEXTS.computeIfAbsent(interned, c -> new EncodedContext(c, raw));
+        context = interned;
+    }
+
     /**
      * {@inheritDoc}
      */
     public byte[] toJson(PassEntity passObj, boolean includePassContext) {
+        try {
+            return writer(passObj, includePassContext).writeValueAsBytes(passObj);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Could not model convert to JSON", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The JSON is written to the stream as it is generated, through the generator's own recycled buffer.
+     * </p>
+     */
+    public void toJson(PassEntity passObj, boolean includePassContext, OutputStream out) {
+        if (out == null) {
+            throw new IllegalArgumentException("out cannot be null");
+        }
+        try {
+            writer(passObj, includePassContext).writeValue(out, passObj);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not model convert to JSON", e);
+        }
+    }
+
+    /**
+     * Assign or scrub the context of an entity, as requested, and get the writer for its class.
+     */
+    private ObjectWriter writer(PassEntity passObj, boolean includePassContext) {
         if (passObj == null) {
             throw new IllegalArgumentException("passObject cannot be null");
         }
         if (includePassContext) {
             //Assign pass context
             LOG.debug("Converting {} to JSON with context", passObj.getClass().getSimpleName());
-            passObj.setContext(getPassJsonLdContext());
+            passObj.setContext(context);
         } else {
             //scrub context if there is one
             LOG.debug("Converting {} to JSON without context", passObj.getClass().getSimpleName());
             passObj.setContext(null);
         }
 
-        byte[] jsonld = null;
-
-        //convert to json
-        ObjectMapper objectMapper = new ObjectMapper();
-        try {
-            ObjectNode jsonObj = (ObjectNode) objectMapper.valueToTree(passObj);
-
-            // This is because new objects (without an ID) should have the null relative URI
-            if (jsonObj.get("@id") == null) {
-                jsonObj.set("@id", new TextNode(""));
-            }
-            jsonld = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(jsonObj);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Could not model convert to JSON", e);
-        }
-
-        return jsonld;
+        ObjectWriter writer = WRITERS.computeIfAbsent(passObj.getClass(), type -> WRITE_MAPPER.writerFor(type).without(
+            JsonGenerator.Feature.AUTO_CLOSE_TARGET));
+        return pretty ? PRETTY_WRITERS.computeIfAbsent(passObj.getClass(), type -> writer.withDefaultPrettyPrinter())
+                      : writer;
     }
 
     /**
@@ -90,13 +231,8 @@ public class PassJsonAdapterBasic implements PassJsonAdapter {
         }
 
         try {
-            ObjectMapper objectMapper = new ObjectMapper();
-            ObjectNode parsed = (ObjectNode) objectMapper.readTree(json);
-            parsed.remove("@context");
             LOG.debug("JSON converting to model {}", valueType.getSimpleName());
-
-            return objectMapper.treeToValue(parsed, valueType);
-
+            return reader(valueType).readValue(json);
         } catch (IOException e) {
             throw new RuntimeException("Could not map JSON to " + valueType.getSimpleName(), e);
         }
@@ -104,15 +240,107 @@ public class PassJsonAdapterBasic implements PassJsonAdapter {
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The entity is bound as the JSON is read from the stream, without reading it all first.
+     * </p>
      */
     public <T extends PassEntity> T toModel(InputStream json, Class<T> valueType) {
+        if (json == null) {
+            throw new IllegalArgumentException("json cannot be null");
+        }
+        if (valueType == null) {
+            throw new IllegalArgumentException("valueType cannot be empty");
+        }
+
         try {
-            return toModel(IOUtils.toByteArray(json), valueType);
+            LOG.debug("JSON converting to model {}", valueType.getSimpleName());
+            return reader(valueType).readValue(json);
         } catch (IOException e) {
             throw new RuntimeException("Could not map JSON to " + valueType.getSimpleName(), e);
         }
     }
 
+    private static ObjectReader reader(Class<?> valueType) {
+        return READERS.computeIfAbsent(valueType, READ_MAPPER::readerFor);
+    }
+
+    /**
+     * Mix-in for {@link PassEntity} that writes a null id as the null relative URI, rather than leaving it out, as new
+     * entities should have it, and writes contexts through {@link ContextSerializer}.
+     */
+    private abstract static class WriteEntity {
+
+        @JsonInclude(JsonInclude.Include.ALWAYS)
+        @JsonProperty("@id")
+        @JsonSerialize(nullsUsing = NullRelativeUriSerializer.class)
+        protected URI id;
+
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        @JsonProperty("@context")
+        @JsonSerialize(using = ContextSerializer.class)
+        protected String context;
+    }
+
+    /**
+     * A context, with its encoding as a JSON string, or as a raw JSON fragment
+     */
+    private static class EncodedContext {
+
+        final SerializedString encoded;
+
+        final boolean raw;
+
+        EncodedContext(String context, boolean raw) {
+            this.encoded = new SerializedString(context);
+            this.raw = raw;
+        }
+    }
+
+    /**
+     * Writes the context of an adapter from its encoding, which Jackson keeps once computed. Any other context is
+     * written as a string.
+     */
+    private static class ContextSerializer extends StdSerializer<String> {
+
+        ContextSerializer() {
+            super(String.class);
+        }
+
+        @Override
+        public void serialize(String value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            EncodedContext context = CONTEXTS.get(value);
+            if (context == null) {
+                gen.writeString(value);
+            } else if (context.raw) {
+                gen.writeRawValue(context.encoded);
+            } else {
+                gen.writeString(context.encoded);
+            }
+        }
+    }
+
+    /**
+     * Writes the null relative URI, {@code ""}, in place of null
+     */
+    private static class NullRelativeUriSerializer extends StdSerializer<Object> {
+
+        NullRelativeUriSerializer() {
+            super(Object.class);
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString("");
+        }
+    }
+
+    /**
+     * Mix-in for {@link PassEntity} that ignores {@code @context}, along with unknown properties, as the entity does.
+     */
+    @JsonIgnoreProperties(value = "@context", ignoreUnknown = true)
+    private abstract static class IgnoreContext {
+    }
+
     /**
      * Retrieve the context path to add to the JSON for conversion to JSON-LD
      *
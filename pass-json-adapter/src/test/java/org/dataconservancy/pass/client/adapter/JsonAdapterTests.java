@@ -15,15 +15,22 @@
  */
 package org.dataconservancy.pass.client.adapter;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.net.URI;
 
+import org.apache.commons.io.IOUtils;
 import org.dataconservancy.pass.client.PassJsonAdapter;
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.Deposit.DepositStatus;
+import org.dataconservancy.pass.model.PassEntity;
 import org.dataconservancy.pass.model.PassEntityType;
 import org.dataconservancy.pass.model.TestValues;
 import org.json.JSONObject;
@@ -142,6 +149,144 @@ public class JsonAdapterTests {
         assertEquals(root.getString("repositoryCopy"), TestValues.REPOSITORYCOPY_ID_1);
     }
 
+    /**
+     * Verify that every type of entity converts to JSON and back, with readers and writers shared between adapters
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testAllTypesRoundTrip() throws Exception {
+        for (PassEntityType type : PassEntityType.values()) {
+            @SuppressWarnings("unchecked")
+            Class<? extends PassEntity> modelClass = (Class<? extends PassEntity>) Class.forName(
+                "org.dataconservancy.pass.model." + type.getName());
+            byte[] json = IOUtils.toByteArray(JsonAdapterTests.class.getResourceAsStream(
+                "/" + type.getName().toLowerCase() + ".json"));
+
+            PassEntity entity = new PassJsonAdapterBasic().toModel(json, modelClass);
+            assertEquals(modelClass, entity.getClass());
+            assertEquals(entity, new PassJsonAdapterBasic().toModel(new PassJsonAdapterBasic().toJson(entity, false),
+                                                                    modelClass));
+        }
+    }
+
+    /**
+     * Verify that a JSON-LD context is ignored when binding the model, whether it is a URI or an object
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testContextIgnoredInModel() throws Exception {
+        String json = "{\"depositStatus\": \"" + TestValues.DEPOSIT_STATUS + "\", " +
+                      "\"@context\": {\"@vocab\": \"http://example.org/pass#\", \"submission\": {\"@type\": " +
+                      "\"@id\"}}, \"@id\": \"" + TestValues.DEPOSIT_ID_1 + "\", \"@type\": \"Deposit\"}";
+
+        PassJsonAdapter adapter = new PassJsonAdapterBasic();
+        Deposit deposit = adapter.toModel(new ByteArrayInputStream(json.getBytes(UTF_8)), Deposit.class);
+
+        assertEquals(TestValues.DEPOSIT_ID_1, deposit.getId().toString());
+        assertEquals(TestValues.DEPOSIT_STATUS, deposit.getDepositStatus().toString());
+        assertNull(deposit.getContext());
+
+        deposit = adapter.toModel(adapter.toJson(createDeposit(), true), Deposit.class);
+        assertNull(deposit.getContext());
+    }
+
+    /**
+     * Verify that a new entity, without an id, has the null relative URI as its id
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNewEntityToJson() throws Exception {
+        Deposit deposit = createDeposit();
+        deposit.setId(null);
+
+        JSONObject root = new JSONObject(new String(new PassJsonAdapterBasic().toJson(deposit, false)));
+
+        assertEquals("", root.getString("@id"));
+        assertEquals(TestValues.DEPOSIT_STATUS, root.getString("depositStatus"));
+    }
+
+    /**
+     * Verify that JSON is written compactly, unless the adapter indents it, and the same to a stream as to an array
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCompactAndPrettyJson() throws Exception {
+        Deposit deposit = createDeposit();
+
+        byte[] compact = new PassJsonAdapterBasic().toJson(deposit, true);
+        assertFalse(new String(compact, UTF_8).contains("\n"));
+        assertTrue(new String(compact, UTF_8).contains("\"@id\":\"" + TestValues.DEPOSIT_ID_1 + "\","));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new PassJsonAdapterBasic().toJson(deposit, true, out);
+        out.write('!');
+        assertEquals(new String(compact, UTF_8) + "!", out.toString("UTF-8"));
+
+        byte[] pretty = new PassJsonAdapterBasic(true).toJson(deposit, true);
+        assertTrue(new String(pretty, UTF_8).contains("\n"));
+        assertEquals(new JSONObject(new String(compact, UTF_8)).toMap(),
+                     new JSONObject(new String(pretty, UTF_8)).toMap());
+    }
+
+    /**
+     * Verify that the context is resolved when the adapter is created, and again when it is reloaded
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReloadContext() throws Exception {
+        PassJsonAdapterBasic adapter = new PassJsonAdapterBasic();
+        System.setProperty(CONTEXT_PROPKEY, "http://testurl.org/context-2.jsonld");
+
+        assertEquals(CONTEXT, new JSONObject(new String(adapter.toJson(createDeposit(), true))).getString("@context"));
+
+        adapter.reloadContext();
+        assertEquals("http://testurl.org/context-2.jsonld",
+                     new JSONObject(new String(adapter.toJson(createDeposit(), true))).getString("@context"));
+    }
+
+    /**
+     * Verify that a context fragment is written as it is, in place of the configured context, until it is removed
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testContextFragment() throws Exception {
+        String fragment = "{\"@vocab\":\"http://example.org/pass#\",\"submission\":{\"@type\":\"@id\"}}";
+        PassJsonAdapterBasic adapter = new PassJsonAdapterBasic().contextFragment(fragment);
+
+        String json = new String(adapter.toJson(createDeposit(), true), UTF_8);
+        assertTrue(json.contains("\"@context\":" + fragment));
+        assertEquals("@id", new JSONObject(json).getJSONObject("@context").getJSONObject("submission")
+                                                .getString("@type"));
+        assertFalse(new String(adapter.toJson(createDeposit(), false), UTF_8).contains("@context"));
+
+        adapter.contextFragment(null);
+        assertEquals(CONTEXT, new JSONObject(new String(adapter.toJson(createDeposit(), true))).getString("@context"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidContextFragment() {
+        new PassJsonAdapterBasic().contextFragment("{\"@vocab\":");
+    }
+
+    /**
+     * Verify that a fragment followed by more JSON is rejected, rather than written as further fields of entities
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testContextFragmentWithTrailingTokens() {
+        new PassJsonAdapterBasic().contextFragment("{}, \"@id\": \"x\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyContextFragment() {
+        new PassJsonAdapterBasic().contextFragment(" ");
+    }
+
     private Deposit createDeposit() throws Exception {
         Deposit deposit = new Deposit();
         deposit.setId(new URI(TestValues.DEPOSIT_ID_1));
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.model;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A field of a type of entity that references other PASS entities, and the type of entity it references
+ * <p>
+ * Only fields holding the URIs of PASS entities are references. Fields holding other URIs, such as
+ * {@link File#getUri()} or {@link Repository#getUrl()}, are not.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public final class PassEntityReference {
+
+    private static final Map<PassEntityType, Map<String, PassEntityReference>> REFERENCES =
+        new EnumMap<>(PassEntityType.class);
+
+    static {
+        one(PassEntityType.CONTRIBUTOR, "publication", PassEntityType.PUBLICATION, Contributor::getPublication);
+        one(PassEntityType.CONTRIBUTOR, "user", PassEntityType.USER, Contributor::getUser);
+        one(PassEntityType.DEPOSIT, "submission", PassEntityType.SUBMISSION, Deposit::getSubmission);
+        one(PassEntityType.DEPOSIT, "repository", PassEntityType.REPOSITORY, Deposit::getRepository);
+        one(PassEntityType.DEPOSIT, "repositoryCopy", PassEntityType.REPOSITORY_COPY, Deposit::getRepositoryCopy);
+        one(PassEntityType.FILE, "submission", PassEntityType.SUBMISSION, File::getSubmission);
+        one(PassEntityType.FUNDER, "policy", PassEntityType.POLICY, Funder::getPolicy);
+        one(PassEntityType.GRANT, "primaryFunder", PassEntityType.FUNDER, Grant::getPrimaryFunder);
+        one(PassEntityType.GRANT, "directFunder", PassEntityType.FUNDER, Grant::getDirectFunder);
+        one(PassEntityType.GRANT, "pi", PassEntityType.USER, Grant::getPi);
+        many(PassEntityType.GRANT, "coPis", PassEntityType.USER, Grant::getCoPis);
+        one(PassEntityType.JOURNAL, "publisher", PassEntityType.PUBLISHER, Journal::getPublisher);
+        many(PassEntityType.POLICY, "repositories", PassEntityType.REPOSITORY, Policy::getRepositories);
+        one(PassEntityType.PUBLICATION, "journal", PassEntityType.JOURNAL, Publication::getJournal);
+        one(PassEntityType.REPOSITORY_COPY, "publication", PassEntityType.PUBLICATION,
+            RepositoryCopy::getPublication);
+        one(PassEntityType.REPOSITORY_COPY, "repository", PassEntityType.REPOSITORY, RepositoryCopy::getRepository);
+        one(PassEntityType.SUBMISSION, "publication", PassEntityType.PUBLICATION, Submission::getPublication);
+        many(PassEntityType.SUBMISSION, "repositories", PassEntityType.REPOSITORY, Submission::getRepositories);
+        one(PassEntityType.SUBMISSION, "submitter", PassEntityType.USER, Submission::getSubmitter);
+        many(PassEntityType.SUBMISSION, "preparers", PassEntityType.USER, Submission::getPreparers);
+        many(PassEntityType.SUBMISSION, "grants", PassEntityType.GRANT, Submission::getGrants);
+        many(PassEntityType.SUBMISSION, "effectivePolicies", PassEntityType.POLICY,
+             Submission::getEffectivePolicies);
+        one(PassEntityType.SUBMISSION_EVENT, "performedBy", PassEntityType.USER, SubmissionEvent::getPerformedBy);
+        one(PassEntityType.SUBMISSION_EVENT, "submission", PassEntityType.SUBMISSION, SubmissionEvent::getSubmission);
+
+        REFERENCES.replaceAll((owner, fields) -> Collections.unmodifiableMap(fields));
+    }
+
+    private final PassEntityType owner;
+
+    private final String field;
+
+    private final PassEntityType type;
+
+    private final boolean multiple;
+
+    private final Function<PassEntity, List<URI>> values;
+
+    private PassEntityReference(PassEntityType owner, String field, PassEntityType type, boolean multiple,
+                                Function<PassEntity, List<URI>> values) {
+        this.owner = owner;
+        this.field = field;
+        this.type = type;
+        this.multiple = multiple;
+        this.values = values;
+    }
+
+    /**
+     * Get the reference fields of a type of entity
+     *
+     * @param owner The type of entity
+     * @return reference fields of the type by JSON name, in a fixed order; empty if it has none
+     */
+    public static Map<String, PassEntityReference> getReferences(PassEntityType owner) {
+        if (owner == null) {
+            throw new IllegalArgumentException("owner cannot be null");
+        }
+        return REFERENCES.getOrDefault(owner, Collections.emptyMap());
+    }
+
+    /**
+     * Get a reference field of a type of entity
+     *
+     * @param owner The type of entity
+     * @param field JSON name of the field
+     * @return the reference, or null if the field is not a reference field of the type
+     */
+    public static PassEntityReference getReference(PassEntityType owner, String field) {
+        return getReferences(owner).get(field);
+    }
+
+    /**
+     * Get the type of entity the field belongs to.
+     *
+     * @return The owning type
+     */
+    public PassEntityType getOwner() {
+        return owner;
+    }
+
+    /**
+     * Get the JSON name of the field.
+     *
+     * @return The field name
+     */
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * Get the type of entity the field references.
+     *
+     * @return The referenced type
+     */
+    public PassEntityType getType() {
+        return type;
+    }
+
+    /**
+     * Whether the field holds a list of references, rather than a single one.
+     *
+     * @return true if the field holds a list
+     */
+    public boolean isMultiple() {
+        return multiple;
+    }
+
+    /**
+     * Get the URIs the field of an entity holds
+     *
+     * @param entity An entity of the owning type
+     * @return URIs held by the field, empty if it is unset
+     */
+    public List<URI> getValues(PassEntity entity) {
+        if (!owner.getModelClass().isInstance(entity)) {
+            throw new IllegalArgumentException(String.format("entity must be a %s", owner.getName()));
+        }
+        return values.apply(entity);
+    }
+
+    @Override
+    public String toString() {
+        return owner.getName() + "." + field + " -> " + type.getName();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends PassEntity> void one(PassEntityType owner, String field, PassEntityType type,
+                                                   Function<E, URI> getter) {
+        reference(owner, field, type, false, entity -> {
+            URI value = getter.apply((E) entity);
+            return value == null ? Collections.emptyList() : Collections.singletonList(value);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends PassEntity> void many(PassEntityType owner, String field, PassEntityType type,
+                                                    Function<E, List<URI>> getter) {
+        reference(owner, field, type, true, entity -> {
+            List<URI> values = getter.apply((E) entity);
+            return values == null ? Collections.emptyList() : Collections.unmodifiableList(values);
+        });
+    }
+
+    private static void reference(PassEntityType owner, String field, PassEntityType type, boolean multiple,
+                                  Function<PassEntity, List<URI>> values) {
+        REFERENCES.computeIfAbsent(owner, o -> new LinkedHashMap<>())
+                  .put(field, new PassEntityReference(owner, field, type, multiple, values));
+    }
+}
@@ -15,8 +15,17 @@
  */
 package org.dataconservancy.pass.model;
 
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Defines names of entity types and their plurals
+ * <p>
+ * Types are looked up by name in a map, and by class in a {@link ClassValue}, so that resolving the type of an entity
+ * class costs a single lookup after the first.
+ * </p>
  *
  * @author Karen Hanson
  */
@@ -25,79 +34,99 @@ public enum PassEntityType {
     /**
      * Contributor
      */
-    CONTRIBUTOR("Contributor", "contributors"),
+    CONTRIBUTOR("Contributor", "contributors", Contributor.class),
 
     /**
      * Deposit
      */
-    DEPOSIT("Deposit", "deposits"),
+    DEPOSIT("Deposit", "deposits", Deposit.class),
 
     /**
      * File
      */
-    FILE("File", "files"),
+    FILE("File", "files", File.class),
 
     /**
      * Funder
      */
-    FUNDER("Funder", "funders"),
+    FUNDER("Funder", "funders", Funder.class),
 
     /**
      * Grant
      */
-    GRANT("Grant", "grants"),
+    GRANT("Grant", "grants", Grant.class),
 
     /**
      * Journal
      */
-    JOURNAL("Journal", "journals"),
+    JOURNAL("Journal", "journals", Journal.class),
 
     /**
      * Policy
      */
-    POLICY("Policy", "policies"),
+    POLICY("Policy", "policies", Policy.class),
 
     /**
      * Publication
      */
-    PUBLICATION("Publication", "publications"),
+    PUBLICATION("Publication", "publications", Publication.class),
 
     /**
      * Publisher
      */
-    PUBLISHER("Publisher", "publishers"),
+    PUBLISHER("Publisher", "publishers", Publisher.class),
 
     /**
      * Repository
      */
-    REPOSITORY("Repository", "repositories"),
+    REPOSITORY("Repository", "repositories", Repository.class),
 
     /**
      * Repository copy
      */
-    REPOSITORY_COPY("RepositoryCopy", "repositoryCopies"),
+    REPOSITORY_COPY("RepositoryCopy", "repositoryCopies", RepositoryCopy.class),
 
     /**
      * Submission
      */
-    SUBMISSION("Submission", "submissions"),
+    SUBMISSION("Submission", "submissions", Submission.class),
 
     /**
      * Submission event
      */
-    SUBMISSION_EVENT("SubmissionEvent", "submissionEvents"),
+    SUBMISSION_EVENT("SubmissionEvent", "submissionEvents", SubmissionEvent.class),
 
     /**
      * User
      */
-    USER("User", "users");
+    USER("User", "users", User.class);
+
+    private static final Map<String, PassEntityType> BY_NAME = new HashMap<>();
+
+    private static final Map<String, PassEntityType> BY_PLURAL = new HashMap<>();
+
+    private static final ClassValue<Optional<PassEntityType>> BY_CLASS = new ClassValue<Optional<PassEntityType>>() {
+        @Override
+        protected Optional<PassEntityType> computeValue(Class<?> type) {
+            return Optional.ofNullable(BY_NAME.get(type.getSimpleName()));
+        }
+    };
+
+    static {
+        for (PassEntityType type : values()) {
+            BY_NAME.put(type.getName(), type);
+            BY_PLURAL.put(type.getPlural(), type);
+        }
+    }
 
     private String name;
     private String plural;
+    private Class<? extends PassEntity> modelClass;
 
-    PassEntityType(String name, String plural) {
+    PassEntityType(String name, String plural, Class<? extends PassEntity> modelClass) {
         this.name = name;
         this.plural = plural;
+        this.modelClass = modelClass;
     }
 
     /**
@@ -109,6 +138,15 @@ public enum PassEntityType {
         return this.name;
     }
 
+    /**
+     * Get the class of entity of this type.
+     *
+     * @return The model class
+     */
+    public Class<? extends PassEntity> getModelClass() {
+        return this.modelClass;
+    }
+
     /**
      * Get pluralized name.
      *
@@ -118,6 +156,17 @@ public enum PassEntityType {
         return this.plural;
     }
 
+    /**
+     * Whether a URI identifies an entity of this type, by the container it is in
+     *
+     * @param uri The URI of a PASS entity
+     * @return true if the URI is in the container of this type
+     * @see #getTypeByUri(URI)
+     */
+    public boolean isTypeOf(URI uri) {
+        return getTypeByUri(uri) == this;
+    }
+
     /**
      * Match enum using name
      *
@@ -125,15 +174,57 @@ public enum PassEntityType {
      * @return matching PassEntityType or null if no matches
      */
     public static PassEntityType getTypeByName(String name) {
-        if (name != null && name.length() > 0) {
-            for (PassEntityType type : PassEntityType.values()) {
-                if (name.equals(type.getName())) {
-                    return type;
-                }
-            }
+        PassEntityType type = name != null ? BY_NAME.get(name) : null;
+        if (type != null) {
+            return type;
         }
         //no match found or name empty, throw argument exception
         throw new IllegalArgumentException(String.format("Entity type \"%s\" is not recognized", name));
     }
 
+    /**
+     * Match enum using the class of an entity, whose simple name is the name of the type
+     *
+     * @param modelClass The class of PASS entity
+     * @return matching PassEntityType
+     * @throws IllegalArgumentException if the class is not of a known type
+     */
+    public static PassEntityType getTypeByClass(Class<? extends PassEntity> modelClass) {
+        if (modelClass == null) {
+            throw new IllegalArgumentException("modelClass cannot be null");
+        }
+        return BY_CLASS.get(modelClass).orElseThrow(() -> new IllegalArgumentException(
+            String.format("Entity type \"%s\" is not recognized", modelClass.getSimpleName())));
+    }
+
+    /**
+     * Match enum using the URI of an entity, which is in the container named by the plural of its type. The segment
+     * of the path nearest its end, other than the last, that names the container of a type is taken as the container
+     * of the entity. The scheme, host, port, and the path above the container are not considered, so the URIs of an
+     * entity under different base URLs have the same type.
+     *
+     * @param uri The URI of a PASS entity
+     * @return matching PassEntityType, or null if the path of the URI has no segment naming a container
+     */
+    public static PassEntityType getTypeByUri(URI uri) {
+        if (uri == null) {
+            throw new IllegalArgumentException("uri cannot be null");
+        }
+        String path = uri.getRawPath();
+        if (path == null) {
+            return null;
+        }
+        // Segments are visited from the end, leaving out the last, which names the entity itself
+        int end = path.lastIndexOf('/');
+        while (end > 0) {
+            int start = path.lastIndexOf('/', end - 1);
+            PassEntityType type = BY_PLURAL.get(path.substring(start + 1, end));
+            if (type != null) {
+                return type;
+            }
+            end = start;
+        }
+        return null;
+    }
+
 }
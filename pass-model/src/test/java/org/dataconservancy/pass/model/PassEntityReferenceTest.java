@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class PassEntityReferenceTest {
+
+    /**
+     * Each reference is a field of its owning type, holding a URI, or a list of them if it is multiple
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReferencesAreFieldsOfTheirType() throws Exception {
+        for (PassEntityType owner : PassEntityType.values()) {
+            for (PassEntityReference reference : PassEntityReference.getReferences(owner).values()) {
+                assertEquals(owner, reference.getOwner());
+                Field field = owner.getModelClass().getDeclaredField(reference.getField());
+                assertEquals(reference.isMultiple() ? List.class : URI.class, field.getType());
+            }
+        }
+    }
+
+    /**
+     * Fields holding URIs that are not of PASS entities are not references
+     */
+    @Test
+    public void testOtherUrisAreNotReferences() {
+        assertNull(PassEntityReference.getReference(PassEntityType.FILE, "uri"));
+        assertNull(PassEntityReference.getReference(PassEntityType.FUNDER, "url"));
+        assertNull(PassEntityReference.getReference(PassEntityType.POLICY, "policyUrl"));
+        assertNull(PassEntityReference.getReference(PassEntityType.POLICY, "institution"));
+        assertNull(PassEntityReference.getReference(PassEntityType.REPOSITORY, "url"));
+        assertNull(PassEntityReference.getReference(PassEntityType.REPOSITORY, "schemas"));
+        assertNull(PassEntityReference.getReference(PassEntityType.REPOSITORY_COPY, "accessUrl"));
+        assertNull(PassEntityReference.getReference(PassEntityType.SUBMISSION, "submitterEmail"));
+        assertNull(PassEntityReference.getReference(PassEntityType.SUBMISSION_EVENT, "link"));
+        assertTrue(PassEntityReference.getReferences(PassEntityType.USER).isEmpty());
+    }
+
+    /**
+     * The values of a reference are read from an entity, and are empty when the field is unset
+     */
+    @Test
+    public void testValues() {
+        URI grant1 = URI.create("http://example.org/fcrepo/rest/grants/1");
+        URI grant2 = URI.create("http://example.org/fcrepo/rest/grants/2");
+        Submission submission = new Submission();
+        submission.setGrants(Arrays.asList(grant1, grant2));
+
+        PassEntityReference grants = PassEntityReference.getReference(PassEntityType.SUBMISSION, "grants");
+        assertEquals(PassEntityType.GRANT, grants.getType());
+        assertTrue(grants.isMultiple());
+        assertEquals(Arrays.asList(grant1, grant2), grants.getValues(submission));
+
+        PassEntityReference publication = PassEntityReference.getReference(PassEntityType.SUBMISSION,
+                                                                           "publication");
+        assertFalse(publication.isMultiple());
+        assertEquals(Collections.emptyList(), publication.getValues(submission));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testValuesOfOtherType() {
+        PassEntityReference.getReference(PassEntityType.SUBMISSION, "grants").getValues(new Grant());
+    }
+}
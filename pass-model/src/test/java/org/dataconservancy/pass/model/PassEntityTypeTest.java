@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.net.URI;
+
+import org.junit.Test;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class PassEntityTypeTest {
+
+    /**
+     * Each type is found by its name, and by the class of entity of the same name, which is its model class
+     *
+     * @throws Exception
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTypeByNameAndClass() throws Exception {
+        for (PassEntityType type : PassEntityType.values()) {
+            assertEquals(type, PassEntityType.getTypeByName(type.getName()));
+            Class<? extends PassEntity> modelClass = (Class<? extends PassEntity>) Class.forName(
+                "org.dataconservancy.pass.model." + type.getName());
+            assertEquals(type, PassEntityType.getTypeByClass(modelClass));
+            assertEquals(modelClass, type.getModelClass());
+        }
+    }
+
+    /**
+     * The type of an entity is found by its container, whatever the scheme, host, port and base path of its URI
+     */
+    @Test
+    public void testTypeByUri() {
+        for (PassEntityType type : PassEntityType.values()) {
+            assertEquals(type, PassEntityType.getTypeByUri(
+                URI.create("http://localhost:8080/fcrepo/rest/" + type.getPlural() + "/ab/cd/abcd-1234")));
+            assertEquals(type, PassEntityType.getTypeByUri(
+                URI.create("https://pass.example.org:8443/fcrepo/rest/" + type.getPlural() + "/1")));
+        }
+        assertEquals(PassEntityType.REPOSITORY_COPY, PassEntityType.getTypeByUri(
+            URI.create("http://example.org/rest/submissions/repositoryCopies/1")));
+        assertEquals(PassEntityType.DEPOSIT, PassEntityType.getTypeByUri(URI.create("/deposits/1/")));
+        assertNull(PassEntityType.getTypeByUri(URI.create("http://example.org/fcrepo/rest/deposits")));
+        assertNull(PassEntityType.getTypeByUri(URI.create("http://example.org/fcrepo/rest/acls/1")));
+        assertNull(PassEntityType.getTypeByUri(URI.create("http://example.org/fcrepo/rest/deposit/1")));
+        assertNull(PassEntityType.getTypeByUri(URI.create("deposits:1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownName() {
+        PassEntityType.getTypeByName("Grants");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyName() {
+        PassEntityType.getTypeByName("");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownClass() {
+        PassEntityType.getTypeByClass(PassEntity.class);
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.Submission.SubmissionStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Recalculates the status of many submissions at once, as {@link SubmissionStatusService} does for one, such as every
+ * submission in the repository.
+ * <p>
+ * Each submission is read, its status calculated, and the submission written if its status changed, on a pool of
+ * {@link #parallelism(int) parallelism} threads, so that many submissions are in progress at once. The repository
+ * copies of a publication are retrieved by the first of its submissions to need them, and shared by the others while
+ * the publication is among the {@link #sharedPublications(int) most recently needed}. A submission that cannot be
+ * recalculated is recorded as a failure, and does not stop the others.
+ * </p>
+ * <p>
+ * Each run returns a {@link Report} of the number of submissions recalculated, those whose status changed, those that
+ * failed, and the time taken.
+ * </p>
+ *
+ * @author Johns Hopkins University
+ */
+public class SubmissionStatusRecalculator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SubmissionStatusRecalculator.class);
+
+    /**
+     * Number of submissions each thread may have queued, beyond the one in progress
+     */
+    private static final int QUEUED_PER_THREAD = 2;
+
+    private final PassClient client;
+
+    /**
+     * Number of submissions recalculated at once
+     */
+    private int parallelism = 8;
+
+    /**
+     * Number of publications whose repository copies are kept for their other submissions
+     */
+    private int sharedPublications = 1000;
+
+    /**
+     * Whether pre-submission statuses set by the UI are replaced
+     */
+    private boolean overrideUIStatus = false;
+
+    /**
+     * Initiate recalculator, with the shared PASS client
+     */
+    public SubmissionStatusRecalculator() {
+        this(PassClientFactory.getPassClient());
+    }
+
+    /**
+     * Supports setting a specific client.
+     *
+     * @param client PASS client, which must be safe for concurrent use
+     */
+    public SubmissionStatusRecalculator(PassClient client) {
+        if (client == null) {
+            throw new IllegalArgumentException("PassClient cannot be null");
+        }
+        this.client = client;
+    }
+
+    /**
+     * Set the number of submissions recalculated at once. Defaults to 8.
+     *
+     * @param parallelism number of threads, at least 1
+     * @return this recalculator
+     */
+    public SubmissionStatusRecalculator parallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Set the number of publications whose repository copies are kept, once retrieved, for their other submissions.
+     * The copies of the publications least recently needed are dropped beyond that. Defaults to 1000.
+     *
+     * @param sharedPublications number of publications, or 0 to retrieve the copies for each submission
+     * @return this recalculator
+     */
+    public SubmissionStatusRecalculator sharedPublications(int sharedPublications) {
+        if (sharedPublications < 0) {
+            throw new IllegalArgumentException("sharedPublications cannot be negative");
+        }
+        this.sharedPublications = sharedPublications;
+        return this;
+    }
+
+    /**
+     * Set whether pre-submission statuses set by the UI are replaced. Defaults to {@code false}.
+     *
+     * @param overrideUIStatus {@code true} to replace the status of unsubmitted records regardless of who set it
+     * @return this recalculator
+     * @see SubmissionStatusService#calculateAndUpdateSubmissionStatus(URI, boolean)
+     */
+    public SubmissionStatusRecalculator overrideUIStatus(boolean overrideUIStatus) {
+        this.overrideUIStatus = overrideUIStatus;
+        return this;
+    }
+
+    /**
+     * Recalculate the status of every submission in the repository, as they are found by crawling it.
+     *
+     * @return report of the run
+     * @see PassClient#processAllEntities(Consumer, Class)
+     */
+    public Report recalculateAll() {
+        return run(submit -> client.processAllEntities(submit, Submission.class));
+    }
+
+    /**
+     * Recalculate the status of each of a stream of submissions. The stream is consumed as the submissions are
+     * recalculated, so it may be arbitrarily long.
+     *
+     * @param submissionIds submission URIs
+     * @return report of the run
+     */
+    public Report recalculate(Stream<URI> submissionIds) {
+        if (submissionIds == null) {
+            throw new IllegalArgumentException("submissionIds cannot be null");
+        }
+        return run(submissionIds::forEach);
+    }
+
+    /**
+     * Recalculate each submission the source hands to it on the pool, waiting for a queued one to start where the
+     * source gets ahead of the pool, and then for all to finish.
+     */
+    private Report run(Consumer<Consumer<URI>> source) {
+        final SubmissionStatusService service = new SubmissionStatusService(client, sharedPublications);
+        final Semaphore queued = new Semaphore(parallelism * (1 + QUEUED_PER_THREAD));
+        final Report report = new Report();
+        final ExecutorService pool = newPool(parallelism);
+        final long start = System.nanoTime();
+
+        LOG.info("Recalculating submission statuses on {} threads", parallelism);
+
+        try {
+            source.accept(submissionId -> {
+                queued.acquireUninterruptibly();
+                try {
+                    pool.execute(() -> {
+                        try {
+                            recalculate(service, submissionId, report);
+                        } finally {
+                            queued.release();
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    queued.release();
+                    throw e;
+                }
+            });
+        } finally {
+            pool.shutdown();
+            awaitTermination(pool);
+            report.elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+
+        LOG.info("Recalculated submission statuses: {}", report);
+        return report;
+    }
+
+    private void recalculate(SubmissionStatusService service, URI submissionId, Report report) {
+        try {
+            Submission submission = client.readResource(submissionId, Submission.class);
+            SubmissionStatus fromStatus = submission.getSubmissionStatus();
+            SubmissionStatus toStatus = service.calculateAndUpdateSubmissionStatus(submission, overrideUIStatus);
+            if (!Objects.equals(fromStatus, toStatus)) {
+                report.changes.put(submissionId, toStatus);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Could not recalculate the status of Submission {}: {}", submissionId, e.getMessage(), e);
+            report.failures.put(submissionId, e);
+        } finally {
+            report.recalculated.incrementAndGet();
+        }
+    }
+
+    private static ExecutorService newPool(int parallelism) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "pass-status-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void awaitTermination(ExecutorService pool) {
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Outcome of a run of the recalculator
+     */
+    public static final class Report {
+
+        private final AtomicInteger recalculated = new AtomicInteger();
+
+        private final Map<URI, SubmissionStatus> changes = new ConcurrentHashMap<>();
+
+        private final Map<URI, RuntimeException> failures = new ConcurrentHashMap<>();
+
+        private volatile long elapsedMillis;
+
+        private Report() {
+        }
+
+        /**
+         * @return number of submissions recalculated, including those that failed
+         */
+        public int getRecalculated() {
+            return recalculated.get();
+        }
+
+        /**
+         * @return number of submissions whose status changed, and which were written
+         */
+        public int getChanged() {
+            return changes.size();
+        }
+
+        /**
+         * @return number of submissions that could not be recalculated
+         */
+        public int getFailed() {
+            return failures.size();
+        }
+
+        /**
+         * @return new status of each submission whose status changed
+         */
+        public Map<URI, SubmissionStatus> getChanges() {
+            return Collections.unmodifiableMap(changes);
+        }
+
+        /**
+         * @return reason each submission that could not be recalculated failed
+         */
+        public Map<URI, RuntimeException> getFailures() {
+            return Collections.unmodifiableMap(failures);
+        }
+
+        /**
+         * @return time taken by the run, in milliseconds
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * @return submissions recalculated per second
+         */
+        public double getThroughput() {
+            return elapsedMillis == 0 ? 0 : getRecalculated() * 1000.0 / elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d recalculated in %dms (%.1f/s), %d changed, %d failed", getRecalculated(),
+                                 elapsedMillis, getThroughput(), getChanged(), getFailed());
+        }
+    }
+}
@@ -3,11 +3,15 @@ package org.dataconservancy.pass.client;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+import org.dataconservancy.pass.client.util.FutureUtil;
 import org.dataconservancy.pass.client.util.SubmissionStatusCalculator;
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.PassEntity;
@@ -38,10 +42,18 @@ public class SubmissionStatusService {
     private PassClient client;
 
     /**
-     * Initiate service
+     * Repository copies of the publications most recently needed, retrieved once and shared by the submissions of
+     * each publication whose status is calculated while it is kept, or {@code null} to retrieve them for each
+     * submission
+     */
+    private final Map<URI, CompletableFuture<List<RepositoryCopy>>> publicationCopies;
+
+    /**
+     * Initiate service, with the shared PASS client
      */
     public SubmissionStatusService() {
         this.client = PassClientFactory.getPassClient();
+        this.publicationCopies = null;
     }
 
     /**
@@ -50,10 +62,35 @@ public class SubmissionStatusService {
      * @param client PASS client
      */
     public SubmissionStatusService(PassClient client) {
+        this(client, 0);
+    }
+
+    /**
+     * Supports setting a specific client, and sharing the repository copies of the publications most recently needed
+     * among the submissions of each. The copies of at most {@code sharedPublications} publications are kept, the
+     * least recently needed being dropped beyond that, so that a pass over the whole repository holds a bounded
+     * number of them. Copies created or changed after they were retrieved are not seen while they are kept, so a
+     * service sharing them should be used for a single pass over a set of submissions, and discarded.
+     *
+     * @param client             PASS client
+     * @param sharedPublications number of publications whose repository copies are kept, or 0 to retrieve them for
+     *                           each submission
+     */
+    SubmissionStatusService(PassClient client, int sharedPublications) {
         if (client == null) {
             throw new IllegalArgumentException("PassClient cannot be null");
         }
+        if (sharedPublications < 0) {
+            throw new IllegalArgumentException("sharedPublications cannot be negative");
+        }
         this.client = client;
+        this.publicationCopies = sharedPublications == 0 ? null : Collections.synchronizedMap(
+            new LinkedHashMap<URI, CompletableFuture<List<RepositoryCopy>>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<URI, CompletableFuture<List<RepositoryCopy>>> eldest) {
+                    return size() > sharedPublications;
+                }
+            });
     }
 
     /**
@@ -92,7 +129,9 @@ public class SubmissionStatusService {
         SubmissionStatus fromStatus = submission.getSubmissionStatus();
         SubmissionStatus toStatus;
 
-        Collection<URI> submissionLinks = retrieveLinks(submissionId, SUBMISSION_MAP_KEY);
+        Collection<URI> submissionLinks = retrieveLinks(submissionId, SUBMISSION_MAP_KEY,
+                                                        submitted ? PassEntityType.DEPOSIT
+                                                                  : PassEntityType.SUBMISSION_EVENT);
 
         if (!submitted) {
 
@@ -109,10 +148,7 @@ public class SubmissionStatusService {
 
             List<Deposit> deposits = getConnectedRecords(submissionLinks, PassEntityType.DEPOSIT, Deposit.class);
 
-            Collection<URI> publicationLinks = retrieveLinks(submission.getPublication(), PUBLICATION_MAP_KEY);
-            List<RepositoryCopy> repositoryCopies = getConnectedRecords(publicationLinks,
-                                                                        PassEntityType.REPOSITORY_COPY,
-                                                                        RepositoryCopy.class);
+            List<RepositoryCopy> repositoryCopies = retrieveRepositoryCopies(submission.getPublication());
 
             toStatus = SubmissionStatusCalculator.calculatePostSubmissionStatus(submission.getRepositories(), deposits,
                                                                                 repositoryCopies);
@@ -178,8 +214,22 @@ public class SubmissionStatusService {
      * @return calculated submission status.
      */
     public SubmissionStatus calculateAndUpdateSubmissionStatus(URI submissionId, boolean overrideUIStatus) {
+        return calculateAndUpdateSubmissionStatus(loadSubmission(submissionId), overrideUIStatus);
+    }
 
-        Submission submission = loadSubmission(submissionId);
+    /**
+     * Calculates the appropriate {@link SubmissionStatus} for a {@link Submission} that has already been read, and
+     * updates the status as {@link #calculateAndUpdateSubmissionStatus(URI, boolean)} does. The submission is only
+     * written if its status changes.
+     *
+     * @param submission       The submission
+     * @param overrideUIStatus - {@code true} will override the current pre-submission status on the
+     *                         {@code Submission} record, regardless of whether it was set by the UI.
+     *                         {@code false} will not replace the current submission value, and favor the value set
+     *                         by the UI
+     * @return calculated submission status, or the current status if it is protected from change.
+     */
+    public SubmissionStatus calculateAndUpdateSubmissionStatus(Submission submission, boolean overrideUIStatus) {
 
         SubmissionStatus fromStatus = submission.getSubmissionStatus();
         SubmissionStatus toStatus = calculateSubmissionStatus(submission);
@@ -228,18 +278,21 @@ public class SubmissionStatusService {
     }
 
     /**
-     * Retrieve incoming links for resource, filtered by a map key.
+     * Retrieve incoming links for resource, filtered by a map key and the type of the linking entities. Only the
+     * links needed are requested, so a client that finds them by searching the index makes a single search.
      *
      * @param uri
      * @param mapKey
+     * @param entityType
      * @return Incoming links
      */
-    private Collection<URI> retrieveLinks(URI uri, String mapKey) {
+    private Collection<URI> retrieveLinks(URI uri, String mapKey, PassEntityType entityType) {
         Collection<URI> links = new HashSet<>();
         if (uri == null || mapKey == null) {
             return links;
         }
-        Map<String, Collection<URI>> linksMap = client.getIncoming(uri);
+        Map<String, Collection<URI>> linksMap = client.getIncoming(uri, Collections.singleton(mapKey),
+                                                                   Collections.singleton(entityType));
         if (linksMap.containsKey(mapKey)) {
             links = linksMap.get(mapKey);
         }
@@ -247,7 +300,47 @@ public class SubmissionStatusService {
     }
 
     /**
-     * Filter links list by entity type required and read in resources from database
+     * Retrieve the repository copies of a publication. Where they are shared, they are retrieved by the first
+     * submission of the publication to need them, and any other submission needing them while they are kept waits
+     * for them, or uses them. A failure to retrieve them is not kept.
+     *
+     * @param publicationId
+     * @return repository copies of the publication
+     */
+    private List<RepositoryCopy> retrieveRepositoryCopies(URI publicationId) {
+        if (publicationCopies == null || publicationId == null) {
+            return readRepositoryCopies(publicationId);
+        }
+        CompletableFuture<List<RepositoryCopy>> copies = new CompletableFuture<>();
+        CompletableFuture<List<RepositoryCopy>> shared = publicationCopies.putIfAbsent(publicationId, copies);
+        if (shared != null) {
+            return FutureUtil.join(shared);
+        }
+        try {
+            copies.complete(readRepositoryCopies(publicationId));
+        } catch (RuntimeException e) {
+            // Not kept, so that the next submission of the publication retrieves them again
+            publicationCopies.remove(publicationId, copies);
+            copies.completeExceptionally(e);
+        }
+        return FutureUtil.join(copies);
+    }
+
+    /**
+     * Read the repository copies linked to a publication
+     *
+     * @param publicationId
+     * @return repository copies of the publication
+     */
+    private List<RepositoryCopy> readRepositoryCopies(URI publicationId) {
+        Collection<URI> publicationLinks = retrieveLinks(publicationId, PUBLICATION_MAP_KEY,
+                                                        PassEntityType.REPOSITORY_COPY);
+        return getConnectedRecords(publicationLinks, PassEntityType.REPOSITORY_COPY, RepositoryCopy.class);
+    }
+
+    /**
+     * Filter links list by entity type required and read in resources from database. The resources are read as a
+     * batch; if any of them cannot be read, the exception for the first is thrown.
      *
      * @param links
      * @param entityType
@@ -259,10 +352,12 @@ public class SubmissionStatusService {
         if (links == null || entityType == null || modelClass == null) {
             return new ArrayList<T>();
         }
-        return links.stream()
-                    .filter(link -> link.toString().contains(entityType.getPlural()))
-                    .map(res -> client.readResource(res, modelClass))
-                    .collect(Collectors.toList());
+        List<URI> connected = links.stream()
+                                   .filter(entityType::isTypeOf)
+                                   .collect(Collectors.toList());
+        return client.readResources(connected, modelClass).stream()
+                     .map(ReadResult::getOrThrow)
+                     .collect(Collectors.toList());
     }
 
 }
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2018 Johns Hopkins University
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.dataconservancy.pass.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.dataconservancy.pass.model.Deposit;
+import org.dataconservancy.pass.model.Deposit.DepositStatus;
+import org.dataconservancy.pass.model.PassEntityType;
+import org.dataconservancy.pass.model.RepositoryCopy;
+import org.dataconservancy.pass.model.RepositoryCopy.CopyStatus;
+import org.dataconservancy.pass.model.Submission;
+import org.dataconservancy.pass.model.Submission.SubmissionStatus;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * @author Johns Hopkins University
+ */
+public class SubmissionStatusRecalculatorTest extends SubmissionStatusTestBase {
+
+    @Mock
+    private PassClient client;
+
+    @Before
+    public void initMocks() {
+        MockitoAnnotations.initMocks(this);
+        stubReadResources(client);
+    }
+
+    /**
+     * Submissions sharing a publication are recalculated concurrently, the repository copies of the publication are
+     * retrieved once, only the submission whose status changed is written, and a submission that cannot be read is
+     * reported as a failure without stopping the others.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testRecalculate() throws Exception {
+        URI unchangedId = new URI("submissions:1");
+        URI changedId = new URI("submissions:2");
+        URI missingId = new URI("submissions:3");
+        Submission unchanged = submission(unchangedId, SubmissionStatus.SUBMITTED);
+        Submission changed = submission(changedId, null);
+
+        when(client.readResource(unchangedId, Submission.class)).thenReturn(unchanged);
+        when(client.readResource(changedId, Submission.class)).thenReturn(changed);
+        when(client.readResource(missingId, Submission.class)).thenThrow(new RuntimeException("Not found"));
+
+        Map<String, Collection<URI>> submissionIncoming = Collections.singletonMap(
+            "submission", new HashSet<>(Arrays.asList(deposit1Id, deposit2Id)));
+        when(client.getIncoming(Mockito.any(), eq(Collections.singleton("submission")),
+                                eq(Collections.singleton(PassEntityType.DEPOSIT)))).thenReturn(submissionIncoming);
+        when(client.readResource(deposit1Id, Deposit.class)).thenReturn(deposit(DepositStatus.ACCEPTED, repo1Id));
+        when(client.readResource(deposit2Id, Deposit.class)).thenReturn(deposit(DepositStatus.ACCEPTED, repo2Id));
+
+        Map<String, Collection<URI>> publicationIncoming = Collections.singletonMap(
+            "publication", new HashSet<>(Arrays.asList(repoCopy1Id, repoCopy2Id)));
+        when(client.getIncoming(publicationId, Collections.singleton("publication"),
+                                Collections.singleton(PassEntityType.REPOSITORY_COPY))).thenReturn(publicationIncoming);
+        when(client.readResource(repoCopy1Id, RepositoryCopy.class)).thenReturn(
+            repoCopy(CopyStatus.ACCEPTED, repo1Id));
+        when(client.readResource(repoCopy2Id, RepositoryCopy.class)).thenReturn(
+            repoCopy(CopyStatus.ACCEPTED, repo2Id));
+
+        SubmissionStatusRecalculator.Report report = new SubmissionStatusRecalculator(client)
+            .parallelism(4)
+            .recalculate(Stream.of(unchangedId, changedId, missingId));
+
+        assertEquals(3, report.getRecalculated());
+        assertEquals(1, report.getChanged());
+        assertEquals(Collections.singletonMap(changedId, SubmissionStatus.SUBMITTED), report.getChanges());
+        assertEquals(1, report.getFailed());
+        assertTrue(report.getFailures().containsKey(missingId));
+        assertTrue(report.getElapsedMillis() >= 0);
+
+        verify(client, Mockito.times(1)).getIncoming(eq(publicationId), Mockito.any(), Mockito.any());
+        verify(client, Mockito.times(1)).readResource(repoCopy1Id, RepositoryCopy.class);
+        verify(client, Mockito.times(1)).updateResource(Mockito.any());
+        verify(client).updateResource(changed);
+        assertEquals(SubmissionStatus.SUBMITTED, changed.getSubmissionStatus());
+    }
+
+    /**
+     * Every submission found by crawling the repository is recalculated, here an unsubmitted one without a status
+     *
+     * @throws Exception
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRecalculateAll() throws Exception {
+        URI submissionId = new URI("submissions:1");
+        Submission submission = submission(submissionId, null);
+        submission.setSubmitted(false);
+        when(client.readResource(submissionId, Submission.class)).thenReturn(submission);
+        when(client.processAllEntities(Mockito.any(), eq(Submission.class))).thenAnswer(invocation -> {
+            ((Consumer<URI>) invocation.getArgument(0)).accept(submissionId);
+            return 1;
+        });
+
+        SubmissionStatusRecalculator.Report report = new SubmissionStatusRecalculator(client).recalculateAll();
+
+        assertEquals(1, report.getRecalculated());
+        assertEquals(Collections.singletonMap(submissionId, SubmissionStatus.MANUSCRIPT_REQUIRED),
+                     report.getChanges());
+        assertEquals(0, report.getFailed());
+    }
+
+    /**
+     * Only the repository copies of the publications most recently needed are kept, so those of a publication needed
+     * again after another has displaced it are retrieved again
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSharedPublicationsAreBounded() throws Exception {
+        URI otherPublicationId = new URI(BASE + "publications/2");
+        URI submission1Id = new URI(BASE + "submissions/1");
+        URI submission2Id = new URI(BASE + "submissions/2");
+        URI submission3Id = new URI(BASE + "submissions/3");
+        Submission submission2 = submission(submission2Id, SubmissionStatus.SUBMITTED);
+        submission2.setPublication(otherPublicationId);
+
+        when(client.readResource(submission1Id, Submission.class)).thenReturn(
+            submission(submission1Id, SubmissionStatus.SUBMITTED));
+        when(client.readResource(submission2Id, Submission.class)).thenReturn(submission2);
+        when(client.readResource(submission3Id, Submission.class)).thenReturn(
+            submission(submission3Id, SubmissionStatus.SUBMITTED));
+        when(client.getIncoming(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(Collections.emptyMap());
+
+        SubmissionStatusRecalculator.Report report = new SubmissionStatusRecalculator(client)
+            .parallelism(1)
+            .sharedPublications(1)
+            .recalculate(Stream.of(submission1Id, submission2Id, submission3Id));
+
+        assertEquals(3, report.getRecalculated());
+        assertEquals(0, report.getFailed());
+        verify(client, Mockito.times(2)).getIncoming(eq(publicationId), Mockito.any(), Mockito.any());
+        verify(client, Mockito.times(1)).getIncoming(eq(otherPublicationId), Mockito.any(), Mockito.any());
+    }
+
+    /**
+     * A failure to retrieve the repository copies of a publication is not kept, so a later submission of the same
+     * publication retrieves them again
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testFailedPublicationIsRetried() throws Exception {
+        URI submission1Id = new URI(BASE + "submissions/1");
+        URI submission2Id = new URI(BASE + "submissions/2");
+        when(client.readResource(submission1Id, Submission.class)).thenReturn(
+            submission(submission1Id, SubmissionStatus.SUBMITTED));
+        when(client.readResource(submission2Id, Submission.class)).thenReturn(
+            submission(submission2Id, SubmissionStatus.SUBMITTED));
+        when(client.getIncoming(Mockito.any(), Mockito.any(), Mockito.any())).thenReturn(Collections.emptyMap());
+        when(client.getIncoming(eq(publicationId), Mockito.any(), Mockito.any()))
+            .thenThrow(new RuntimeException("Index unavailable"))
+            .thenReturn(Collections.emptyMap());
+
+        SubmissionStatusRecalculator.Report report = new SubmissionStatusRecalculator(client)
+            .parallelism(1)
+            .recalculate(Stream.of(submission1Id, submission2Id));
+
+        assertEquals(2, report.getRecalculated());
+        assertEquals(Collections.singleton(submission1Id), report.getFailures().keySet());
+        verify(client, Mockito.times(2)).getIncoming(eq(publicationId), Mockito.any(), Mockito.any());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSharedPublications() {
+        new SubmissionStatusRecalculator(client).sharedPublications(-1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroParallelism() {
+        new SubmissionStatusRecalculator(client).parallelism(0);
+    }
+
+    private Submission submission(URI id, SubmissionStatus status) {
+        Submission submission = new Submission();
+        submission.setId(id);
+        submission.setRepositories(Arrays.asList(repo1Id, repo2Id));
+        submission.setPublication(publicationId);
+        submission.setSubmitted(true);
+        submission.setSubmissionStatus(status);
+        return submission;
+    }
+}
@@ -8,6 +8,7 @@ import static org.mockito.Mockito.when;
 import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -15,6 +16,7 @@ import java.util.Map;
 
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.Deposit.DepositStatus;
+import org.dataconservancy.pass.model.PassEntityType;
 import org.dataconservancy.pass.model.RepositoryCopy;
 import org.dataconservancy.pass.model.RepositoryCopy.CopyStatus;
 import org.dataconservancy.pass.model.Submission;
@@ -41,6 +43,7 @@ public class SubmissionStatusServiceTest extends SubmissionStatusTestBase {
     @Before
     public void initMocks() {
         MockitoAnnotations.initMocks(this);
+        stubReadResources(client);
     }
 
     /**
@@ -69,8 +72,11 @@ public class SubmissionStatusServiceTest extends SubmissionStatusTestBase {
 
         service = new SubmissionStatusService(client);
 
-        when(client.getIncoming(Mockito.any())).thenReturn(submissionIncoming).thenReturn(publicationsIncoming);
-        ;
+        when(client.getIncoming(submission.getId(), Collections.singleton("submission"),
+                                Collections.singleton(PassEntityType.DEPOSIT))).thenReturn(submissionIncoming);
+        when(client.getIncoming(publicationId, Collections.singleton("publication"),
+                                Collections.singleton(PassEntityType.REPOSITORY_COPY)))
+            .thenReturn(publicationsIncoming);
         when(client.readResource(Mockito.any(), eq(Deposit.class))).thenReturn(deposit(DepositStatus.ACCEPTED, repo1Id))
                                                                    .thenReturn(
                                                                        deposit(DepositStatus.ACCEPTED, repo2Id));
@@ -80,7 +86,8 @@ public class SubmissionStatusServiceTest extends SubmissionStatusTestBase {
         SubmissionStatus newStatus = service.calculateSubmissionStatus(submission);
         assertEquals(SubmissionStatus.SUBMITTED, newStatus);
 
-        verify(client, Mockito.times(2)).getIncoming(Mockito.any());
+        verify(client, Mockito.times(2)).getIncoming(Mockito.any(), Mockito.any(), Mockito.any());
+        verify(client, Mockito.times(0)).getIncoming(Mockito.any());
         verify(client, Mockito.times(2)).readResource(Mockito.any(), eq(Deposit.class));
         verify(client, Mockito.times(2)).readResource(Mockito.any(), eq(RepositoryCopy.class));
         verify(client, Mockito.times(0)).readResource(Mockito.any(), eq(SubmissionEvent.class));
@@ -110,7 +117,9 @@ public class SubmissionStatusServiceTest extends SubmissionStatusTestBase {
 
         service = new SubmissionStatusService(client);
 
-        when(client.getIncoming(Mockito.any())).thenReturn(submissionIncoming);
+        when(client.getIncoming(submission.getId(), Collections.singleton("submission"),
+                                Collections.singleton(PassEntityType.SUBMISSION_EVENT)))
+            .thenReturn(submissionIncoming);
         when(client.readResource(Mockito.any(), eq(SubmissionEvent.class)))
             .thenReturn(submissionEvent(new DateTime(2018, 2, 1, 12, 1, 0, 0), EventType.APPROVAL_REQUESTED))
             .thenReturn(submissionEvent(new DateTime(2018, 2, 1, 12, 2, 0, 0), EventType.CHANGES_REQUESTED));
@@ -118,7 +127,8 @@ public class SubmissionStatusServiceTest extends SubmissionStatusTestBase {
         SubmissionStatus newStatus = service.calculateSubmissionStatus(submission);
         assertEquals(SubmissionStatus.CHANGES_REQUESTED, newStatus);
 
-        verify(client, Mockito.times(1)).getIncoming(Mockito.any());
+        verify(client, Mockito.times(1)).getIncoming(Mockito.any(), Mockito.any(), Mockito.any());
+        verify(client, Mockito.times(0)).getIncoming(Mockito.any());
         verify(client, Mockito.times(2)).readResource(Mockito.any(), eq(SubmissionEvent.class));
         verify(client, Mockito.times(0)).readResource(Mockito.any(), eq(Deposit.class));
         verify(client, Mockito.times(0)).readResource(Mockito.any(), eq(RepositoryCopy.class));
@@ -15,10 +15,17 @@
  */
 package org.dataconservancy.pass.client;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import org.dataconservancy.pass.model.Deposit;
 import org.dataconservancy.pass.model.Deposit.DepositStatus;
+import org.dataconservancy.pass.model.PassEntity;
 import org.dataconservancy.pass.model.RepositoryCopy;
 import org.dataconservancy.pass.model.RepositoryCopy.CopyStatus;
 import org.dataconservancy.pass.model.SubmissionEvent;
@@ -33,6 +40,8 @@ import org.junit.Before;
  */
 public abstract class SubmissionStatusTestBase {
 
+    protected static final String BASE = "https://pass.example.org:8443/fcrepo/rest/";
+
     //some test URIs
     protected URI repo1Id;
     protected URI repo2Id;
@@ -47,16 +56,38 @@ public abstract class SubmissionStatusTestBase {
 
     @Before
     public void initiate() throws Exception {
-        repo1Id = new URI("repository:1");
-        repo2Id = new URI("repository:2");
-        repo3Id = new URI("repository:3");
-        publicationId = new URI("publications:1");
-        deposit1Id = new URI("deposits:1");
-        deposit2Id = new URI("deposits:2");
-        repoCopy1Id = new URI("repositoryCopies:1");
-        repoCopy2Id = new URI("repositoryCopies:2");
-        subEvent1Id = new URI("submissionEvents:1");
-        subEvent2Id = new URI("submissionEvents:2");
+        // Entities are under a base URL other than the configured one, as when Fedora is reached through a proxy
+        repo1Id = new URI(BASE + "repositories/1");
+        repo2Id = new URI(BASE + "repositories/2");
+        repo3Id = new URI(BASE + "repositories/3");
+        publicationId = new URI(BASE + "publications/1");
+        deposit1Id = new URI(BASE + "deposits/1");
+        deposit2Id = new URI(BASE + "deposits/2");
+        repoCopy1Id = new URI(BASE + "repositoryCopies/1");
+        repoCopy2Id = new URI(BASE + "repositoryCopies/2");
+        subEvent1Id = new URI(BASE + "submissionEvents/1");
+        subEvent2Id = new URI(BASE + "submissionEvents/2");
+    }
+
+    /**
+     * Stub the batch reads of a mocked client, so that each resource is read with the stubbed readResource
+     *
+     * @param client mocked client
+     */
+    protected static void stubReadResources(PassClient client) {
+        when(client.readResources(any(), any())).thenAnswer(invocation -> {
+            Collection<URI> uris = invocation.getArgument(0);
+            Class<PassEntity> modelClass = invocation.getArgument(1);
+            List<ReadResult<PassEntity>> results = new ArrayList<>();
+            for (URI uri : uris) {
+                try {
+                    results.add(ReadResult.success(uri, client.readResource(uri, modelClass)));
+                } catch (RuntimeException e) {
+                    results.add(ReadResult.failure(uri, e));
+                }
+            }
+            return results;
+        });
     }
 
     protected Deposit deposit(DepositStatus status, URI repoUri) {